@@ -0,0 +1,73 @@
+package org.reextractor.service;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.remapper.dto.MatchPair;
+import org.remapper.handler.MatchingHandler;
+import org.remapper.service.EntityMatcherService;
+import org.remapper.service.EntityMatcherServiceImpl;
+import org.remapper.service.GitService;
+import org.remapper.util.GitServiceImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The recorded commit a benchmark runs on. The Java files changed by the commit are materialized once per trial,
+ * without touching the working tree of the repository. Use commits of different sizes to see how the detection
+ * scales, e.g. -p repository=/path/to/commons-math -p commitId=sha1,sha2,sha3.
+ */
+public abstract class CommitBenchmark {
+
+    // no default, so that a benchmark without a repository fails instead of measuring an error
+    @Param("")
+    public String repository;
+
+    @Param("482ebca8f54c6d1c6ef3d07710d0717334bc0eee")
+    public String commitId;
+
+    protected RefactoringExtractorServiceImpl service;
+    protected CommitSnapshot snapshot;
+    private Repository repo;
+
+    @Setup
+    public void openCommit() throws Exception {
+        repo = openRepository(repository);
+        try (RevWalk walk = new RevWalk(repo)) {
+            RevCommit commit = walk.parseCommit(repo.resolve(commitId));
+            RevCommit parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+            snapshot = CommitSnapshot.create(repo, parent, commit);
+        }
+        service = new RefactoringExtractorServiceImpl();
+    }
+
+    @TearDown
+    public void closeCommit() {
+        if (snapshot != null)
+            snapshot.close();
+        if (repo != null)
+            repo.close();
+    }
+
+    /**
+     * Open the repository given with -p repository=..., which must be the folder of a git repository.
+     */
+    static Repository openRepository(String repository) throws Exception {
+        if (repository.isEmpty())
+            throw new IllegalArgumentException("Give the repository to benchmark with -p repository=/path/to/repository");
+        if (!Files.isDirectory(Paths.get(repository, ".git")))
+            throw new IllegalArgumentException("Not the folder of a git repository: " + Paths.get(repository).toAbsolutePath());
+        GitService gitService = new GitServiceImpl();
+        return gitService.openRepository(repository);
+    }
+
+    protected MatchPair matchEntities() throws Exception {
+        EntityMatcherService matcher = new EntityMatcherServiceImpl();
+        return matcher.matchEntities(snapshot.getPreviousVersion(), snapshot.getNextVersion(), new MatchingHandler() {
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package org.reextractor.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.reextractor.refactoring.Refactoring;
+import org.remapper.dto.MatchPair;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detection of the refactorings of a commit, excluding the matching of its entities. The entities are matched again
+ * before each invocation, so every invocation starts from fresh ASTs, as it does when mining a history.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DetectionBenchmark extends CommitBenchmark {
+
+    private MatchPair matchPair;
+
+    @Setup(Level.Invocation)
+    public void match() throws Exception {
+        matchPair = matchEntities();
+    }
+
+    @Benchmark
+    public List<Refactoring> detectRefactorings() {
+        return service.detectRefactorings(matchPair);
+    }
+}
@@ -0,0 +1,62 @@
+package org.reextractor.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.reextractor.detector.DetectionContext;
+import org.reextractor.detector.DetectorRegistry;
+import org.reextractor.detector.RefactoringDetector;
+import org.reextractor.refactoring.Refactoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single detector of the registry on the inputs of a commit, which are matched and indexed once per trial, e.g.
+ * the parameter changes of matched methods (checkForOperationParameterChanges) are found by
+ * detectRefactoringsInMatchedEntities. A detector that reads the refactorings found before it starts each invocation
+ * from those of the detectors that run before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DetectorBenchmark extends CommitBenchmark {
+
+    @Param({"detectRefactoringsInMatchedEntities", "detectRefactoringsBetweenMatchedAndAddedEntities",
+            "detectRefactoringsBetweenMatchedDeletedEntities", "detectRefactoringsInIntroducedObjects",
+            "detectRefactoringsInMatchedStatements", "detectRefactoringsBetweenMatchedAndAddedStatements",
+            "detectRefactoringsBetweenMatchedAndDeletedStatements", "detectRefactoringsBetweenAddedAndDeletedStatements"})
+    public String detector;
+
+    private DetectorRegistry registry;
+    private RefactoringDetector refactoringDetector;
+    private DetectionContext context;
+    private List<Refactoring> refactoringsBefore;
+
+    @Setup(Level.Trial)
+    public void prepareContext() throws Exception {
+        registry = service.getDetectorRegistry();
+        context = service.createDetectionContext(matchEntities());
+        refactoringsBefore = new ArrayList<>();
+        for (RefactoringDetector registered : registry.getDetectors()) {
+            if (registered.getName().equals(detector)) {
+                refactoringDetector = registered;
+                break;
+            }
+            registry.detect(registered, context, refactoringsBefore);
+        }
+        if (refactoringDetector == null)
+            throw new IllegalArgumentException("No detector is registered as " + detector);
+        if (!refactoringDetector.getInputs().contains(RefactoringDetector.Input.REFACTORINGS))
+            refactoringsBefore.clear();
+    }
+
+    @Benchmark
+    public List<Refactoring> detect() {
+        List<Refactoring> refactorings = new ArrayList<>(refactoringsBefore);
+        registry.detect(refactoringDetector, context, refactorings);
+        return refactorings;
+    }
+}
@@ -0,0 +1,80 @@
+package org.reextractor.service;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.*;
+import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.refactoring.Refactoring;
+import org.remapper.dto.MatchPair;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mining of a range of commits, with the working tree checked out and reset for each commit (treeless=false) or
+ * with the changed files read from the object database (treeless=true). The "commits" counter is the number of
+ * commits analyzed per second. The working tree of the repository is reset, so use a scratch clone, e.g.
+ * -p repository=/tmp/commons-math -p startCommit=sha1 -p endCommit=sha2.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param("")
+    public String repository;
+
+    @Param("482ebca8f54c6d1c6ef3d07710d0717334bc0eee")
+    public String startCommit;
+
+    @Param("")
+    public String endCommit;
+
+    @Param({"false", "true"})
+    public boolean treeless;
+
+    private RefactoringExtractorServiceImpl service;
+    private Repository repo;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Commits {
+
+        public long commits;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            commits = 0;
+        }
+    }
+
+    @Setup
+    public void openRepository() throws Exception {
+        repo = CommitBenchmark.openRepository(repository);
+        service = new RefactoringExtractorServiceImpl();
+        service.setTreeless(treeless);
+    }
+
+    @TearDown
+    public void closeRepository() {
+        if (repo != null)
+            repo.close();
+    }
+
+    @Benchmark
+    public void detectAllBetweenCommits(Commits counters) throws Exception {
+        service.detectAllBetweenCommits(repo, startCommit, endCommit.isEmpty() ? null : endCommit, new RefactoringHandler() {
+            @Override
+            public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
+                counters.commits++;
+            }
+
+            @Override
+            public void handleException(String commitId, Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package org.reextractor.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reextractor.dto.RefactoringDiscoveryJSONWriter;
+import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.refactoring.Refactoring;
+import org.remapper.dto.MatchPair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole analysis of a commit (matching and detection, as done by detectAtFiles) and the serialization of its
+ * result to JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark extends CommitBenchmark {
+
+    private MatchPair matchPair;
+    private List<Refactoring> refactorings;
+
+    @Setup
+    public void detect() throws Exception {
+        matchPair = matchEntities();
+        refactorings = service.detectRefactorings(matchPair);
+    }
+
+    @Benchmark
+    public void detectAtFiles(Blackhole blackhole) {
+        File previousVersion = snapshot.getPreviousVersion();
+        File nextVersion = snapshot.getNextVersion();
+        service.detectAtFiles(previousVersion, nextVersion, new RefactoringHandler() {
+            @Override
+            public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
+                blackhole.consume(refactorings);
+            }
+
+            @Override
+            public void handleException(String commitId, Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        try (RefactoringDiscoveryJSONWriter writer = new RefactoringDiscoveryJSONWriter(Writer.nullWriter(), false)) {
+            writer.write(repository, commitId, null, matchPair, refactorings);
+        }
+    }
+}
@@ -1,31 +1,63 @@
 package org.reextractor;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.eclipse.jgit.lib.Repository;
-import org.reextractor.dto.RefactoringDiscoveryJSON;
+import org.reextractor.detector.DetectorRegistry;
+import org.reextractor.detector.DetectorStatistics;
+import org.reextractor.dto.CommitProfile;
+import org.reextractor.dto.FileContentStore;
+import org.reextractor.dto.MiningJournal;
+import org.reextractor.dto.PathFilter;
+import org.reextractor.dto.ProfileSummary;
+import org.reextractor.dto.RefactoringDiscoveryJSONWriter;
+import org.reextractor.dto.RefactoringResultCache;
 import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.jfr.SerializationEvent;
+import org.reextractor.metrics.MiningMetrics;
 import org.reextractor.refactoring.Refactoring;
+import org.reextractor.refactoring.RefactoringType;
 import org.reextractor.service.RefactoringExtractorService;
 import org.reextractor.service.RefactoringExtractorServiceImpl;
 import org.remapper.dto.MatchPair;
 import org.remapper.service.GitService;
 import org.remapper.util.GitServiceImpl;
 
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ReExtractor {
 
     private static Path path = null;
+    private static boolean jsonLines = false;
+    private static FileContentStore contentStore = null;
+    private static int threads = 1;
+    private static boolean ordered = true;
+    private static boolean parallelDetection = false;
+    private static boolean pipelined = false;
+    private static boolean treeless = false;
+    private static int timeout = 0;
+    private static boolean skipCosmetic = false;
+    private static PathFilter pathFilter;
+    private static EnumSet<RefactoringType> refactoringTypes;
+    private static List<String> disabledDetectors = new ArrayList<>();
+    private static DetectorRegistry detectorRegistry;
+    private static boolean profile = false;
+    private static boolean jmx = false;
+    private static boolean resume = false;
+    private static Path cacheDirectory = null;
+    private static long cacheSize = 1024;
 
     public static void main(String[] args) throws Exception {
+        args = processMiningOptions(args);
         if (args.length < 1) {
             throw argumentException();
         }
@@ -65,42 +97,180 @@ public class ReExtractor {
             branch = args[2];
         }
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             MiningJournal journal = openJournal();
+             RefactoringDiscoveryJSONWriter writer = openWriter(journal)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
-            service.detectAll(repo, branch, new RefactoringHandler() {
-                @Override
-                public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, commitId, matchPair, refactorings);
-                }
+            RefactoringExtractorService service = createService();
+            service.detectAll(repo, branch, new CommitHandler(gitURL, journal, writer));
+        }
+    }
 
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-                            commitsCount, errorCommitsCount, refactoringsCount));
-                }
+    private static RefactoringExtractorService createService() {
+        RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
+        service.setThreads(threads);
+        service.setOrdered(ordered);
+        service.setParallelDetection(parallelDetection);
+        service.setPipelined(pipelined);
+        service.setTreeless(treeless);
+        service.setTimeout(timeout);
+        service.setSkipCosmeticChanges(skipCosmetic);
+        service.setPathFilter(pathFilter);
+        service.setRefactoringTypes(refactoringTypes);
+        detectorRegistry = service.getDetectorRegistry();
+        for (String detector : disabledDetectors) {
+            try {
+                detectorRegistry.setEnabled(detector, false);
+            } catch (IllegalArgumentException e) {
+                throw argumentException();
+            }
+        }
+        if (jmx) {
+            MiningMetrics metrics = new MiningMetrics();
+            metrics.register();
+            service.setMetrics(metrics);
+        }
+        return service;
+    }
 
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
+    private static String[] processMiningOptions(String[] args) {
+        List<String> remaining = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-threads") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw argumentException();
                 }
-            });
+                if (threads < 1) {
+                    throw argumentException();
+                }
+            } else if (args[i].equalsIgnoreCase("-unordered")) {
+                ordered = false;
+            } else if (args[i].equalsIgnoreCase("-paralleldetection")) {
+                parallelDetection = true;
+            } else if (args[i].equalsIgnoreCase("-pipeline")) {
+                pipelined = true;
+            } else if (args[i].equalsIgnoreCase("-treeless")) {
+                treeless = true;
+            } else if (args[i].equalsIgnoreCase("-store") && i + 1 < args.length) {
+                contentStore = new FileContentStore(Paths.get(args[++i]));
+            } else if (args[i].equalsIgnoreCase("-timeout") && i + 1 < args.length) {
+                try {
+                    timeout = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw argumentException();
+                }
+                if (timeout < 1) {
+                    throw argumentException();
+                }
+            } else if (args[i].equalsIgnoreCase("-types") && i + 1 < args.length) {
+                refactoringTypes = EnumSet.noneOf(RefactoringType.class);
+                try {
+                    for (String type : args[++i].split(","))
+                        refactoringTypes.add(RefactoringType.valueOf(type.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw argumentException();
+                }
+            } else if (args[i].equalsIgnoreCase("-disable") && i + 1 < args.length) {
+                for (String detector : args[++i].split(","))
+                    disabledDetectors.add(detector.trim());
+            } else if (args[i].equalsIgnoreCase("-include") && i + 1 < args.length) {
+                pathFilter().addInclude(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-exclude") && i + 1 < args.length) {
+                pathFilter().addExclude(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-skipgenerated")) {
+                pathFilter().setSkipGenerated(true);
+            } else if (args[i].equalsIgnoreCase("-maxfilesize") && i + 1 < args.length) {
+                long maxFileSize;
+                try {
+                    maxFileSize = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw argumentException();
+                }
+                if (maxFileSize < 1) {
+                    throw argumentException();
+                }
+                pathFilter().setMaxFileSize(maxFileSize * 1024);
+            } else if (args[i].equalsIgnoreCase("-skipcosmetic")) {
+                skipCosmetic = true;
+            } else if (args[i].equalsIgnoreCase("-jmx")) {
+                jmx = true;
+            } else if (args[i].equalsIgnoreCase("-profile")) {
+                profile = true;
+            } else if (args[i].equalsIgnoreCase("-resume")) {
+                resume = true;
+            } else if (args[i].equalsIgnoreCase("-cache") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-cachesize") && i + 1 < args.length) {
+                try {
+                    cacheSize = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    throw argumentException();
+                }
+                if (cacheSize < 1) {
+                    throw argumentException();
+                }
+            } else if (args[i].equalsIgnoreCase("-blobids")) {
+                if (contentStore == null) {
+                    contentStore = new FileContentStore(null);
+                }
+            } else {
+                remaining.add(args[i]);
+            }
         }
+        return remaining.toArray(new String[0]);
+    }
+
+    private static PathFilter pathFilter() {
+        if (pathFilter == null)
+            pathFilter = new PathFilter();
+        return pathFilter;
     }
 
     private static boolean containsBranchArgument(String[] args) {
-        return args.length == 3 || (args.length > 3 && args[3].equalsIgnoreCase("-json"));
+        return args.length == 3 || (args.length > 3 && isJSONOption(args[3]));
     }
 
     private static int processJSONoption(String[] args, int maxArgLength) {
-        if (args[args.length - 2].equalsIgnoreCase("-json")) {
+        if (args.length > 1 && isJSONOption(args[args.length - 2])) {
             path = Paths.get(args[args.length - 1]);
+            jsonLines = args[args.length - 2].equalsIgnoreCase("-jsonl");
             maxArgLength = maxArgLength + 2;
         }
         return maxArgLength;
     }
 
+    private static boolean isJSONOption(String arg) {
+        return arg.equalsIgnoreCase("-json") || arg.equalsIgnoreCase("-jsonl");
+    }
+
+    private static MiningJournal openJournal() throws IOException {
+        if (path == null) {
+            if (resume) {
+                throw argumentException();
+            }
+            return null;
+        }
+        return MiningJournal.open(Paths.get(path + ".checkpoint"), resume);
+    }
+
+    private static RefactoringDiscoveryJSONWriter openWriter(MiningJournal journal) throws IOException {
+        RefactoringDiscoveryJSONWriter writer;
+        if (path == null) {
+            writer = new RefactoringDiscoveryJSONWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), jsonLines);
+        } else if (journal != null && journal.getOffset() >= 0) {
+            writer = RefactoringDiscoveryJSONWriter.open(path, jsonLines, journal.getOffset());
+        } else {
+            writer = RefactoringDiscoveryJSONWriter.open(path, jsonLines);
+            if (journal != null) {
+                journal.start(Files.size(path));
+            }
+        }
+        writer.setContentStore(contentStore);
+        return writer;
+    }
+
     public static void detectBetweenCommits(String[] args) throws Exception {
         int maxArgLength = processJSONoption(args, 4);
         if (!(args.length == maxArgLength - 1 || args.length == maxArgLength)) {
@@ -110,13 +280,14 @@ public class ReExtractor {
         String startCommit = args[2];
         String endCommit = containsEndArgument(args) ? args[3] : null;
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             RefactoringDiscoveryJSONWriter writer = openWriter(null)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
+            RefactoringExtractorService service = createService();
             service.detectBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
                 @Override
                 public void handle(String startCommitId, String endCommitId, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, endCommitId, matchPair, refactorings);
+                    commitJSON(writer, gitURL, endCommitId, matchPair, refactorings);
                 }
 
                 @Override
@@ -137,13 +308,14 @@ public class ReExtractor {
         String startTag = args[2];
         String endTag = containsEndArgument(args) ? args[3] : null;
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             RefactoringDiscoveryJSONWriter writer = openWriter(null)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
+            RefactoringExtractorService service = createService();
             service.detectBetweenTags(repo, startTag, endTag, new RefactoringHandler() {
                 @Override
                 public void handle(String startTag, String endTag, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, endTag, matchPair, refactorings);
+                    commitJSON(writer, gitURL, endTag, matchPair, refactorings);
                 }
 
                 @Override
@@ -164,27 +336,12 @@ public class ReExtractor {
         String startCommit = args[2];
         String endCommit = containsEndArgument(args) ? args[3] : null;
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             MiningJournal journal = openJournal();
+             RefactoringDiscoveryJSONWriter writer = openWriter(journal)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
-            service.detectAllBetweenCommits(repo, startCommit, endCommit, new RefactoringHandler() {
-                @Override
-                public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, commitId, matchPair, refactorings);
-                }
-
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-                            commitsCount, errorCommitsCount, refactoringsCount));
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
+            RefactoringExtractorService service = createService();
+            service.detectAllBetweenCommits(repo, startCommit, endCommit, new CommitHandler(gitURL, journal, writer));
         }
     }
 
@@ -197,32 +354,17 @@ public class ReExtractor {
         String startTag = args[2];
         String endTag = containsEndArgument(args) ? args[3] : null;
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             MiningJournal journal = openJournal();
+             RefactoringDiscoveryJSONWriter writer = openWriter(journal)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
-            service.detectAllBetweenTags(repo, startTag, endTag, new RefactoringHandler() {
-                @Override
-                public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, commitId, matchPair, refactorings);
-                }
-
-                @Override
-                public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
-                    System.out.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
-                            commitsCount, errorCommitsCount, refactoringsCount));
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
+            RefactoringExtractorService service = createService();
+            service.detectAllBetweenTags(repo, startTag, endTag, new CommitHandler(gitURL, journal, writer));
         }
     }
 
     private static boolean containsEndArgument(String[] args) {
-        return args.length == 4 || (args.length > 4 && args[4].equalsIgnoreCase("-json"));
+        return args.length == 4 || (args.length > 4 && isJSONOption(args[4]));
     }
 
     public static void detectAtCommit(String[] args) throws Exception {
@@ -233,57 +375,178 @@ public class ReExtractor {
         String folder = args[1];
         String commitId = args[2];
         GitService gitService = new GitServiceImpl();
-        try (Repository repo = gitService.openRepository(folder)) {
+        try (Repository repo = gitService.openRepository(folder);
+             RefactoringDiscoveryJSONWriter writer = openWriter(null)) {
             String gitURL = GitServiceImpl.getRemoteUrl(folder);
-            RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
-            service.detectAtCommit(repo, commitId, new RefactoringHandler() {
-                @Override
-                public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, commitId, matchPair, refactorings);
-                }
-
-                @Override
-                public void handleException(String commit, Exception e) {
-                    System.err.println("Error processing commit " + commit);
-                    e.printStackTrace(System.err);
-                }
-            });
+            RefactoringExtractorService service = createService();
+            service.detectAtCommit(repo, commitId, new CommitHandler(gitURL, null, writer));
         }
     }
 
-    private static void commitJSON(String cloneURL, String currentCommitId, MatchPair matchPair, List<Refactoring> refactorings) {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
+    private static void commitJSON(RefactoringDiscoveryJSONWriter writer, String cloneURL, String currentCommitId,
+                                   MatchPair matchPair, List<Refactoring> refactorings) {
+        commitJSON(writer, cloneURL, currentCommitId, matchPair, refactorings, null);
+    }
+
+    private static void commitJSON(RefactoringDiscoveryJSONWriter writer, String cloneURL, String currentCommitId,
+                                   MatchPair matchPair, List<Refactoring> refactorings, RefactoringResultCache cache) {
         String url = cloneURL.replace(".git", "/commit/") + currentCommitId;
-        if (Files.notExists(path)) {
-            Path parent = path.getParent();
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        String json = null;
+        try {
+            if (cache == null) {
+                writer.write(cloneURL, currentCommitId, url, matchPair, refactorings);
+            } else {
+                json = writer.toJSON(cloneURL, currentCommitId, url, matchPair, refactorings);
+                writer.write(json);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        commitEvent(event, currentCommitId, false);
+        if (json != null) {
             try {
-                if (Files.notExists(parent)) {
-                    Files.createDirectories(parent);
-                }
-                Files.createFile(path);
+                cache.put(currentCommitId, json);
+            } catch (IOException e) {
+                System.err.println("Error caching commit " + currentCommitId);
+                e.printStackTrace(System.err);
+            }
+        }
+    }
+
+    private static void commitEvent(SerializationEvent event, String commitId, boolean cached) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.commitId = commitId;
+            event.cached = cached;
+            event.commit();
+        }
+    }
+
+    private static RefactoringResultCache openCache(String cloneURL) {
+        if (cacheDirectory == null)
+            return null;
+        if (RefactoringResultCache.getVersion() == null) {
+            System.err.println("The -cache directory is not used: the version of ReExtractor is not known");
+            return null;
+        }
+        // everything besides the commit and the version the written results depend on; a cached result is not
+        // added to the -store directory, so the results written with another store are not reused
+        Path storeDirectory = contentStore == null ? null : contentStore.getDirectory();
+        String configuration = "repository=" + cloneURL + ";treeless=" + treeless + ";blobids=" + (contentStore != null) +
+                ";store=" + (storeDirectory == null ? null : storeDirectory.toAbsolutePath().normalize()) +
+                ";skipcosmetic=" + skipCosmetic + ";paths=" + pathFilter +
+                ";types=" + refactoringTypes + ";disabled=" + disabledDetectors;
+        try {
+            return new RefactoringResultCache(cacheDirectory, cacheSize * 1024 * 1024, configuration);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the result of each analyzed commit, and takes the results of the commits analyzed by a previous run
+     * from the -cache directory instead of analyzing them again. With a journal, each written result is
+     * checkpointed and the commits completed by an interrupted run are skipped.
+     */
+    private static class CommitHandler extends RefactoringHandler {
+
+        private final String cloneURL;
+        private final MiningJournal journal;
+        private final RefactoringDiscoveryJSONWriter writer;
+        private final RefactoringResultCache cache;
+        private final Map<String, String> cachedResults = new HashMap<>();
+
+        private CommitHandler(String cloneURL, MiningJournal journal, RefactoringDiscoveryJSONWriter writer) {
+            this.cloneURL = cloneURL;
+            this.journal = journal;
+            this.writer = writer;
+            this.cache = openCache(cloneURL);
+        }
+
+        @Override
+        public boolean skipCommit(String commitId) {
+            if (journal != null && journal.isCompleted(commitId))
+                return true;
+            if (cache == null)
+                return false;
+            try {
+                String json = cache.get(commitId);
+                if (json == null)
+                    return false;
+                cachedResults.put(commitId, json);
+                return true;
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-            try (BufferedWriter out = new BufferedWriter(new FileWriter(path.toFile()))) {
-                RefactoringDiscoveryJSON results = new RefactoringDiscoveryJSON();
-                results.populateJSON(cloneURL, currentCommitId, url, matchPair, refactorings);
-                String jsonString = gson.toJson(results, RefactoringDiscoveryJSON.class);
-                out.write(jsonString);
+        }
+
+        @Override
+        public void handleSkipped(String commitId) {
+            String json = cachedResults.remove(commitId);
+            if (json == null)
+                return;
+            try {
+                SerializationEvent event = new SerializationEvent();
+                event.begin();
+                writer.write(json);
+                commitEvent(event, commitId, true);
+                if (journal != null)
+                    journal.skip(commitId, Files.size(path));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        } else {
-            try (FileReader reader = new FileReader(path.toFile())) {
-                RefactoringDiscoveryJSON results = gson.fromJson(reader, RefactoringDiscoveryJSON.class);
-                results.populateJSON(cloneURL, currentCommitId, url, matchPair, refactorings);
-                String jsonString = gson.toJson(results, RefactoringDiscoveryJSON.class);
-                BufferedWriter out = new BufferedWriter(new FileWriter(path.toFile()));
-                out.write(jsonString);
-                out.close();
+        }
+
+        @Override
+        public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
+            commitJSON(writer, cloneURL, commitId, matchPair, refactorings, cache);
+            try {
+                if (journal != null)
+                    journal.commit(commitId, Files.size(path), refactorings.size());
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
+
+        @Override
+        public void handleException(String commit, Exception e) {
+            System.err.println("Error processing commit " + commit);
+            e.printStackTrace(System.err);
+            try {
+                if (journal != null)
+                    journal.error(commit, Files.size(path));
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        @Override
+        public void handleProfile(String commitId, CommitProfile commitProfile) {
+            if (profile) {
+                System.err.println("Profile of commit " + commitId + ": " + commitProfile);
+            }
+        }
+
+        @Override
+        public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount, ProfileSummary summary) {
+            // the counts of an interrupted run are carried over by its journal
+            if (journal != null) {
+                refactoringsCount += journal.getRefactoringsCount();
+                commitsCount += journal.getCommitsCount();
+                errorCommitsCount += journal.getErrorCommitsCount();
+            }
+            // without -json or -jsonl the results are streamed to the standard output, which must stay a JSON document
+            PrintStream console = path == null ? System.err : System.out;
+            console.println(String.format("Total count: [Commits: %d, Errors: %d, Refactorings: %d]",
+                    commitsCount, errorCommitsCount, refactoringsCount));
+            if (profile) {
+                console.println(summary);
+                for (DetectorStatistics statistics : detectorRegistry.getStatistics())
+                    console.println(statistics);
+            }
+        }
     }
 
     private static void printTips() {
@@ -300,6 +563,48 @@ public class ReExtractor {
                 "-bt <git-repo-folder> <start-tag> <end-tag> -json <path-to-json-file>\t\t\tDetect refactorings between <start-tag> and <end-tag> for project <git-repo-folder>");
         System.out.println(
                 "-c <git-repo-folder> <commit-sha1> -json <path-to-json-file>\t\t\t\tDetect refactorings at specified commit <commit-sha1> for project <git-repo-folder>");
+        System.out.println(
+                "-jsonl <path-to-jsonl-file>\t\t\t\t\t\t\t\tUse instead of -json to write one result per line (JSON Lines)");
+        System.out.println(
+                "-threads <n>\t\t\t\t\t\t\t\t\tAnalyze commits on <n> worker threads with -a, -ac and -at (default: 1)");
+        System.out.println(
+                "-unordered\t\t\t\t\t\t\t\t\tWrite the results of -threads as soon as each commit is analyzed instead of in commit order");
+        System.out.println(
+                "-paralleldetection\t\t\t\t\t\t\t\tRun the detectors of each commit concurrently, to analyze a large commit faster");
+        System.out.println(
+                "-pipeline\t\t\t\t\t\t\t\t\tWith -treeless, read the files of the next commits while the current ones are analyzed");
+        System.out.println(
+                "-blobids\t\t\t\t\t\t\t\t\tWrite the git blob IDs of the changed files instead of their contents");
+        System.out.println(
+                "-store <directory>\t\t\t\t\t\t\t\tLike -blobids, and store each distinct file version once in <directory>");
+        System.out.println(
+                "-timeout <seconds>\t\t\t\t\t\t\t\tGive up the analysis of a commit after <seconds> and report it as an error");
+        System.out.println(
+                "-types <type>,<type>,...\t\t\t\t\t\t\tOnly detect refactorings of the given types, e.g. RENAME_METHOD,MOVE_CLASS,EXTRACT_OPERATION");
+        System.out.println(
+                "-disable <detector>,<detector>,...\t\t\t\t\t\t\tDo not run the given detectors (their names are printed by -profile)");
+        System.out.println(
+                "-include <glob>\t\t\t\t\t\t\t\tOnly analyze the Java files whose path matches <glob>, e.g. src/main/** (repeatable)");
+        System.out.println(
+                "-exclude <glob>\t\t\t\t\t\t\t\tDo not analyze the Java files whose path matches <glob>, e.g. **/generated/** (repeatable)");
+        System.out.println(
+                "-skipgenerated\t\t\t\t\t\t\t\t\tDo not analyze Java files with a @Generated annotation or a DO NOT EDIT header");
+        System.out.println(
+                "-maxfilesize <kilobytes>\t\t\t\t\t\t\tDo not analyze Java files larger than <kilobytes>");
+        System.out.println(
+                "-skipcosmetic\t\t\t\t\t\t\t\t\tGive an empty result to commits that only change comments or whitespace in Java files, without analyzing them");
+        System.out.println(
+                "-profile\t\t\t\t\t\t\t\t\tPrint the time spent in each phase of the analysis of each commit, and their totals at the end");
+        System.out.println(
+                "-jmx\t\t\t\t\t\t\t\t\t\tExpose the progress of the run as the JMX MBean org.reextractor:type=MiningMetrics");
+        System.out.println(
+                "-resume\t\t\t\t\t\t\t\t\tResume an interrupted -a, -ac or -at run from the checkpoint journal written next to its -json or -jsonl file");
+        System.out.println(
+                "-cache <directory>\t\t\t\t\t\t\t\tReuse the results of commits analyzed before with -a, -ac, -at and -c, and cache the new ones in <directory>");
+        System.out.println(
+                "-cachesize <megabytes>\t\t\t\t\t\t\t\tEvict the least recently used results once -cache exceeds <megabytes> (default: 1024)");
+        System.out.println(
+                "-treeless\t\t\t\t\t\t\t\t\tRead the changed files from the object database instead of checking out <git-repo-folder>");
     }
 
     private static IllegalArgumentException argumentException() {
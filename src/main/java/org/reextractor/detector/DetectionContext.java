@@ -0,0 +1,60 @@
+package org.reextractor.detector;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.reextractor.dto.ChunkGrouping;
+import org.reextractor.dto.MatchedEntityIndex;
+import org.reextractor.dto.MatchedStatementIndex;
+import org.remapper.dto.MatchPair;
+import org.remapper.dto.MethodNode;
+
+import java.util.Set;
+
+/**
+ * The inputs of the detectors for one commit. The inputs that no detector of the commit declared are not computed,
+ * and asking for them is an IllegalStateException.
+ */
+public class DetectionContext {
+
+    private final MatchPair matchPair;
+    private final MatchedEntityIndex entityIndex;
+    private final MatchedStatementIndex statementIndex;
+    private final Set<Pair<MethodNode, MethodNode>> methodNodePairs;
+    private final ChunkGrouping chunkGrouping;
+
+    public DetectionContext(MatchPair matchPair, MatchedEntityIndex entityIndex, MatchedStatementIndex statementIndex,
+                            Set<Pair<MethodNode, MethodNode>> methodNodePairs, ChunkGrouping chunkGrouping) {
+        this.matchPair = matchPair;
+        this.entityIndex = entityIndex;
+        this.statementIndex = statementIndex;
+        this.methodNodePairs = methodNodePairs;
+        this.chunkGrouping = chunkGrouping;
+    }
+
+    public MatchPair getMatchPair() {
+        return matchPair;
+    }
+
+    public MatchedEntityIndex getEntityIndex() {
+        return entityIndex;
+    }
+
+    public MatchedStatementIndex getStatementIndex() {
+        if (statementIndex == null)
+            throw new IllegalStateException("No detector declared the input " + RefactoringDetector.Input.STATEMENTS);
+        return statementIndex;
+    }
+
+    public Set<Pair<MethodNode, MethodNode>> getMethodNodePairs() {
+        if (methodNodePairs == null)
+            throw new IllegalStateException("No detector declared the input " + RefactoringDetector.Input.METHOD_PAIRS);
+        return methodNodePairs;
+    }
+
+    /**
+     * @return the grouping of the entities and statements into chunks, or null if the detectors run one after the
+     * other.
+     */
+    public ChunkGrouping getChunkGrouping() {
+        return chunkGrouping;
+    }
+}
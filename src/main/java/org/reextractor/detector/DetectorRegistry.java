@@ -0,0 +1,125 @@
+package org.reextractor.detector;
+
+import org.reextractor.refactoring.Refactoring;
+import org.reextractor.util.TaskUsage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The detectors of a service, in the order they run: the built-in ones, then those found by
+ * {@link ServiceLoader}, then those registered later. Each detector can be disabled by name, and the registry
+ * records how many times each one ran, how many refactorings it found, the time it took, and the memory it
+ * allocated on the thread that ran it and on the threads of the tasks it ran in parallel.
+ */
+public class DetectorRegistry {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationThreads();
+
+    private final List<RefactoringDetector> detectors = new CopyOnWriteArrayList<>();
+    private final Set<String> disabledDetectors = ConcurrentHashMap.newKeySet();
+    private final Map<String, Cost> costs = new ConcurrentHashMap<>();
+
+    public DetectorRegistry(List<? extends RefactoringDetector> builtInDetectors) {
+        for (RefactoringDetector detector : builtInDetectors)
+            register(detector);
+        for (RefactoringDetector detector : ServiceLoader.load(RefactoringDetector.class))
+            register(detector);
+    }
+
+    public void register(RefactoringDetector detector) {
+        if (costs.putIfAbsent(detector.getName(), new Cost()) != null)
+            throw new IllegalArgumentException("A detector is already registered as " + detector.getName());
+        detectors.add(detector);
+    }
+
+    public List<RefactoringDetector> getDetectors() {
+        return Collections.unmodifiableList(detectors);
+    }
+
+    public List<RefactoringDetector> getEnabledDetectors() {
+        List<RefactoringDetector> enabledDetectors = new ArrayList<>(detectors.size());
+        for (RefactoringDetector detector : detectors) {
+            if (!disabledDetectors.contains(detector.getName()))
+                enabledDetectors.add(detector);
+        }
+        return enabledDetectors;
+    }
+
+    public boolean isEnabled(String name) {
+        return !disabledDetectors.contains(name);
+    }
+
+    /**
+     * Enable or disable a detector, e.g. one that is too slow on a repository. Detectors are enabled by default.
+     */
+    public void setEnabled(String name, boolean enabled) {
+        if (!costs.containsKey(name))
+            throw new IllegalArgumentException("No detector is registered as " + name);
+        if (enabled)
+            disabledDetectors.remove(name);
+        else
+            disabledDetectors.add(name);
+    }
+
+    /**
+     * Run a detector of the registry and record what it cost.
+     */
+    public void detect(RefactoringDetector detector, DetectionContext context, List<Refactoring> refactorings) {
+        Cost cost = costs.get(detector.getName());
+        int size = refactorings.size();
+        TaskUsage tasks = TaskUsage.start();
+        long allocatedBytes = allocatedBytes();
+        long wallTime = System.nanoTime();
+        try {
+            detector.detect(context, refactorings);
+        } finally {
+            tasks.stop();
+            cost.wallTime.add(System.nanoTime() - wallTime);
+            if (allocatedBytes >= 0)
+                cost.allocatedBytes.add(allocatedBytes() - allocatedBytes + Math.max(0, tasks.getAllocatedBytes()));
+            cost.refactorings.add(refactorings.size() - size);
+            cost.invocations.increment();
+        }
+    }
+
+    /**
+     * @return the costs of the detectors, in the order they run.
+     */
+    public List<DetectorStatistics> getStatistics() {
+        List<DetectorStatistics> statistics = new ArrayList<>(detectors.size());
+        for (RefactoringDetector detector : detectors) {
+            Cost cost = costs.get(detector.getName());
+            statistics.add(new DetectorStatistics(detector.getName(), isEnabled(detector.getName()),
+                    cost.invocations.sum(), cost.refactorings.sum(), cost.wallTime.sum(),
+                    THREADS == null ? -1 : cost.allocatedBytes.sum()));
+        }
+        return statistics;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationThreads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationThreads = (com.sun.management.ThreadMXBean) threads;
+            if (allocationThreads.isThreadAllocatedMemorySupported() && allocationThreads.isThreadAllocatedMemoryEnabled())
+                return allocationThreads;
+        }
+        return null;
+    }
+
+    private static class Cost {
+
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder refactorings = new LongAdder();
+        private final LongAdder wallTime = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+    }
+}
@@ -0,0 +1,62 @@
+package org.reextractor.detector;
+
+/**
+ * What a detector has cost so far. Times are in nanoseconds; the allocated bytes are -1 if the JVM does not
+ * measure them.
+ */
+public class DetectorStatistics {
+
+    private final String name;
+    private final boolean enabled;
+    private final long invocations;
+    private final long refactorings;
+    private final long wallTime;
+    private final long allocatedBytes;
+
+    public DetectorStatistics(String name, boolean enabled, long invocations, long refactorings, long wallTime,
+                              long allocatedBytes) {
+        this.name = name;
+        this.enabled = enabled;
+        this.invocations = invocations;
+        this.refactorings = refactorings;
+        this.wallTime = wallTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * @return the number of refactorings the detector added, including those of types that were not selected.
+     */
+    public long getRefactorings() {
+        return refactorings;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%s%s: %d invocations, %d refactorings, %d ms", name, enabled ? "" : " (disabled)",
+                invocations, refactorings, wallTime / 1_000_000));
+        if (allocatedBytes >= 0)
+            builder.append(String.format(", %d MB allocated", allocatedBytes / (1024 * 1024)));
+        return builder.toString();
+    }
+}
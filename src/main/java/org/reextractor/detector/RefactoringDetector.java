@@ -0,0 +1,59 @@
+package org.reextractor.detector;
+
+import org.reextractor.refactoring.Refactoring;
+import org.reextractor.refactoring.RefactoringType;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * A detector of refactorings in the entities and statements matched between two versions. Besides the built-in
+ * detectors, the implementations listed in {@code META-INF/services/org.reextractor.detector.RefactoringDetector}
+ * are loaded with {@link java.util.ServiceLoader} and run after them. A detector may be called from several
+ * threads at once, each with the context of a different commit.
+ */
+public interface RefactoringDetector {
+
+    /**
+     * The inputs a detector reads from its {@link DetectionContext}. Those no detector needs are not computed.
+     */
+    enum Input {
+        /**
+         * The matched, added and deleted entities, and the index of the matched ones.
+         */
+        ENTITIES,
+        /**
+         * The index of the matched statements.
+         */
+        STATEMENTS,
+        /**
+         * The pairs of method bodies whose statements can be compared: those of matched methods, and those of an
+         * inlined (extracted) method and the matched method it was inlined into (extracted from).
+         */
+        METHOD_PAIRS,
+        /**
+         * The refactorings found by the detectors that ran before, in the list passed to
+         * {@link #detect(DetectionContext, List)}. Without it, the list may not hold them, e.g. when the detectors
+         * run concurrently.
+         */
+        REFACTORINGS
+    }
+
+    /**
+     * @return the name of the detector, unique in its registry.
+     */
+    String getName();
+
+    /**
+     * @return the types of the refactorings the detector can produce.
+     */
+    EnumSet<RefactoringType> getRefactoringTypes();
+
+    EnumSet<Input> getInputs();
+
+    /**
+     * Add the detected refactorings to the list, which holds those of the detectors that ran before if the detector
+     * declared the input {@link Input#REFACTORINGS}.
+     */
+    void detect(DetectionContext context, List<Refactoring> refactorings);
+}
@@ -0,0 +1,120 @@
+package org.reextractor.dto;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.remapper.dto.*;
+
+import java.util.*;
+
+/**
+ * Groups the linked entities of a commit for parallel detection: the groups decide how the detectors split their
+ * items into chunks that run concurrently. An entity is linked to its parent up to the top-level type of its file, to
+ * the entities it depends on, to the entity it is matched with, to the entities of the objects it introduces, and to
+ * the methods whose bodies are compared with its own. A statement belongs to the group of its method. The items of a group run in the same chunk and in their order.
+ * This is only a grouping: the detectors of every chunk still look up the indexes of the whole commit, so the memory
+ * of the detection is the same as without chunks, and some of them relate entities through type bindings that no
+ * link captures.
+ */
+public class ChunkGrouping {
+
+    private final Map<DeclarationNodeTree, DeclarationNodeTree> parents = new IdentityHashMap<>();
+    private final Map<EntityInfo, DeclarationNodeTree> entities = new HashMap<>();
+    private final Map<DeclarationNodeTree, DeclarationNodeTree> groups = new IdentityHashMap<>();
+    private final int groupsCount;
+
+    /**
+     * @param methodNodePairs The pairs of method bodies that are compared, or null if they are not known.
+     */
+    public ChunkGrouping(MatchPair matchPair, Set<Pair<MethodNode, MethodNode>> methodNodePairs) {
+        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchPair.getMatchedEntities())
+            link(pair.getLeft(), pair.getRight());
+        for (DeclarationNodeTree entity : matchPair.getAddedEntities())
+            add(entity);
+        for (DeclarationNodeTree entity : matchPair.getDeletedEntities())
+            add(entity);
+        for (Map.Entry<DeclarationNodeTree, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>>> entry : matchPair.getIntroducedObjects().entrySet()) {
+            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entry.getValue()) {
+                link(entry.getKey(), pair.getLeft());
+                link(entry.getKey(), pair.getRight());
+            }
+            add(entry.getKey());
+        }
+        if (methodNodePairs != null) {
+            for (Pair<MethodNode, MethodNode> pair : methodNodePairs)
+                link(pair.getLeft().getMethodEntity(), pair.getRight().getMethodEntity());
+        }
+        for (DeclarationNodeTree entity : new ArrayList<>(parents.keySet())) {
+            List<EntityInfo> dependencies = entity.getDependencies();
+            if (dependencies == null)
+                continue;
+            for (EntityInfo dependency : dependencies) {
+                DeclarationNodeTree dependedEntity = entities.get(dependency);
+                if (dependedEntity != null)
+                    link(entity, dependedEntity);
+            }
+        }
+        Set<DeclarationNodeTree> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DeclarationNodeTree entity : parents.keySet()) {
+            DeclarationNodeTree root = root(entity);
+            groups.put(entity, root);
+            roots.add(root);
+        }
+        this.groupsCount = roots.size();
+    }
+
+    /**
+     * @return an entity that stands for the group of the entity; the entities of the same group get the same one.
+     */
+    public DeclarationNodeTree getGroup(DeclarationNodeTree entity) {
+        DeclarationNodeTree group = groups.get(entity);
+        return group == null ? entity : group;
+    }
+
+    /**
+     * @return an entity that stands for the group of the method of the statement.
+     */
+    public DeclarationNodeTree getGroup(StatementNodeTree statement) {
+        return getGroup(statement.getRoot().getMethodEntity());
+    }
+
+    public int getGroupsCount() {
+        return groupsCount;
+    }
+
+    private void add(DeclarationNodeTree entity) {
+        if (parents.containsKey(entity))
+            return;
+        parents.put(entity, entity);
+        if (entity.getEntity() != null)
+            entities.putIfAbsent(entity.getEntity(), entity);
+        DeclarationNodeTree parent = entity.getParent();
+        // the root of a file does not link its top-level types
+        if (parent != null && parent.getDeclaration() != null && !(parent.getDeclaration() instanceof CompilationUnit)) {
+            add(parent);
+            parents.put(entity, root(parent));
+        }
+    }
+
+    private void link(DeclarationNodeTree entity, DeclarationNodeTree anotherEntity) {
+        if (entity == null || anotherEntity == null)
+            return;
+        add(entity);
+        add(anotherEntity);
+        DeclarationNodeTree root = root(entity);
+        DeclarationNodeTree anotherRoot = root(anotherEntity);
+        if (root != anotherRoot)
+            parents.put(root, anotherRoot);
+    }
+
+    private DeclarationNodeTree root(DeclarationNodeTree entity) {
+        DeclarationNodeTree root = entity;
+        while (parents.get(root) != root)
+            root = parents.get(root);
+        while (entity != root) {
+            DeclarationNodeTree parent = parents.get(entity);
+            parents.put(entity, root);
+            entity = parent;
+        }
+        return root;
+    }
+}
@@ -0,0 +1,238 @@
+package org.reextractor.dto;
+
+import org.reextractor.jfr.CommitEvent;
+import org.reextractor.jfr.PhaseEvent;
+import org.remapper.dto.MatchPair;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The time spent in each phase of the analysis of a commit, and the size of the commit in matched, added and
+ * deleted entities and statements. The phases are timed one after the other, like the laps of a stopwatch, by the
+ * thread that analyzes the commit; the CPU time of a phase includes that of the tasks it ran on other threads, when
+ * they are {@link #addCpuTime(long) added}. Times are in nanoseconds; the CPU time is -1 if the JVM does not measure it.
+ * The commit and each phase are also recorded as Java Flight Recorder events when a recording is running.
+ */
+public class CommitProfile {
+
+    public static final String FILTERING = "filtering";
+    public static final String READING = "reading";
+    public static final String MATCHING = "matching";
+    public static final String INDEXING = "indexing";
+    public static final String DETECTION = "detection";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+    private final String commitId;
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final CommitEvent commitEvent = new CommitEvent();
+    private PhaseEvent phaseEvent;
+    private boolean ended;
+    private long wallTime;
+    private long cpuTime;
+    private long tasksCpuTime;
+    private int changedFiles = -1;
+    private int refactoringsCount;
+    private int matchedEntities;
+    private int addedEntities;
+    private int deletedEntities;
+    private int matchedStatements;
+    private int addedStatements;
+    private int deletedStatements;
+
+    public CommitProfile() {
+        this(null);
+    }
+
+    public CommitProfile(String commitId) {
+        this.commitId = commitId;
+        commitEvent.begin();
+        start();
+    }
+
+    /**
+     * Start the next phase now, e.g. after a pause that should not be counted in any phase.
+     */
+    public void start() {
+        wallTime = System.nanoTime();
+        cpuTime = cpuTime();
+        tasksCpuTime = 0;
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+    }
+
+    /**
+     * End the current phase and start the next one. The time of a phase that is ended several times is summed.
+     */
+    public void lap(String phase) {
+        long wallTime = System.nanoTime();
+        long cpuTime = cpuTime();
+        long[] times = phases.computeIfAbsent(phase, key -> new long[2]);
+        times[0] += wallTime - this.wallTime;
+        times[1] = CPU_TIME ? times[1] + cpuTime - this.cpuTime + tasksCpuTime : -1;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.tasksCpuTime = 0;
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.commitId = commitId;
+            phaseEvent.phase = phase;
+            phaseEvent.commit();
+        }
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+    }
+
+    /**
+     * End the analysis of the commit. Only the first call has an effect.
+     */
+    public void end() {
+        if (ended)
+            return;
+        ended = true;
+        commitEvent.end();
+        if (commitEvent.shouldCommit()) {
+            commitEvent.commitId = commitId;
+            commitEvent.changedFiles = changedFiles;
+            commitEvent.matchedEntities = matchedEntities;
+            commitEvent.addedEntities = addedEntities;
+            commitEvent.deletedEntities = deletedEntities;
+            commitEvent.matchedStatements = matchedStatements;
+            commitEvent.addedStatements = addedStatements;
+            commitEvent.deletedStatements = deletedStatements;
+            commitEvent.refactorings = refactoringsCount;
+            commitEvent.commit();
+        }
+    }
+
+    /**
+     * Add the CPU time that the current phase spent on other threads, e.g. in the tasks of a parallel detection (see
+     * {@link org.reextractor.util.TaskUsage}).
+     */
+    public void addCpuTime(long cpuTime) {
+        if (cpuTime > 0)
+            tasksCpuTime += cpuTime;
+    }
+
+    /**
+     * Add the phases of a part of the analysis that was profiled apart, e.g. on another thread, and its number of
+     * changed Java files, if it knows it.
+     */
+    public void add(CommitProfile profile) {
+        for (Map.Entry<String, long[]> phase : profile.phases.entrySet()) {
+            long[] times = phases.computeIfAbsent(phase.getKey(), key -> new long[2]);
+            times[0] += phase.getValue()[0];
+            times[1] = times[1] < 0 || phase.getValue()[1] < 0 ? -1 : times[1] + phase.getValue()[1];
+        }
+        if (profile.changedFiles >= 0)
+            changedFiles = profile.changedFiles;
+    }
+
+    public void count(MatchPair matchPair) {
+        matchedEntities = matchPair.getMatchedEntities().size();
+        addedEntities = matchPair.getAddedEntities().size();
+        deletedEntities = matchPair.getDeletedEntities().size();
+        matchedStatements = matchPair.getMatchedStatements().size();
+        addedStatements = matchPair.getAddedStatements().size();
+        deletedStatements = matchPair.getDeletedStatements().size();
+    }
+
+    public void setChangedFiles(int changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
+    public void setRefactoringsCount(int refactoringsCount) {
+        this.refactoringsCount = refactoringsCount;
+    }
+
+    /**
+     * @return the phases in the order in which they were first ended.
+     */
+    public Iterable<String> getPhases() {
+        return Collections.unmodifiableSet(phases.keySet());
+    }
+
+    public long getWallTime(String phase) {
+        long[] times = phases.get(phase);
+        return times == null ? 0 : times[0];
+    }
+
+    public long getCpuTime(String phase) {
+        long[] times = phases.get(phase);
+        return times == null ? 0 : times[1];
+    }
+
+    /**
+     * @return the wall time of all phases.
+     */
+    public long getWallTime() {
+        long wallTime = 0;
+        for (long[] times : phases.values())
+            wallTime += times[0];
+        return wallTime;
+    }
+
+    public String getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * @return the number of changed Java files, or -1 if it is not known (when the matcher checks out the commit).
+     */
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getRefactoringsCount() {
+        return refactoringsCount;
+    }
+
+    public int getMatchedEntities() {
+        return matchedEntities;
+    }
+
+    public int getAddedEntities() {
+        return addedEntities;
+    }
+
+    public int getDeletedEntities() {
+        return deletedEntities;
+    }
+
+    public int getMatchedStatements() {
+        return matchedStatements;
+    }
+
+    public int getAddedStatements() {
+        return addedStatements;
+    }
+
+    public int getDeletedStatements() {
+        return deletedStatements;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (changedFiles >= 0)
+            builder.append("files: ").append(changedFiles).append(", ");
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            builder.append(phase.getKey()).append(": ").append(phase.getValue()[0] / 1_000_000).append(" ms");
+            if (phase.getValue()[1] >= 0)
+                builder.append(" (CPU ").append(phase.getValue()[1] / 1_000_000).append(" ms)");
+            builder.append(", ");
+        }
+        builder.append(String.format("entities: [Matched: %d, Added: %d, Deleted: %d], statements: [Matched: %d, Added: %d, Deleted: %d]",
+                matchedEntities, addedEntities, deletedEntities, matchedStatements, addedStatements, deletedStatements));
+        return builder.toString();
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+}
@@ -0,0 +1,72 @@
+package org.reextractor.dto;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * A content-addressed store of file versions. Each content is identified by its git blob ID, so a version
+ * that is shared by many commits is stored only once and, for UTF-8 sources, can also be read back from the
+ * repository itself (e.g. with {@code git cat-file blob <id>}). Without a directory, the store only computes
+ * the IDs.
+ */
+public class FileContentStore {
+
+    private final Path directory;
+    private final ObjectInserter.Formatter formatter = new ObjectInserter.Formatter();
+
+    public FileContentStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory of the store, or null if the store only computes the IDs.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the blob ID of the content, or null if the content is null.
+     */
+    public String put(String content) throws IOException {
+        if (content == null)
+            return null;
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String id = formatter.idFor(Constants.OBJ_BLOB, bytes).name();
+        if (directory != null) {
+            Path file = getPath(id);
+            if (Files.notExists(file)) {
+                Files.createDirectories(file.getParent());
+                Path temp = Files.createTempFile(file.getParent(), id, ".tmp");
+                try {
+                    Files.write(temp, bytes);
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException ignored) {
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @return the content stored with the given blob ID, or null if it is not in the store.
+     */
+    public String get(String id) throws IOException {
+        if (directory == null || id == null)
+            return null;
+        Path file = getPath(id);
+        if (Files.notExists(file))
+            return null;
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+
+    private Path getPath(String id) {
+        return directory.resolve(id.substring(0, 2)).resolve(id.substring(2));
+    }
+}
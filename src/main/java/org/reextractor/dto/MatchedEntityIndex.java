@@ -0,0 +1,85 @@
+package org.reextractor.dto;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.remapper.dto.DeclarationNodeTree;
+import org.remapper.dto.EntityType;
+
+import java.util.*;
+
+/**
+ * Lookup structures over the matched entities of a commit, built once so that the detectors do not have to
+ * scan all matched entities for every candidate. The lists preserve the iteration order of the matched entities.
+ */
+public class MatchedEntityIndex {
+
+    private final Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities;
+    private final Map<DeclarationNodeTree, DeclarationNodeTree> leftToRight = new IdentityHashMap<>();
+    private final Map<DeclarationNodeTree, DeclarationNodeTree> rightToLeft = new IdentityHashMap<>();
+    private final Map<DeclarationNodeTree, DeclarationNodeTree> counterparts = new IdentityHashMap<>();
+    private final Map<Pair<DeclarationNodeTree, DeclarationNodeTree>, Integer> ordinals = new IdentityHashMap<>();
+    private final Map<EntityType, List<Pair<DeclarationNodeTree, DeclarationNodeTree>>> pairsByType = new EnumMap<>(EntityType.class);
+    private final Map<EntityType, List<Pair<DeclarationNodeTree, DeclarationNodeTree>>> pairsByRightType = new EnumMap<>(EntityType.class);
+
+    public MatchedEntityIndex(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities) {
+        this.matchedEntities = matchedEntities;
+        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
+            DeclarationNodeTree left = pair.getLeft();
+            DeclarationNodeTree right = pair.getRight();
+            ordinals.put(pair, ordinals.size());
+            leftToRight.putIfAbsent(left, right);
+            rightToLeft.putIfAbsent(right, left);
+            counterparts.putIfAbsent(left, right);
+            counterparts.putIfAbsent(right, left);
+            if (left.getType() == right.getType())
+                pairsByType.computeIfAbsent(left.getType(), type -> new ArrayList<>()).add(pair);
+            pairsByRightType.computeIfAbsent(right.getType(), type -> new ArrayList<>()).add(pair);
+        }
+    }
+
+    public Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> getMatchedEntities() {
+        return matchedEntities;
+    }
+
+    public boolean contains(DeclarationNodeTree left, DeclarationNodeTree right) {
+        return matchedEntities.contains(Pair.of(left, right));
+    }
+
+    /**
+     * @return the entity matched with the given entity of either version, or null if the entity is not matched.
+     */
+    public DeclarationNodeTree getMatchedEntity(DeclarationNodeTree entity) {
+        return counterparts.get(entity);
+    }
+
+    public DeclarationNodeTree getRight(DeclarationNodeTree left) {
+        return leftToRight.get(left);
+    }
+
+    public DeclarationNodeTree getLeft(DeclarationNodeTree right) {
+        return rightToLeft.get(right);
+    }
+
+    /**
+     * @return the matched pairs whose both entities are of the given type.
+     */
+    public List<Pair<DeclarationNodeTree, DeclarationNodeTree>> getPairs(EntityType type) {
+        return pairsByType.getOrDefault(type, Collections.emptyList());
+    }
+
+    public List<Pair<DeclarationNodeTree, DeclarationNodeTree>> getMethodPairs() {
+        return getPairs(EntityType.METHOD);
+    }
+
+    /**
+     * @return the matched pairs whose entity of the next version is of one of the given types.
+     */
+    public List<Pair<DeclarationNodeTree, DeclarationNodeTree>> getPairsByRightType(EntityType... types) {
+        if (types.length == 1)
+            return pairsByRightType.getOrDefault(types[0], Collections.emptyList());
+        List<Pair<DeclarationNodeTree, DeclarationNodeTree>> pairs = new ArrayList<>();
+        for (EntityType type : types)
+            pairs.addAll(pairsByRightType.getOrDefault(type, Collections.emptyList()));
+        pairs.sort(Comparator.comparingInt(ordinals::get));
+        return pairs;
+    }
+}
@@ -0,0 +1,80 @@
+package org.reextractor.dto;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.remapper.dto.DeclarationNodeTree;
+import org.remapper.dto.MethodNode;
+import org.remapper.dto.StatementNodeTree;
+
+import java.util.*;
+
+/**
+ * Lookup structures over the matched statements of a commit, built once so that the detectors do not have to
+ * scan all matched statements to find the pairs of a method or of a statement. The lists preserve the iteration
+ * order of the matched statements.
+ */
+public class MatchedStatementIndex {
+
+    private final Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements;
+    private final Map<MethodNode, Map<MethodNode, List<Pair<StatementNodeTree, StatementNodeTree>>>> pairsByRoots = new IdentityHashMap<>();
+    private final Map<DeclarationNodeTree, Map<DeclarationNodeTree, List<Pair<StatementNodeTree, StatementNodeTree>>>> pairsByEntities = new IdentityHashMap<>();
+    private final Map<StatementNodeTree, List<Pair<StatementNodeTree, StatementNodeTree>>> pairsByLeft = new IdentityHashMap<>();
+    private final Map<StatementNodeTree, List<Pair<StatementNodeTree, StatementNodeTree>>> pairsByRight = new IdentityHashMap<>();
+
+    public MatchedStatementIndex(Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements) {
+        this.matchedStatements = matchedStatements;
+        for (Pair<StatementNodeTree, StatementNodeTree> pair : matchedStatements) {
+            StatementNodeTree left = pair.getLeft();
+            StatementNodeTree right = pair.getRight();
+            MethodNode leftRoot = left.getRoot();
+            MethodNode rightRoot = right.getRoot();
+            pairsByRoots.computeIfAbsent(leftRoot, root -> new IdentityHashMap<>())
+                    .computeIfAbsent(rightRoot, root -> new ArrayList<>()).add(pair);
+            pairsByEntities.computeIfAbsent(leftRoot.getMethodEntity(), entity -> new IdentityHashMap<>())
+                    .computeIfAbsent(rightRoot.getMethodEntity(), entity -> new ArrayList<>()).add(pair);
+            pairsByLeft.computeIfAbsent(left, statement -> new ArrayList<>(1)).add(pair);
+            pairsByRight.computeIfAbsent(right, statement -> new ArrayList<>(1)).add(pair);
+        }
+    }
+
+    public Set<Pair<StatementNodeTree, StatementNodeTree>> getMatchedStatements() {
+        return matchedStatements;
+    }
+
+    public boolean contains(StatementNodeTree left, StatementNodeTree right) {
+        return matchedStatements.contains(Pair.of(left, right));
+    }
+
+    /**
+     * @return the matched pairs whose statements belong to the given method nodes of the previous and next version.
+     */
+    public List<Pair<StatementNodeTree, StatementNodeTree>> getPairs(MethodNode leftRoot, MethodNode rightRoot) {
+        Map<MethodNode, List<Pair<StatementNodeTree, StatementNodeTree>>> pairs = pairsByRoots.get(leftRoot);
+        if (pairs == null)
+            return Collections.emptyList();
+        return pairs.getOrDefault(rightRoot, Collections.emptyList());
+    }
+
+    /**
+     * @return the matched pairs whose statements belong to the given methods of the previous and next version.
+     */
+    public List<Pair<StatementNodeTree, StatementNodeTree>> getPairs(DeclarationNodeTree leftEntity, DeclarationNodeTree rightEntity) {
+        Map<DeclarationNodeTree, List<Pair<StatementNodeTree, StatementNodeTree>>> pairs = pairsByEntities.get(leftEntity);
+        if (pairs == null)
+            return Collections.emptyList();
+        return pairs.getOrDefault(rightEntity, Collections.emptyList());
+    }
+
+    /**
+     * @return the matched pairs whose statement of the previous version is the given statement.
+     */
+    public List<Pair<StatementNodeTree, StatementNodeTree>> getPairsByLeft(StatementNodeTree left) {
+        return pairsByLeft.getOrDefault(left, Collections.emptyList());
+    }
+
+    /**
+     * @return the matched pairs whose statement of the next version is the given statement.
+     */
+    public List<Pair<StatementNodeTree, StatementNodeTree>> getPairsByRight(StatementNodeTree right) {
+        return pairsByRight.getOrDefault(right, Collections.emptyList());
+    }
+}
@@ -0,0 +1,153 @@
+package org.reextractor.dto;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A checkpoint journal of a history mining run. A line is appended after the result of each commit has been
+ * written, with the length of the output at that point, so an interrupted run can be resumed: the commits of the
+ * journal are skipped and the output is truncated to the length recorded last, dropping any partially written
+ * result. The counters of the journal are those the interrupted run would have passed to onFinish.
+ */
+public class MiningJournal implements Closeable {
+
+    private final Set<String> completedCommits = new HashSet<>();
+    private final Writer out;
+    private long offset = -1;
+    private int commitsCount;
+    private int errorCommitsCount;
+    private int refactoringsCount;
+
+    private MiningJournal(Path path, boolean resume) throws IOException {
+        if (resume && Files.exists(path))
+            read(path);
+        else
+            Files.deleteIfExists(path);
+        this.out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Open the journal stored in the given file. Unless the run is resumed, the previous journal is discarded.
+     */
+    public static MiningJournal open(Path path, boolean resume) throws IOException {
+        return new MiningJournal(path, resume);
+    }
+
+    /**
+     * @return whether the result of the commit was written before the last checkpoint.
+     */
+    public boolean isCompleted(String commitId) {
+        return completedCommits.contains(commitId);
+    }
+
+    /**
+     * @return the length of the output at the last checkpoint, or -1 if there is no checkpoint.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getCommitsCount() {
+        return commitsCount;
+    }
+
+    public int getErrorCommitsCount() {
+        return errorCommitsCount;
+    }
+
+    public int getRefactoringsCount() {
+        return refactoringsCount;
+    }
+
+    /**
+     * Record the length of the output before the first result is written.
+     */
+    public void start(long offset) throws IOException {
+        append("start " + offset);
+    }
+
+    /**
+     * Record that the result of an analyzed commit was written and the output has now the given length.
+     */
+    public void commit(String commitId, long offset, int refactorings) throws IOException {
+        append("commit " + commitId + " " + offset + " " + refactorings);
+    }
+
+    /**
+     * Record that the analysis of a commit failed.
+     */
+    public void error(String commitId, long offset) throws IOException {
+        append("error " + commitId + " " + offset);
+    }
+
+    /**
+     * Record that the result of a skipped commit (e.g. a cached one) was written.
+     */
+    public void skip(String commitId, long offset) throws IOException {
+        append("skip " + commitId + " " + offset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void append(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    // a line that is not terminated was being written when the run was interrupted, so it is dropped
+    private void read(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int length = bytes.length;
+        while (length > 0 && bytes[length - 1] != '\n')
+            length--;
+        List<String> lines = new String(bytes, 0, length, StandardCharsets.UTF_8).lines().toList();
+        try {
+            for (String line : lines) {
+                String[] fields = line.split(" ");
+                if (fields.length != getFieldsCount(fields[0]))
+                    throw new IOException("Not a mining journal: " + path);
+                if (fields[0].equals("start")) {
+                    offset = Long.parseLong(fields[1]);
+                    continue;
+                }
+                completedCommits.add(fields[1]);
+                offset = Long.parseLong(fields[2]);
+                if (fields[0].equals("commit")) {
+                    commitsCount++;
+                    refactoringsCount += Integer.parseInt(fields[3]);
+                } else if (fields[0].equals("error")) {
+                    commitsCount++;
+                    errorCommitsCount++;
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a mining journal: " + path, e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    // -1 for a line that is not written by the journal
+    private static int getFieldsCount(String type) {
+        if (type.equals("start"))
+            return 2;
+        if (type.equals("commit"))
+            return 4;
+        if (type.equals("error") || type.equals("skip"))
+            return 3;
+        return -1;
+    }
+}
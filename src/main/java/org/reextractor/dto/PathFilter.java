@@ -0,0 +1,180 @@
+package org.reextractor.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Java files to analyze, e.g. to leave out generated parsers, protobuf stubs or vendored code. A file is
+ * analyzed if its path matches one of the include globs (or there are none) and none of the exclude globs. Paths
+ * are relative to the root of the repository, with '/' as separator, and globs follow
+ * {@link java.nio.file.FileSystem#getPathMatcher(String)}, e.g. {@code src/gen/**} or {@code **.pb.java}.
+ * Optionally, files marked as generated or larger than a given size are left out as well, whatever their path.
+ */
+public class PathFilter {
+
+    private static final String GENERATED_ANNOTATION = "Generated";
+    private static final byte[] DO_NOT_EDIT = "DO NOT EDIT".getBytes(StandardCharsets.US_ASCII);
+    private static final List<String> TYPE_KEYWORDS = List.of("class", "interface", "enum", "record");
+
+    private final List<String> includeGlobs = new ArrayList<>();
+    private final List<String> excludeGlobs = new ArrayList<>();
+    private final List<PathMatcher> includes = new ArrayList<>();
+    private final List<PathMatcher> excludes = new ArrayList<>();
+    private boolean skipGenerated;
+    private long maxFileSize;
+
+    public void addInclude(String glob) {
+        includes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        includeGlobs.add(glob);
+    }
+
+    public void addExclude(String glob) {
+        excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        excludeGlobs.add(glob);
+    }
+
+    /**
+     * @param skipGenerated Whether to leave out files whose first type is annotated with {@code @Generated} (of any
+     *                      package), or has a "DO NOT EDIT" comment before it.
+     */
+    public void setSkipGenerated(boolean skipGenerated) {
+        this.skipGenerated = skipGenerated;
+    }
+
+    /**
+     * @param maxFileSize The size in bytes beyond which files are left out, or 0 for no limit.
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    public boolean acceptsPath(String path) {
+        Path file = Paths.get(path);
+        boolean included = includes.isEmpty();
+        for (PathMatcher include : includes) {
+            if (include.matches(file)) {
+                included = true;
+                break;
+            }
+        }
+        if (!included)
+            return false;
+        for (PathMatcher exclude : excludes) {
+            if (exclude.matches(file))
+                return false;
+        }
+        return true;
+    }
+
+    public boolean acceptsSize(long size) {
+        return maxFileSize <= 0 || size <= maxFileSize;
+    }
+
+    /**
+     * @return whether the content of a file is worth reading at all, i.e. {@link #acceptsContent} may reject it.
+     */
+    public boolean checksContent() {
+        return skipGenerated;
+    }
+
+    public boolean acceptsContent(byte[] content) {
+        if (!acceptsSize(content.length))
+            return false;
+        return !skipGenerated || !isGenerated(content);
+    }
+
+    // scans the file up to the declaration of its first type, skipping literals and the arguments of annotations, so
+    // that neither @GeneratedValue nor a "@Generated" in a string or in the body of a type marks the file
+    private static boolean isGenerated(byte[] content) {
+        int depth = 0;
+        int i = 0;
+        while (i < content.length) {
+            byte c = content[i];
+            if (c == '/' && i + 1 < content.length && (content[i + 1] == '/' || content[i + 1] == '*')) {
+                boolean lineComment = content[i + 1] == '/';
+                int end = indexOf(content, lineComment ? "\n" : "*/", i + 2);
+                end = end < 0 ? content.length : lineComment ? end : end + 2;
+                if (indexOf(content, DO_NOT_EDIT, i, end) >= 0)
+                    return true;
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                i = skipLiteral(content, i);
+            } else if (c == '@' && depth == 0) {
+                int start = i + 1;
+                while (start < content.length && Character.isWhitespace(content[start]))
+                    start++;
+                int end = skipName(content, start);
+                String name = new String(content, start, end - start, StandardCharsets.UTF_8);
+                if (name.equals("interface"))
+                    return false;
+                if (name.equals(GENERATED_ANNOTATION) || name.endsWith("." + GENERATED_ANNOTATION))
+                    return true;
+                i = Math.max(end, i + 1);
+            } else if (isNamePart(c)) {
+                int end = skipName(content, i);
+                if (depth == 0 && TYPE_KEYWORDS.contains(new String(content, i, end - i, StandardCharsets.UTF_8)))
+                    return false;
+                i = end;
+            } else {
+                if (c == '(')
+                    depth++;
+                else if (c == ')')
+                    depth--;
+                i++;
+            }
+        }
+        return false;
+    }
+
+    // a qualified name, as a single token
+    private static int skipName(byte[] content, int start) {
+        int end = start;
+        while (end < content.length && (isNamePart(content[end]) || content[end] == '.'))
+            end++;
+        return end;
+    }
+
+    // the bytes of non-ASCII characters are parts of names too
+    private static boolean isNamePart(byte c) {
+        return c < 0 || Character.isJavaIdentifierPart(c);
+    }
+
+    // the index after the string, text block or character literal that starts at the given index
+    private static int skipLiteral(byte[] content, int start) {
+        byte quote = content[start];
+        if (quote == '"' && indexOf(content, "\"\"\"", start) == start) {
+            int end = indexOf(content, "\"\"\"", start + 3);
+            return end < 0 ? content.length : end + 3;
+        }
+        int i = start + 1;
+        while (i < content.length && content[i] != quote && content[i] != '\n')
+            i += content[i] == '\\' ? 2 : 1;
+        return Math.min(i + 1, content.length);
+    }
+
+    private static int indexOf(byte[] content, String marker, int from) {
+        return indexOf(content, marker.getBytes(StandardCharsets.US_ASCII), from, content.length);
+    }
+
+    private static int indexOf(byte[] content, byte[] marker, int from, int to) {
+        for (int i = from; i + marker.length <= to; i++) {
+            int j = 0;
+            while (j < marker.length && content[i + j] == marker[j])
+                j++;
+            if (j == marker.length)
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "include=" + includeGlobs + ",exclude=" + excludeGlobs + ",skipGenerated=" + skipGenerated +
+                ",maxFileSize=" + maxFileSize;
+    }
+}
@@ -0,0 +1,76 @@
+package org.reextractor.dto;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The profiles of the commits of a run, summed phase by phase, with the slowest commit of the run.
+ */
+public class ProfileSummary {
+
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private int commitsCount;
+    private String slowestCommitId;
+    private long slowestWallTime = -1;
+
+    public void add(String commitId, CommitProfile profile) {
+        for (String phase : profile.getPhases()) {
+            long[] times = phases.computeIfAbsent(phase, key -> new long[2]);
+            times[0] += profile.getWallTime(phase);
+            times[1] = profile.getCpuTime(phase) < 0 ? -1 : times[1] + profile.getCpuTime(phase);
+        }
+        commitsCount++;
+        long wallTime = profile.getWallTime();
+        if (wallTime > slowestWallTime) {
+            slowestWallTime = wallTime;
+            slowestCommitId = commitId;
+        }
+    }
+
+    /**
+     * @return the number of profiled commits.
+     */
+    public int getCommitsCount() {
+        return commitsCount;
+    }
+
+    public Iterable<String> getPhases() {
+        return Collections.unmodifiableSet(phases.keySet());
+    }
+
+    public long getWallTime(String phase) {
+        long[] times = phases.get(phase);
+        return times == null ? 0 : times[0];
+    }
+
+    public long getCpuTime(String phase) {
+        long[] times = phases.get(phase);
+        return times == null ? 0 : times[1];
+    }
+
+    /**
+     * @return the commit whose phases took the longest, or null if no commit was profiled.
+     */
+    public String getSlowestCommitId() {
+        return slowestCommitId;
+    }
+
+    public long getSlowestWallTime() {
+        return slowestWallTime;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Profiled commits: %d", commitsCount));
+        for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+            builder.append(", ").append(phase.getKey()).append(": ").append(phase.getValue()[0] / 1_000_000).append(" ms");
+            if (phase.getValue()[1] >= 0)
+                builder.append(" (CPU ").append(phase.getValue()[1] / 1_000_000).append(" ms)");
+        }
+        if (slowestCommitId != null)
+            builder.append(String.format(", slowest commit: %s (%d ms)", slowestCommitId, slowestWallTime / 1_000_000));
+        return builder.toString();
+    }
+}
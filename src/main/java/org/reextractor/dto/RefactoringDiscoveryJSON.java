@@ -2,6 +2,7 @@ package org.reextractor.dto;
 
 import org.remapper.dto.MatchPair;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -20,7 +21,7 @@ public class RefactoringDiscoveryJSON {
         results.add(result);
     }
 
-    class Result {
+    static class Result {
         private String repository;
         private String sha1;
         private String url;
@@ -28,6 +29,15 @@ public class RefactoringDiscoveryJSON {
         private List<Refactoring> refactorings;
 
         public Result(String repository, String sha1, String url, MatchPair matchPair, List<org.reextractor.refactoring.Refactoring> refactorings) {
+            this(repository, sha1, url, matchPair, refactorings, null);
+        }
+
+        /**
+         * @param contentStore If not null, the files are written as blob IDs of the store instead of their contents,
+         *                     and the missing side of an added or deleted file has no blob ID.
+         */
+        public Result(String repository, String sha1, String url, MatchPair matchPair, List<org.reextractor.refactoring.Refactoring> refactorings,
+                      FileContentStore contentStore) {
             this.repository = repository;
             this.sha1 = sha1;
             this.url = url;
@@ -39,20 +49,22 @@ public class RefactoringDiscoveryJSON {
             Set<String> deletedFiles = matchPair.getDeletedFiles();
             Set<String> addedFiles = matchPair.getAddedFiles();
             for (String name : modifiedFiles) {
-                FileContent fileContent = new FileContent(name, fileContentsBefore.get(name), fileContentsCurrent.get(name));
+                FileContent fileContent = new FileContent(name, fileContentsBefore.get(name), fileContentsCurrent.get(name), contentStore);
                 files.add(fileContent);
             }
             for (String oldName : renamedFiles.keySet()) {
                 String newName = renamedFiles.get(oldName);
-                FileContent fileContent = new FileContent(oldName + " --> " + newName, fileContentsBefore.get(oldName), fileContentsCurrent.get(newName));
+                FileContent fileContent = new FileContent(oldName + " --> " + newName, fileContentsBefore.get(oldName), fileContentsCurrent.get(newName), contentStore);
                 files.add(fileContent);
             }
+            // the missing side of an added or deleted file is an empty code, or no blob ID
+            String missingCode = contentStore == null ? "" : null;
             for (String name : deletedFiles) {
-                FileContent fileContent = new FileContent(name, fileContentsBefore.get(name), "");
+                FileContent fileContent = new FileContent(name, fileContentsBefore.get(name), missingCode, contentStore);
                 files.add(fileContent);
             }
             for (String name : addedFiles) {
-                FileContent fileContent = new FileContent(name, "", fileContentsCurrent.get(name));
+                FileContent fileContent = new FileContent(name, missingCode, fileContentsCurrent.get(name), contentStore);
                 files.add(fileContent);
             }
             this.refactorings = new ArrayList<>();
@@ -63,19 +75,36 @@ public class RefactoringDiscoveryJSON {
         }
     }
 
-    class FileContent {
+    static class FileContent {
         private String name;
         private String oldCode;
         private String newCode;
+        private String oldBlob;
+        private String newBlob;
 
         public FileContent(String name, String oldCode, String newCode) {
             this.name = name;
             this.oldCode = oldCode;
             this.newCode = newCode;
         }
+
+        public FileContent(String name, String oldCode, String newCode, FileContentStore contentStore) {
+            this.name = name;
+            if (contentStore == null) {
+                this.oldCode = oldCode;
+                this.newCode = newCode;
+            } else {
+                try {
+                    this.oldBlob = contentStore.put(oldCode);
+                    this.newBlob = contentStore.put(newCode);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
     }
 
-    class Refactoring {
+    static class Refactoring {
         private String type;
         private String description;
         private List<CodeRange> leftSideLocation;
@@ -95,7 +124,7 @@ public class RefactoringDiscoveryJSON {
         }
     }
 
-    class CodeRange {
+    static class CodeRange {
         private final String filePath;
         private final int startLine;
         private final int endLine;
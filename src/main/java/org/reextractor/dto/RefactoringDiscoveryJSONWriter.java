@@ -0,0 +1,223 @@
+package org.reextractor.dto;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import org.remapper.dto.MatchPair;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes the results of a {@link RefactoringDiscoveryJSON} one at a time to a single open stream, so that the
+ * output of a long history can be produced with constant memory. In JSON Lines mode, each result is written as
+ * a single line instead of as an element of the "results" array.
+ */
+public class RefactoringDiscoveryJSONWriter implements Closeable {
+
+    private static final Gson COMPACT_GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final MutableWriter out;
+    private final Gson gson;
+    private final JsonWriter jsonWriter;
+    private final boolean closeStream;
+    private FileContentStore contentStore;
+    private boolean separatorPending;
+    private boolean closed;
+
+    public RefactoringDiscoveryJSONWriter(Writer out, boolean jsonLines) throws IOException {
+        this(out, jsonLines, false, false, false);
+    }
+
+    private RefactoringDiscoveryJSONWriter(Writer out, boolean jsonLines, boolean closeStream, boolean append,
+                                           boolean hasResults) throws IOException {
+        this.out = new MutableWriter(new BufferedWriter(out));
+        this.closeStream = closeStream;
+        if (jsonLines) {
+            this.gson = new GsonBuilder().disableHtmlEscaping().create();
+            this.jsonWriter = null;
+        } else {
+            this.gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
+            this.jsonWriter = gson.newJsonWriter(this.out);
+            this.out.muted = append;
+            jsonWriter.beginObject();
+            jsonWriter.name("results");
+            jsonWriter.beginArray();
+            this.out.muted = false;
+            this.separatorPending = hasResults;
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Open a writer that appends results to the given file. If the file already contains a JSON document,
+     * the new results are appended to its "results" array.
+     */
+    public static RefactoringDiscoveryJSONWriter open(Path path, boolean jsonLines) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (Files.notExists(parent))
+            Files.createDirectories(parent);
+        boolean append = Files.exists(path) && Files.size(path) > 0;
+        boolean hasResults = false;
+        if (append && !jsonLines) {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                long end = findEndOfResults(file);
+                hasResults = readByte(file, end - 1) != '[';
+                file.setLength(end);
+            }
+        }
+        return open(path, jsonLines, append, hasResults);
+    }
+
+    /**
+     * Open a writer that continues the document stored in the given file after its first offset bytes, e.g. the
+     * results written by an interrupted run up to its last checkpoint. The rest of the file is discarded.
+     */
+    public static RefactoringDiscoveryJSONWriter open(Path path, boolean jsonLines, long offset) throws IOException {
+        boolean hasResults;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (offset > file.length())
+                throw new IOException("The output is shorter than its checkpoint: " + path);
+            file.setLength(offset);
+            hasResults = offset > 0 && readByte(file, offset - 1) != '[';
+        }
+        return open(path, jsonLines, offset > 0, hasResults);
+    }
+
+    private static RefactoringDiscoveryJSONWriter open(Path path, boolean jsonLines, boolean append,
+                                                       boolean hasResults) throws IOException {
+        Writer out = new OutputStreamWriter(Files.newOutputStream(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND), StandardCharsets.UTF_8);
+        return new RefactoringDiscoveryJSONWriter(out, jsonLines, true, append, hasResults);
+    }
+
+    /**
+     * Write the files of the following results as blob IDs of the given store instead of their contents.
+     */
+    public void setContentStore(FileContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    public void write(String repository, String sha1, String url, MatchPair matchPair,
+                      List<org.reextractor.refactoring.Refactoring> refactorings) throws IOException {
+        RefactoringDiscoveryJSON.Result result = new RefactoringDiscoveryJSON.Result(repository, sha1, url, matchPair, refactorings,
+                contentStore);
+        if (jsonWriter == null) {
+            gson.toJson(result, RefactoringDiscoveryJSON.Result.class, out);
+            out.write('\n');
+        } else {
+            writeSeparator();
+            gson.toJson(result, RefactoringDiscoveryJSON.Result.class, jsonWriter);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the result serialized on a single line, to be written later with {@link #write(String)}.
+     */
+    public String toJSON(String repository, String sha1, String url, MatchPair matchPair,
+                         List<org.reextractor.refactoring.Refactoring> refactorings) {
+        RefactoringDiscoveryJSON.Result result = new RefactoringDiscoveryJSON.Result(repository, sha1, url, matchPair, refactorings,
+                contentStore);
+        return COMPACT_GSON.toJson(result, RefactoringDiscoveryJSON.Result.class);
+    }
+
+    /**
+     * Write a result serialized by {@link #toJSON}, formatted as if it had been written by
+     * {@link #write(String, String, String, MatchPair, List)}.
+     */
+    public void write(String json) throws IOException {
+        if (jsonWriter == null) {
+            out.write(json);
+            out.write('\n');
+        } else {
+            writeSeparator();
+            gson.toJson(JsonParser.parseString(json), jsonWriter);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (jsonWriter != null) {
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+        }
+        if (closeStream)
+            out.close();
+        else
+            out.flush();
+    }
+
+    // the results of an existing document are separated from the appended ones only once there is one
+    private void writeSeparator() throws IOException {
+        if (separatorPending) {
+            out.write(",");
+            separatorPending = false;
+        }
+    }
+
+    /**
+     * @return the length to which the document stored in the file is truncated to append to its "results" array.
+     */
+    private static long findEndOfResults(RandomAccessFile file) throws IOException {
+        long position = skipWhitespaceBackwards(file, file.length() - 1);
+        if (readByte(file, position) != '}')
+            throw new IOException("Not a JSON document of refactorings");
+        position = skipWhitespaceBackwards(file, position - 1);
+        if (readByte(file, position) != ']')
+            throw new IOException("Not a JSON document of refactorings");
+        return skipWhitespaceBackwards(file, position - 1) + 1;
+    }
+
+    private static long skipWhitespaceBackwards(RandomAccessFile file, long position) throws IOException {
+        while (position >= 0 && Character.isWhitespace(readByte(file, position)))
+            position--;
+        return position;
+    }
+
+    private static int readByte(RandomAccessFile file, long position) throws IOException {
+        if (position < 0)
+            return -1;
+        file.seek(position);
+        return file.read();
+    }
+
+    /**
+     * Lets the JSON writer enter the "results" array of an existing document without writing its opening again.
+     */
+    private static class MutableWriter extends FilterWriter {
+
+        private boolean muted;
+
+        private MutableWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (!muted)
+                super.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (!muted)
+                super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (!muted)
+                super.write(str, off, len);
+        }
+    }
+}
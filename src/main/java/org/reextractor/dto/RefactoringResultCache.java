@@ -0,0 +1,218 @@
+package org.reextractor.dto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of the serialized result of each analyzed commit. An entry is addressed by the SHA-256 of the
+ * commit ID, the ReExtractor version and build time and a description of the configuration the result was computed with, so a
+ * new version or a different configuration never reads stale results. Entries are written atomically, so several
+ * processes can share the same directory, and the least recently used entries are evicted once the cache grows
+ * beyond its maximum size. The size of the directory is kept in its lock file and updated by every process under
+ * the lock, so each process sees what the others wrote.
+ */
+public class RefactoringResultCache {
+
+    private static final String VERSION = readVersion();
+    private static final String SUFFIX = ".json";
+    private static final String LOCK_FILE = ".lock";
+    // a file lock is held by the whole process, so the caches of a process also wait for each other
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final Path directory;
+    private final long maxSize;
+    private final String configuration;
+
+    /**
+     * @param directory     the directory of the cache, created if it does not exist.
+     * @param maxSize       the maximum size of the cache in bytes.
+     * @param configuration everything besides the commit and the version the results depend on (e.g. the
+     *                      repository and the options of the analysis).
+     * @throws IllegalStateException if the version is not known, see {@link #getVersion()}.
+     */
+    public RefactoringResultCache(Path directory, long maxSize, String configuration) throws IOException {
+        if (VERSION == null)
+            throw new IllegalStateException("The version of ReExtractor is not known, so the cached results could not be invalidated");
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.configuration = configuration;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * @return the version and build time of ReExtractor the results are computed with, or null if the resources
+     * were not filtered by the Maven build (e.g. when run from an IDE).
+     */
+    public static String getVersion() {
+        return VERSION;
+    }
+
+    /**
+     * @return the result cached for the commit, or null if there is none.
+     */
+    public String get(String commitId) throws IOException {
+        Path file = getPath(commitId);
+        String json;
+        try {
+            json = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // the modification time of an entry is the time it was last used
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException ignored) {
+        }
+        return json;
+    }
+
+    public void put(String commitId, String json) throws IOException {
+        Path file = getPath(commitId);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes);
+            synchronized (PROCESS_LOCK) {
+                try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    long size = readSize(channel);
+                    // the entry is replaced if another process wrote it in the meantime
+                    long previousSize;
+                    try {
+                        previousSize = Files.size(file);
+                    } catch (NoSuchFileException e) {
+                        previousSize = 0;
+                    }
+                    try {
+                        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        return;
+                    }
+                    size += bytes.length - previousSize;
+                    if (size > maxSize)
+                        size = evict();
+                    writeSize(channel, size);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // the size kept in the lock file, or that of the entries if the lock file is new
+    private long readSize(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        if (channel.read(buffer, 0) < Long.BYTES)
+            return computeSize(listEntries());
+        return buffer.flip().getLong();
+    }
+
+    private static void writeSize(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(size).flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer, buffer.position());
+    }
+
+    // called under the lock; the size is computed again from the entries, which also corrects the size kept in the
+    // lock file if a process died before updating it, and the cache is evicted down to 90% of the maximum size, so
+    // that eviction does not run again on the next put
+    private long evict() throws IOException {
+        List<Entry> entries = listEntries();
+        entries.sort(Comparator.comparing(entry -> entry.lastModified));
+        long size = computeSize(entries);
+        for (Entry entry : entries) {
+            if (size <= maxSize / 10 * 9)
+                break;
+            if (Files.deleteIfExists(entry.file))
+                size -= entry.size;
+        }
+        return size;
+    }
+
+    private List<Entry> listEntries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(SUFFIX))
+                    continue;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+                } catch (NoSuchFileException ignored) {
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return entries;
+    }
+
+    private static long computeSize(List<Entry> entries) {
+        long size = 0;
+        for (Entry entry : entries)
+            size += entry.size;
+        return size;
+    }
+
+    private Path getPath(String commitId) {
+        String key = sha256(commitId + "\n" + VERSION + "\n" + configuration);
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2) + SUFFIX);
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readVersion() {
+        try (InputStream in = RefactoringResultCache.class.getResourceAsStream("/reextractor.properties")) {
+            if (in == null)
+                return null;
+            Properties properties = new Properties();
+            properties.load(in);
+            String version = properties.getProperty("version");
+            String build = properties.getProperty("build");
+            // an unfiltered resource keeps the ${...} placeholders
+            if (version == null || build == null || version.contains("${") || build.contains("${"))
+                return null;
+            return version + " " + build;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class Entry {
+
+        private final Path file;
+        private final long size;
+        private final FileTime lastModified;
+
+        private Entry(Path file, long size, FileTime lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
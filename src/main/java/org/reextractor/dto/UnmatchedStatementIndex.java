@@ -0,0 +1,72 @@
+package org.reextractor.dto;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.remapper.dto.MethodNode;
+import org.remapper.dto.StatementNodeTree;
+import org.remapper.dto.StatementType;
+
+import java.util.*;
+
+/**
+ * Buckets of the added and deleted statements of a commit, grouped by the method they belong to and by their type,
+ * so that an added statement is only compared with the deleted statements of a matched method that could form a
+ * refactoring with it. The lists preserve the iteration order of the added and deleted statements.
+ */
+public class UnmatchedStatementIndex {
+
+    private final Map<MethodNode, Set<MethodNode>> previousRoots = new HashMap<>();
+    private final Map<MethodNode, List<StatementNodeTree>> addedByRoot = new IdentityHashMap<>();
+    private final Map<MethodNode, Map<StatementType, List<StatementNodeTree>>> deletedByRoot = new HashMap<>();
+    private final Map<StatementNodeTree, Integer> deletedOrdinals = new IdentityHashMap<>();
+    private final Map<MethodNode, Map<StatementType, List<StatementNodeTree>>> deletedByNextRoot = new HashMap<>();
+
+    public UnmatchedStatementIndex(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
+                                   Set<StatementNodeTree> addedStatements, Set<StatementNodeTree> deletedStatements) {
+        for (Pair<MethodNode, MethodNode> pair : methodNodePairs)
+            previousRoots.computeIfAbsent(pair.getRight(), root -> new LinkedHashSet<>()).add(pair.getLeft());
+        for (StatementNodeTree addedStatement : addedStatements)
+            addedByRoot.computeIfAbsent(addedStatement.getRoot(), root -> new ArrayList<>()).add(addedStatement);
+        for (StatementNodeTree deletedStatement : deletedStatements) {
+            deletedOrdinals.put(deletedStatement, deletedOrdinals.size());
+            deletedByRoot.computeIfAbsent(deletedStatement.getRoot(), root -> new HashMap<>())
+                    .computeIfAbsent(deletedStatement.getType(), type -> new ArrayList<>()).add(deletedStatement);
+        }
+    }
+
+    /**
+     * @return the added statements that belong to the given method node.
+     */
+    public List<StatementNodeTree> getAddedStatements(MethodNode root) {
+        return addedByRoot.getOrDefault(root, Collections.emptyList());
+    }
+
+    /**
+     * @return the deleted statements of the given types that belong to a method node matched with the given method
+     * node of the next version.
+     */
+    public List<StatementNodeTree> getDeletedStatements(MethodNode nextRoot, StatementType... types) {
+        if (types.length == 1)
+            return getDeletedStatements(nextRoot, types[0]);
+        List<StatementNodeTree> statements = new ArrayList<>();
+        for (StatementType type : types)
+            statements.addAll(getDeletedStatements(nextRoot, type));
+        statements.sort(Comparator.comparingInt(deletedOrdinals::get));
+        return statements;
+    }
+
+    private List<StatementNodeTree> getDeletedStatements(MethodNode nextRoot, StatementType type) {
+        return deletedByNextRoot.computeIfAbsent(nextRoot, root -> new HashMap<>())
+                .computeIfAbsent(type, key -> collectDeletedStatements(nextRoot, key));
+    }
+
+    private List<StatementNodeTree> collectDeletedStatements(MethodNode nextRoot, StatementType type) {
+        List<StatementNodeTree> statements = new ArrayList<>();
+        for (MethodNode root : previousRoots.getOrDefault(nextRoot, Collections.emptySet())) {
+            Map<StatementType, List<StatementNodeTree>> buckets = deletedByRoot.get(root);
+            if (buckets != null)
+                statements.addAll(buckets.getOrDefault(type, Collections.emptyList()));
+        }
+        statements.sort(Comparator.comparingInt(deletedOrdinals::get));
+        return statements;
+    }
+}
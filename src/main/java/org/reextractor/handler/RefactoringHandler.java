@@ -1,5 +1,7 @@
 package org.reextractor.handler;
 
+import org.reextractor.dto.CommitProfile;
+import org.reextractor.dto.ProfileSummary;
 import org.reextractor.refactoring.Refactoring;
 import org.remapper.dto.MatchPair;
 
@@ -7,6 +9,27 @@ import java.util.List;
 
 public abstract class RefactoringHandler {
 
+    /**
+     * This method is called before each commit is analyzed, on the thread that iterates over the commits.
+     * You may override this method to skip the commits whose results are already known (e.g. cached).
+     * Skipped commits are neither analyzed nor counted in onFinish.
+     *
+     * @param commitId The sha of the commit.
+     * @return true to skip the analysis of the commit.
+     */
+    public boolean skipCommit(String commitId) {
+        return false;
+    }
+
+    /**
+     * This method is called instead of handle for each skipped commit, in the order in which handle would have
+     * been called.
+     *
+     * @param commitId The sha of the skipped commit.
+     */
+    public void handleSkipped(String commitId) {
+    }
+
     /**
      * This method is called after each commit is analyzed.
      * You should override this method to do your custom logic with the list of detected refactorings.
@@ -63,6 +86,30 @@ public abstract class RefactoringHandler {
         throw new RuntimeException(e);
     }
 
+    /**
+     * This method is called after each commit is analyzed, after handle or handleException.
+     * You may override this method to find the commits and the phases of the analysis that take the longest.
+     *
+     * @param commitId The sha of the analyzed commit.
+     * @param profile  The time spent in each phase of the analysis, and the number of matched, added and deleted
+     *                 entities and statements. A failed analysis has no times for the phases it did not complete.
+     */
+    public void handleProfile(String commitId, CommitProfile profile) {
+    }
+
+    /**
+     * This method is called after all commits are analyzed, instead of onFinish(int, int, int), which it calls by
+     * default.
+     *
+     * @param refactoringsCount Total number of refactorings detected.
+     * @param commitsCount      Total number of commits analyzed.
+     * @param errorCommitsCount Total number of commits not analyzed due to errors.
+     * @param summary           The profiles of all analyzed commits, summed phase by phase.
+     */
+    public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount, ProfileSummary summary) {
+        onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+    }
+
     /**
      * This method is called after all commits are analyzed.
      * You may override this method to implement custom logic.
@@ -0,0 +1,42 @@
+package org.reextractor.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The analysis of a commit, from the reading of its changed files to the end of the detection of its refactorings.
+ */
+@Name("org.reextractor.Commit")
+@Label("Commit")
+@Category("ReExtractor")
+@Description("The analysis of a commit")
+@StackTrace(false)
+public class CommitEvent extends Event {
+
+    @Label("Commit ID")
+    public String commitId;
+
+    @Label("Changed Files")
+    @Description("The number of changed Java files, or -1 if the working tree was checked out by the matcher")
+    public int changedFiles;
+
+    @Label("Matched Entities")
+    public int matchedEntities;
+
+    @Label("Added Entities")
+    public int addedEntities;
+
+    @Label("Deleted Entities")
+    public int deletedEntities;
+
+    @Label("Matched Statements")
+    public int matchedStatements;
+
+    @Label("Added Statements")
+    public int addedStatements;
+
+    @Label("Deleted Statements")
+    public int deletedStatements;
+
+    @Label("Refactorings")
+    public int refactorings;
+}
@@ -0,0 +1,21 @@
+package org.reextractor.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A phase of the analysis of a commit: reading its changed files, matching its entities, or one of the detection
+ * phases.
+ */
+@Name("org.reextractor.Phase")
+@Label("Analysis Phase")
+@Category("ReExtractor")
+@Description("A phase of the analysis of a commit")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    @Label("Commit ID")
+    public String commitId;
+
+    @Label("Phase")
+    public String phase;
+}
@@ -0,0 +1,21 @@
+package org.reextractor.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The serialization of the result of a commit to the JSON output.
+ */
+@Name("org.reextractor.Serialization")
+@Label("Serialization")
+@Category("ReExtractor")
+@Description("The serialization of the result of a commit")
+@StackTrace(false)
+public class SerializationEvent extends Event {
+
+    @Label("Commit ID")
+    public String commitId;
+
+    @Label("Cached")
+    @Description("Whether the result was taken from the result cache instead of being serialized")
+    public boolean cached;
+}
@@ -0,0 +1,67 @@
+package org.reextractor.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * A snapshot of a latency histogram. The percentiles are the upper bounds of the buckets they fall into.
+ */
+public class LatencyStatistics {
+
+    private final long count;
+    private final long meanMillis;
+    private final long p50Millis;
+    private final long p95Millis;
+    private final long p99Millis;
+    private final long maxMillis;
+    private final long[] bucketBoundsMillis;
+    private final long[] bucketCounts;
+
+    @ConstructorParameters({"count", "meanMillis", "p50Millis", "p95Millis", "p99Millis", "maxMillis",
+            "bucketBoundsMillis", "bucketCounts"})
+    public LatencyStatistics(long count, long meanMillis, long p50Millis, long p95Millis, long p99Millis, long maxMillis,
+                             long[] bucketBoundsMillis, long[] bucketCounts) {
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+        this.bucketBoundsMillis = bucketBoundsMillis;
+        this.bucketCounts = bucketCounts;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMeanMillis() {
+        return meanMillis;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public long getP95Millis() {
+        return p95Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * @return the inclusive upper bound of each bucket; the last bucket has no bound and is not listed.
+     */
+    public long[] getBucketBoundsMillis() {
+        return bucketBoundsMillis.clone();
+    }
+
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+}
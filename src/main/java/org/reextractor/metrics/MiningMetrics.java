@@ -0,0 +1,259 @@
+package org.reextractor.metrics;
+
+import org.reextractor.dto.CommitProfile;
+import org.reextractor.refactoring.Refactoring;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the commits mined by a service. They are updated from the threads that analyze the commits and from
+ * the thread that delivers their results, and read over JMX once {@link #register() registered}.
+ */
+public class MiningMetrics implements MiningMetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.reextractor:type=MiningMetrics";
+
+    private final LongAdder commitsCount = new LongAdder();
+    private final LongAdder errorCommitsCount = new LongAdder();
+    private final LongAdder skippedCommitsCount = new LongAdder();
+    private final LongAdder refactoringsCount = new LongAdder();
+    private final Map<String, LongAdder> refactoringsByType = new ConcurrentHashMap<>();
+    private final Map<String, Long> commitsInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Integer> queueDepths = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> idleTimes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> stallTimes = new ConcurrentHashMap<>();
+    private final Histogram matchingLatency = new Histogram();
+    private final Histogram detectionLatency = new Histogram();
+    private final AtomicLong firstCommitTime = new AtomicLong();
+    private final AtomicLong lastCommitTime = new AtomicLong();
+
+    /**
+     * Register the metrics in the platform MBean server, replacing the metrics registered before.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The analysis of the commit starts on the current thread.
+     */
+    public void commitStarted(String commitId) {
+        long now = System.nanoTime();
+        firstCommitTime.compareAndSet(0, now);
+        commitsInFlight.put(commitId, now);
+    }
+
+    /**
+     * The analysis of the commit ended, successfully or not.
+     */
+    public void commitAnalyzed(String commitId, CommitProfile profile) {
+        commitsInFlight.remove(commitId);
+        lastCommitTime.set(System.nanoTime());
+        long reading = profile.getWallTime(CommitProfile.READING);
+        long matching = profile.getWallTime(CommitProfile.MATCHING);
+        if (matching > 0)
+            matchingLatency.add(reading + matching);
+        if (profile.getWallTime(CommitProfile.INDEXING) > 0)
+            detectionLatency.add(profile.getWallTime() - reading - matching);
+    }
+
+    /**
+     * The refactorings of the commit were delivered to the handler.
+     */
+    public void commitHandled(List<Refactoring> refactorings) {
+        commitsCount.increment();
+        refactoringsCount.add(refactorings.size());
+        for (Refactoring refactoring : refactorings)
+            refactoringsByType.computeIfAbsent(refactoring.getRefactoringType().name(), key -> new LongAdder()).increment();
+    }
+
+    public void commitFailed() {
+        commitsCount.increment();
+        errorCommitsCount.increment();
+    }
+
+    public void commitSkipped() {
+        skippedCommitsCount.increment();
+    }
+
+    public void setQueueDepth(String queue, int depth) {
+        queueDepths.put(queue, depth);
+    }
+
+    /**
+     * A worker of the stage waited for a commit for the given nanoseconds.
+     */
+    public void addIdleTime(String stage, long nanos) {
+        idleTimes.computeIfAbsent(stage, key -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * A worker of the stage waited for the next stage to accept a commit for the given nanoseconds.
+     */
+    public void addStallTime(String stage, long nanos) {
+        stallTimes.computeIfAbsent(stage, key -> new LongAdder()).add(nanos);
+    }
+
+    @Override
+    public long getCommitsCount() {
+        return commitsCount.sum();
+    }
+
+    @Override
+    public long getErrorCommitsCount() {
+        return errorCommitsCount.sum();
+    }
+
+    @Override
+    public long getSkippedCommitsCount() {
+        return skippedCommitsCount.sum();
+    }
+
+    @Override
+    public long getRefactoringsCount() {
+        return refactoringsCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getRefactoringsByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : refactoringsByType.entrySet())
+            counts.put(entry.getKey(), entry.getValue().sum());
+        return counts;
+    }
+
+    @Override
+    public double getCommitsPerSecond() {
+        long first = firstCommitTime.get();
+        if (first == 0)
+            return 0;
+        double seconds = (System.nanoTime() - first) / 1e9;
+        return seconds > 0 ? getCommitsCount() / seconds : 0;
+    }
+
+    @Override
+    public long getSecondsSinceLastCommit() {
+        long last = Math.max(firstCommitTime.get(), lastCommitTime.get());
+        if (last == 0)
+            return 0;
+        return (System.nanoTime() - last) / 1_000_000_000L;
+    }
+
+    @Override
+    public List<String> getCommitsInFlight() {
+        return new ArrayList<>(commitsInFlight.keySet());
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        return new TreeMap<>(queueDepths);
+    }
+
+    @Override
+    public Map<String, Long> getIdleTimes() {
+        return millis(idleTimes);
+    }
+
+    @Override
+    public Map<String, Long> getStallTimes() {
+        return millis(stallTimes);
+    }
+
+    @Override
+    public LatencyStatistics getMatchingLatency() {
+        return matchingLatency.getStatistics();
+    }
+
+    @Override
+    public LatencyStatistics getDetectionLatency() {
+        return detectionLatency.getStatistics();
+    }
+
+    @Override
+    public void reset() {
+        commitsCount.reset();
+        errorCommitsCount.reset();
+        skippedCommitsCount.reset();
+        refactoringsCount.reset();
+        refactoringsByType.clear();
+        idleTimes.clear();
+        stallTimes.clear();
+        matchingLatency.reset();
+        detectionLatency.reset();
+        firstCommitTime.set(0);
+        lastCommitTime.set(0);
+    }
+
+    private static Map<String, Long> millis(Map<String, LongAdder> times) {
+        Map<String, Long> millis = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : times.entrySet())
+            millis.put(entry.getKey(), entry.getValue().sum() / 1_000_000);
+        return millis;
+    }
+
+    /**
+     * A histogram of latencies with buckets that grow roughly exponentially from 1 millisecond to 10 minutes.
+     */
+    private static class Histogram {
+
+        private static final long[] BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000,
+                30_000, 60_000, 120_000, 300_000, 600_000};
+
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void add(long nanos) {
+            long millis = nanos / 1_000_000;
+            int bucket = Arrays.binarySearch(BOUNDS, millis);
+            counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+            sum.add(millis);
+            max.accumulateAndGet(millis, Math::max);
+        }
+
+        private void reset() {
+            for (int i = 0; i < counts.length(); i++)
+                counts.set(i, 0);
+            sum.reset();
+            max.set(0);
+        }
+
+        private LatencyStatistics getStatistics() {
+            long[] bucketCounts = new long[counts.length()];
+            long count = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] = counts.get(i);
+                count += bucketCounts[i];
+            }
+            long max = this.max.get();
+            return new LatencyStatistics(count, count == 0 ? 0 : sum.sum() / count, percentile(bucketCounts, count, 0.5, max),
+                    percentile(bucketCounts, count, 0.95, max), percentile(bucketCounts, count, 0.99, max), max,
+                    BOUNDS.clone(), bucketCounts);
+        }
+
+        private static long percentile(long[] bucketCounts, long count, double percentile, long max) {
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank && seen > 0)
+                    return i < BOUNDS.length ? Math.min(BOUNDS[i], max) : max;
+            }
+            return 0;
+        }
+    }
+}
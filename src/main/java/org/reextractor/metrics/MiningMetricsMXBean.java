@@ -0,0 +1,66 @@
+package org.reextractor.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The progress of the commits mined by a service, exposed over JMX as org.reextractor:type=MiningMetrics.
+ */
+public interface MiningMetricsMXBean {
+
+    /**
+     * @return the number of commits analyzed, including the failed ones.
+     */
+    long getCommitsCount();
+
+    long getErrorCommitsCount();
+
+    /**
+     * @return the number of commits skipped by the handler (e.g. cached or already written by an interrupted run).
+     */
+    long getSkippedCommitsCount();
+
+    long getRefactoringsCount();
+
+    /**
+     * @return the number of detected refactorings of each type.
+     */
+    Map<String, Long> getRefactoringsByType();
+
+    /**
+     * @return the average number of commits analyzed per second since the first one started.
+     */
+    double getCommitsPerSecond();
+
+    /**
+     * @return the seconds since the last commit was analyzed, or since the first one started, e.g. to detect stalls.
+     */
+    long getSecondsSinceLastCommit();
+
+    /**
+     * @return the commits being analyzed.
+     */
+    List<String> getCommitsInFlight();
+
+    /**
+     * @return the number of elements waiting in each queue of the mining loop.
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * @return the milliseconds the workers of each stage of the pipeline waited for a commit.
+     */
+    Map<String, Long> getIdleTimes();
+
+    /**
+     * @return the milliseconds the workers of each stage of the pipeline waited for the next stage to accept a
+     * commit, i.e. the time the stage was held up by a slower one.
+     */
+    Map<String, Long> getStallTimes();
+
+    LatencyStatistics getMatchingLatency();
+
+    LatencyStatistics getDetectionLatency();
+
+    void reset();
+}
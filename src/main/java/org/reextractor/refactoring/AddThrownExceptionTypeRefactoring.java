@@ -2,6 +2,7 @@ package org.reextractor.refactoring;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Type;
+import org.reextractor.util.ASTCache;
 import org.reextractor.util.MethodUtils;
 import org.remapper.dto.CodeRange;
 import org.remapper.dto.DeclarationNodeTree;
@@ -41,7 +42,7 @@ public class AddThrownExceptionTypeRefactoring implements Refactoring {
                 (CompilationUnit) exceptionType.getRoot(), operationAfter.getFilePath(), exceptionType);
         ranges.add(exceptionLocation.codeRange()
                 .setDescription("added thrown exception type")
-                .setCodeElement(exceptionType.toString()));
+                .setCodeElement(ASTCache.toString(exceptionType)));
         ranges.add(operationAfter.codeRange()
                 .setDescription("method declaration with added thrown exception type")
                 .setCodeElement(MethodUtils.method2String(operationAfter)));
@@ -2,6 +2,7 @@ package org.reextractor.refactoring;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Type;
+import org.reextractor.util.ASTCache;
 import org.reextractor.util.MethodUtils;
 import org.remapper.dto.CodeRange;
 import org.remapper.dto.DeclarationNodeTree;
@@ -35,7 +36,7 @@ public class ChangeReturnTypeRefactoring implements Refactoring {
                 (CompilationUnit) originalType.getRoot(), operationBefore.getFilePath(), originalType);
         ranges.add(typeLocation.codeRange()
                 .setDescription("original return type")
-                .setCodeElement(originalType.toString()));
+                .setCodeElement(ASTCache.toString(originalType)));
         ranges.add(operationBefore.codeRange()
                 .setDescription("original method declaration")
                 .setCodeElement(MethodUtils.method2String(operationBefore)));
@@ -48,7 +49,7 @@ public class ChangeReturnTypeRefactoring implements Refactoring {
                 (CompilationUnit) changedType.getRoot(), operationAfter.getFilePath(), changedType);
         ranges.add(typeLocation.codeRange()
                 .setDescription("changed return type")
-                .setCodeElement(changedType.toString()));
+                .setCodeElement(ASTCache.toString(changedType)));
         ranges.add(operationAfter.codeRange()
                 .setDescription("method declaration with changed return type")
                 .setCodeElement(MethodUtils.method2String(operationAfter)));
@@ -2,6 +2,7 @@ package org.reextractor.refactoring;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Type;
+import org.reextractor.util.ASTCache;
 import org.reextractor.util.MethodUtils;
 import org.remapper.dto.CodeRange;
 import org.remapper.dto.DeclarationNodeTree;
@@ -37,7 +38,7 @@ public class ChangeThrownExceptionTypeRefactoring implements Refactoring {
                     (CompilationUnit) originalType.getRoot(), operationBefore.getFilePath(), originalType);
             ranges.add(typeLocation.codeRange()
                     .setDescription("original exception type")
-                    .setCodeElement(originalType.toString()));
+                    .setCodeElement(ASTCache.toString(originalType)));
         }
         ranges.add(operationBefore.codeRange()
                 .setDescription("original method declaration")
@@ -52,7 +53,7 @@ public class ChangeThrownExceptionTypeRefactoring implements Refactoring {
                     (CompilationUnit) changedType.getRoot(), operationBefore.getFilePath(), changedType);
             ranges.add(typeLocation.codeRange()
                     .setDescription("changed exception type")
-                    .setCodeElement(changedType.toString()));
+                    .setCodeElement(ASTCache.toString(changedType)));
         }
         ranges.add(operationAfter.codeRange()
                 .setDescription("method declaration with changed thrown exception type")
@@ -7,9 +7,9 @@ import org.remapper.dto.DeclarationNodeTree;
 import org.remapper.dto.StatementNodeTree;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 public class ExtractOperationRefactoring implements Refactoring {
 
@@ -20,7 +20,7 @@ public class ExtractOperationRefactoring implements Refactoring {
     private List<StatementNodeTree> extractedCodeFragmentsToExtractedOperation;
 
     public ExtractOperationRefactoring(DeclarationNodeTree sourceOperationBeforeExtraction, DeclarationNodeTree sourceOperationAfterExtraction,
-                                       DeclarationNodeTree extractedOperation, Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements) {
+                                       DeclarationNodeTree extractedOperation, Collection<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements) {
         this.sourceOperationBeforeExtraction = sourceOperationBeforeExtraction;
         this.sourceOperationAfterExtraction = sourceOperationAfterExtraction;
         this.extractedOperation = extractedOperation;
@@ -7,9 +7,9 @@ import org.remapper.dto.DeclarationNodeTree;
 import org.remapper.dto.StatementNodeTree;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 public class InlineOperationRefactoring implements Refactoring {
 
@@ -20,7 +20,7 @@ public class InlineOperationRefactoring implements Refactoring {
     private List<StatementNodeTree> inlinedCodeFragmentsInTargetOperation;
 
     public InlineOperationRefactoring(DeclarationNodeTree targetOperationBeforeInline, DeclarationNodeTree targetOperationAfterInline,
-                                      DeclarationNodeTree inlinedOperation, Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements) {
+                                      DeclarationNodeTree inlinedOperation, Collection<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements) {
         this.targetOperationBeforeInline = targetOperationBeforeInline;
         this.targetOperationAfterInline = targetOperationAfterInline;
         this.inlinedOperation = inlinedOperation;
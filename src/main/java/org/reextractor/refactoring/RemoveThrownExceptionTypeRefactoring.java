@@ -2,6 +2,7 @@ package org.reextractor.refactoring;
 
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Type;
+import org.reextractor.util.ASTCache;
 import org.reextractor.util.MethodUtils;
 import org.remapper.dto.CodeRange;
 import org.remapper.dto.DeclarationNodeTree;
@@ -33,7 +34,7 @@ public class RemoveThrownExceptionTypeRefactoring implements Refactoring {
                 (CompilationUnit) exceptionType.getRoot(), operationBefore.getFilePath(), exceptionType);
         ranges.add(exceptionLocation.codeRange()
                 .setDescription("removed thrown exception type")
-                .setCodeElement(exceptionType.toString()));
+                .setCodeElement(ASTCache.toString(exceptionType)));
         ranges.add(operationBefore.codeRange()
                 .setDescription("original method declaration")
                 .setCodeElement(MethodUtils.method2String(operationBefore)));
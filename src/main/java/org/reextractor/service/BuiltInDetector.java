@@ -0,0 +1,92 @@
+package org.reextractor.service;
+
+import org.reextractor.detector.DetectionContext;
+import org.reextractor.detector.RefactoringDetector;
+import org.reextractor.refactoring.Refactoring;
+import org.reextractor.refactoring.RefactoringType;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.reextractor.refactoring.RefactoringType.*;
+
+/**
+ * A detection phase of RefactoringExtractorServiceImpl as a detector, with the types of the refactorings it can
+ * produce.
+ */
+class BuiltInDetector implements RefactoringDetector {
+
+    static final EnumSet<RefactoringType> MATCHED_ENTITIES = EnumSet.of(
+            RENAME_CLASS, MOVE_CLASS, MOVE_RENAME_CLASS, CHANGE_TYPE_DECLARATION_KIND, RENAME_METHOD, MOVE_OPERATION,
+            MOVE_AND_RENAME_OPERATION, PULL_UP_OPERATION, PUSH_DOWN_OPERATION, RENAME_ATTRIBUTE, MOVE_ATTRIBUTE,
+            MOVE_RENAME_ATTRIBUTE, PULL_UP_ATTRIBUTE, PUSH_DOWN_ATTRIBUTE, CHANGE_ATTRIBUTE_TYPE, CHANGE_RETURN_TYPE,
+            CHANGE_PARAMETER_TYPE, RENAME_PARAMETER, ADD_PARAMETER, REMOVE_PARAMETER, REORDER_PARAMETER,
+            ADD_THROWN_EXCEPTION_TYPE, REMOVE_THROWN_EXCEPTION_TYPE, CHANGE_THROWN_EXCEPTION_TYPE,
+            CHANGE_CLASS_ACCESS_MODIFIER, CHANGE_OPERATION_ACCESS_MODIFIER, CHANGE_ATTRIBUTE_ACCESS_MODIFIER,
+            ADD_CLASS_MODIFIER, REMOVE_CLASS_MODIFIER, ADD_METHOD_MODIFIER, REMOVE_METHOD_MODIFIER,
+            ADD_ATTRIBUTE_MODIFIER, REMOVE_ATTRIBUTE_MODIFIER, ADD_PARAMETER_MODIFIER, REMOVE_PARAMETER_MODIFIER,
+            ADD_CLASS_ANNOTATION, REMOVE_CLASS_ANNOTATION, MODIFY_CLASS_ANNOTATION, ADD_METHOD_ANNOTATION,
+            REMOVE_METHOD_ANNOTATION, MODIFY_METHOD_ANNOTATION, ADD_ATTRIBUTE_ANNOTATION, REMOVE_ATTRIBUTE_ANNOTATION,
+            MODIFY_ATTRIBUTE_ANNOTATION, ADD_PARAMETER_ANNOTATION, REMOVE_PARAMETER_ANNOTATION,
+            MODIFY_PARAMETER_ANNOTATION);
+
+    static final EnumSet<RefactoringType> MATCHED_AND_ADDED_ENTITIES = EnumSet.of(
+            EXTRACT_OPERATION, EXTRACT_AND_MOVE_OPERATION, RENAME_METHOD, EXTRACT_CLASS, EXTRACT_SUBCLASS,
+            EXTRACT_SUPERCLASS, EXTRACT_INTERFACE, EXTRACT_VARIABLE, INLINE_VARIABLE);
+
+    static final EnumSet<RefactoringType> MATCHED_AND_DELETED_ENTITIES = EnumSet.of(
+            INLINE_OPERATION, MOVE_AND_INLINE_OPERATION);
+
+    static final EnumSet<RefactoringType> INTRODUCED_OBJECTS = EnumSet.of(EXTRACT_CLASS);
+
+    static final EnumSet<RefactoringType> MATCHED_STATEMENTS = EnumSet.of(
+            RENAME_VARIABLE, CHANGE_VARIABLE_TYPE, ADD_VARIABLE_MODIFIER, REMOVE_VARIABLE_MODIFIER,
+            ADD_VARIABLE_ANNOTATION, REMOVE_VARIABLE_ANNOTATION, MODIFY_VARIABLE_ANNOTATION, CHANGE_LOOP_TYPE,
+            LOOP_INTERCHANGE, INVERT_CONDITION, REPLACE_ANONYMOUS_WITH_LAMBDA, CHANGE_RETURN_TYPE,
+            ADD_THROWN_EXCEPTION_TYPE, REMOVE_THROWN_EXCEPTION_TYPE, CHANGE_THROWN_EXCEPTION_TYPE,
+            CHANGE_OPERATION_ACCESS_MODIFIER, ADD_METHOD_MODIFIER, REMOVE_METHOD_MODIFIER, ADD_METHOD_ANNOTATION,
+            REMOVE_METHOD_ANNOTATION, MODIFY_METHOD_ANNOTATION);
+
+    static final EnumSet<RefactoringType> MATCHED_AND_ADDED_STATEMENTS = EnumSet.of(
+            EXTRACT_VARIABLE, INLINE_VARIABLE, SPLIT_CONDITIONAL);
+
+    static final EnumSet<RefactoringType> MATCHED_AND_DELETED_STATEMENTS = EnumSet.of(
+            INLINE_VARIABLE, MERGE_CONDITIONAL, MERGE_DECLARATION_AND_ASSIGNMENT, REPLACE_IF_ELSE_WITH_TERNARY);
+
+    static final EnumSet<RefactoringType> ADDED_AND_DELETED_STATEMENTS = EnumSet.of(
+            EXTRACT_VARIABLE, INLINE_VARIABLE, REPLACE_LOOP_WITH_PIPELINE, REPLACE_PIPELINE_WITH_LOOP);
+
+    private final String name;
+    private final EnumSet<RefactoringType> refactoringTypes;
+    private final EnumSet<Input> inputs;
+    private final BiConsumer<DetectionContext, List<Refactoring>> detection;
+
+    BuiltInDetector(String name, EnumSet<RefactoringType> refactoringTypes, EnumSet<Input> inputs,
+                    BiConsumer<DetectionContext, List<Refactoring>> detection) {
+        this.name = name;
+        this.refactoringTypes = refactoringTypes;
+        this.inputs = inputs;
+        this.detection = detection;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public EnumSet<RefactoringType> getRefactoringTypes() {
+        return EnumSet.copyOf(refactoringTypes);
+    }
+
+    @Override
+    public EnumSet<Input> getInputs() {
+        return EnumSet.copyOf(inputs);
+    }
+
+    @Override
+    public void detect(DetectionContext context, List<Refactoring> refactorings) {
+        detection.accept(context, refactorings);
+    }
+}
@@ -0,0 +1,140 @@
+package org.reextractor.service;
+
+import java.util.concurrent.*;
+
+/**
+ * The time budget of the analysis of a commit. The budgets of all threads are enforced by a single daemon watchdog,
+ * which interrupts the thread that detects the refactorings of a commit once its budget is exceeded. The detectors
+ * check for the interruption in their loops and stop by throwing a CancellationException. The matching of the
+ * entities is never interrupted, since the matcher and JGit are not prepared for it, but its time counts toward
+ * the budget, and a matching that must not hold up its caller beyond the budget can be {@link #call(Callable)
+ * abandoned} instead.
+ */
+class CommitBudget implements Runnable {
+
+    private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+    private static final ExecutorService ABANDONABLE = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "ReExtractor matcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String commitId;
+    private final int timeout;
+    private final long deadline;
+    private Thread thread;
+    private ScheduledFuture<?> future;
+    private boolean stopped;
+    private boolean expired;
+
+    private CommitBudget(String commitId, int timeout) {
+        this.commitId = commitId;
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+    }
+
+    /**
+     * Start the budget of a commit, or an unlimited one if the timeout is not positive.
+     *
+     * @param timeout The budget, in seconds.
+     */
+    static CommitBudget start(String commitId, int timeout) {
+        return new CommitBudget(commitId, timeout);
+    }
+
+    /**
+     * Let the watchdog interrupt the current thread once the budget is exceeded.
+     *
+     * @throws TimeoutException if the budget is already exceeded.
+     */
+    synchronized void watch() throws TimeoutException {
+        if (timeout <= 0)
+            return;
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            stopped = true;
+            throw timeoutException();
+        }
+        thread = Thread.currentThread();
+        future = WATCHDOG.schedule(this, remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run a task that cannot be interrupted on another thread, and wait for it until the budget is exceeded. The
+     * task is then abandoned: it runs to its end in the background and its result is discarded, so it must not
+     * share anything with the caller that the caller uses afterwards.
+     *
+     * @return the result of the task.
+     * @throws TimeoutException if the budget is exceeded before the task ends.
+     */
+    <T> T call(Callable<T> task) throws Exception {
+        if (timeout <= 0)
+            return task.call();
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0)
+            throw timeoutException();
+        Future<T> future = ABANDONABLE.submit(task);
+        try {
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw timeoutException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether the budget is limited.
+     */
+    boolean isLimited() {
+        return timeout > 0;
+    }
+
+    /**
+     * Disarm the watchdog. The interruption of the current thread by the watchdog, if any, is cleared.
+     *
+     * @throws TimeoutException if the watchdog interrupted the thread.
+     */
+    synchronized void stop() throws TimeoutException {
+        if (stopped)
+            return;
+        stopped = true;
+        if (future != null)
+            future.cancel(false);
+        if (expired) {
+            Thread.interrupted();
+            throw timeoutException();
+        }
+    }
+
+    @Override
+    public synchronized void run() {
+        if (!stopped) {
+            expired = true;
+            thread.interrupt();
+        }
+    }
+
+    private TimeoutException timeoutException() {
+        return new TimeoutException("The analysis of commit " + commitId + " exceeded " + timeout + " seconds");
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ReExtractor watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most budgets are stopped long before they expire
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+}
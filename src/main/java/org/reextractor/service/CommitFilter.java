@@ -0,0 +1,178 @@
+package org.reextractor.service;
+
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.reextractor.dto.PathFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A cheap test of the Java files a commit changes, made on the trees of the commit and of its first parent before
+ * anything is checked out or parsed. Optionally, a Java file whose changes are limited to comments and whitespace
+ * is not counted: both versions are compared by a hash of their tokens.
+ */
+class CommitFilter {
+
+    private final PathFilter pathFilter;
+    private final boolean skipCosmeticChanges;
+
+    /**
+     * @param pathFilter The files to analyze, or null for all Java files.
+     */
+    CommitFilter(PathFilter pathFilter, boolean skipCosmeticChanges) {
+        this.pathFilter = pathFilter;
+        this.skipCosmeticChanges = skipCosmeticChanges;
+    }
+
+    /**
+     * @return the number of Java files changed by the commit, 0 if there is nothing to match.
+     */
+    int countChangedFiles(Repository repository, RevCommit commit) throws IOException {
+        int changedFiles = 0;
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(repository, reader)) {
+            RevCommit nextCommit = walk.parseCommit(commit);
+            if (nextCommit.getParentCount() == 0)
+                treeWalk.addTree(new EmptyTreeIterator());
+            else
+                treeWalk.addTree(walk.parseCommit(nextCommit.getParent(0)).getTree());
+            treeWalk.addTree(nextCommit.getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(".java")));
+            while (treeWalk.next()) {
+                if (!accepts(pathFilter, reader, treeWalk))
+                    continue;
+                if (skipCosmeticChanges && isCosmeticChange(reader, treeWalk))
+                    continue;
+                changedFiles++;
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * @return whether the file of the tree walk is analyzed. Its versions are only read if the filter looks at
+     * their content; a version too large to be read is not analyzed.
+     */
+    static boolean accepts(PathFilter pathFilter, ObjectReader reader, TreeWalk treeWalk) throws IOException {
+        if (pathFilter == null)
+            return true;
+        if (!pathFilter.acceptsPath(treeWalk.getPathString()))
+            return false;
+        for (int nth = 0; nth < treeWalk.getTreeCount(); nth++) {
+            if (treeWalk.getFileMode(nth).getObjectType() != Constants.OBJ_BLOB)
+                continue;
+            ObjectId blobId = treeWalk.getObjectId(nth);
+            if (!pathFilter.acceptsSize(reader.getObjectSize(blobId, Constants.OBJ_BLOB)))
+                return false;
+            try {
+                if (pathFilter.checksContent() &&
+                        !pathFilter.acceptsContent(reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes()))
+                    return false;
+            } catch (LargeObjectException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCosmeticChange(ObjectReader reader, TreeWalk treeWalk) throws IOException {
+        if (treeWalk.getFileMode(0).getObjectType() != Constants.OBJ_BLOB ||
+                treeWalk.getFileMode(1).getObjectType() != Constants.OBJ_BLOB)
+            return false;
+        try {
+            byte[] previousHash = hashTokens(reader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getCachedBytes());
+            byte[] nextHash = hashTokens(reader.open(treeWalk.getObjectId(1), Constants.OBJ_BLOB).getCachedBytes());
+            return Arrays.equals(previousHash, nextHash);
+        } catch (LargeObjectException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Hash the source code without its comments and without the whitespace between tokens, but a single space
+     * where it separates two tokens (e.g. two words, or the two operators of a - -b). Literals are hashed as they
+     * are. Non-ASCII bytes are treated as parts of words, so that the source does not have to be decoded.
+     */
+    static byte[] hashTokens(byte[] source) {
+        ByteArrayOutputStream tokens = new ByteArrayOutputStream(source.length);
+        byte last = 0;
+        boolean separated = false;
+        int i = 0;
+        while (i < source.length) {
+            byte b = source[i];
+            if (b == '/' && i + 1 < source.length && source[i + 1] == '/') {
+                while (i < source.length && source[i] != '\n')
+                    i++;
+                separated = true;
+                continue;
+            }
+            if (b == '/' && i + 1 < source.length && source[i + 1] == '*') {
+                int end = i + 2;
+                while (end + 1 < source.length && !(source[end] == '*' && source[end + 1] == '/'))
+                    end++;
+                i = end + 2;
+                separated = true;
+                continue;
+            }
+            if (b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f') {
+                i++;
+                separated = true;
+                continue;
+            }
+            if (separated && tokens.size() > 0 && (isWordPart(last) && isWordPart(b) || last == b && (b == '+' || b == '-')))
+                tokens.write(' ');
+            separated = false;
+            int end = b == '"' || b == '\'' ? literalEnd(source, i) : i + 1;
+            tokens.write(source, i, end - i);
+            last = source[end - 1];
+            i = end;
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(tokens.toByteArray());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // the end of the string, character or text block literal that starts at the given quote
+    private static int literalEnd(byte[] source, int start) {
+        byte quote = source[start];
+        boolean textBlock = quote == '"' && start + 2 < source.length && source[start + 1] == '"' &&
+                source[start + 2] == '"';
+        int i = textBlock ? start + 3 : start + 1;
+        while (i < source.length) {
+            if (source[i] == '\\') {
+                i += 2;
+                continue;
+            }
+            if (textBlock) {
+                if (i + 2 < source.length && source[i] == '"' && source[i + 1] == '"' && source[i + 2] == '"')
+                    return i + 3;
+            } else if (source[i] == quote || source[i] == '\n') {
+                return i + 1;
+            }
+            i++;
+        }
+        return source.length;
+    }
+
+    private static boolean isWordPart(int b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_' || b == '$' || b < 0;
+    }
+}
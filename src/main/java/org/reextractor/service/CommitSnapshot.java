@@ -0,0 +1,103 @@
+package org.reextractor.service;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.reextractor.dto.PathFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The Java files changed between two commits, read from the object database of the repository and written
+ * to a pair of scratch directories, so that they can be matched without checking out the working tree.
+ */
+class CommitSnapshot implements AutoCloseable {
+
+    private final Path root;
+    private final Path previousVersion;
+    private final Path nextVersion;
+    private int changedFiles;
+
+    private CommitSnapshot(Path root) throws IOException {
+        this.root = root;
+        this.previousVersion = Files.createDirectory(root.resolve("previous"));
+        this.nextVersion = Files.createDirectory(root.resolve("next"));
+    }
+
+    static CommitSnapshot create(Repository repository, ObjectId startCommit, ObjectId endCommit) throws IOException {
+        return create(repository, startCommit, endCommit, null);
+    }
+
+    /**
+     * @param startCommit The commit of the previous version, or null if the next version is a root commit.
+     * @param endCommit   The commit of the next version.
+     * @param pathFilter  The files to write, or null for all changed Java files.
+     */
+    static CommitSnapshot create(Repository repository, ObjectId startCommit, ObjectId endCommit,
+                                 PathFilter pathFilter) throws IOException {
+        CommitSnapshot snapshot = new CommitSnapshot(Files.createTempDirectory("reextractor-"));
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader);
+             TreeWalk treeWalk = new TreeWalk(repository, reader)) {
+            RevCommit nextCommit = walk.parseCommit(endCommit);
+            if (startCommit == null)
+                treeWalk.addTree(new EmptyTreeIterator());
+            else
+                treeWalk.addTree(walk.parseCommit(startCommit).getTree());
+            treeWalk.addTree(nextCommit.getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, PathSuffixFilter.create(".java")));
+            while (treeWalk.next()) {
+                if (!CommitFilter.accepts(pathFilter, reader, treeWalk))
+                    continue;
+                String path = treeWalk.getPathString();
+                snapshot.write(reader, treeWalk, 0, snapshot.previousVersion.resolve(path));
+                snapshot.write(reader, treeWalk, 1, snapshot.nextVersion.resolve(path));
+                snapshot.changedFiles++;
+            }
+        } catch (IOException | RuntimeException e) {
+            snapshot.close();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    private void write(ObjectReader reader, TreeWalk treeWalk, int nth, Path file) throws IOException {
+        if (treeWalk.getFileMode(nth).getObjectType() != Constants.OBJ_BLOB)
+            return;
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            reader.open(treeWalk.getObjectId(nth), Constants.OBJ_BLOB).copyTo(out);
+        }
+    }
+
+    /**
+     * @return the number of changed Java files.
+     */
+    int getChangedFiles() {
+        return changedFiles;
+    }
+
+    File getPreviousVersion() {
+        return previousVersion.toFile();
+    }
+
+    File getNextVersion() {
+        return nextVersion.toFile();
+    }
+
+    @Override
+    public void close() {
+        FileUtils.deleteQuietly(root.toFile());
+    }
+}
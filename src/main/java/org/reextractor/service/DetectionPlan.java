@@ -0,0 +1,63 @@
+package org.reextractor.service;
+
+import org.reextractor.detector.RefactoringDetector;
+import org.reextractor.refactoring.Refactoring;
+import org.reextractor.refactoring.RefactoringType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The detectors to run for a selection of refactoring types: a detector runs only if it can produce one of the
+ * selected types, and the inputs are computed only if one of these detectors needs them. The refactorings of the
+ * other types that these detectors produce are dropped by {@link #select}.
+ */
+class DetectionPlan {
+
+    private final EnumSet<RefactoringType> types;
+    private final List<RefactoringDetector> detectors = new ArrayList<>();
+    private final EnumSet<RefactoringDetector.Input> inputs = EnumSet.noneOf(RefactoringDetector.Input.class);
+    private final boolean complete;
+
+    /**
+     * @param detectors The enabled detectors, in the order they run.
+     * @param types     The selected types, or null for all types.
+     */
+    DetectionPlan(List<RefactoringDetector> detectors, EnumSet<RefactoringType> types) {
+        this.types = types;
+        EnumSet<RefactoringType> produced = EnumSet.noneOf(RefactoringType.class);
+        for (RefactoringDetector detector : detectors) {
+            EnumSet<RefactoringType> detectorTypes = detector.getRefactoringTypes();
+            if (types != null && Collections.disjoint(types, detectorTypes))
+                continue;
+            this.detectors.add(detector);
+            this.inputs.addAll(detector.getInputs());
+            produced.addAll(detectorTypes);
+        }
+        this.complete = types == null || types.containsAll(produced);
+    }
+
+    List<RefactoringDetector> getDetectors() {
+        return detectors;
+    }
+
+    boolean needs(RefactoringDetector.Input input) {
+        return inputs.contains(input);
+    }
+
+    /**
+     * @return the refactorings of the selected types.
+     */
+    List<Refactoring> select(List<Refactoring> refactorings) {
+        if (complete)
+            return refactorings;
+        List<Refactoring> selected = new ArrayList<>(refactorings.size());
+        for (Refactoring refactoring : refactorings) {
+            if (types.contains(refactoring.getRefactoringType()))
+                selected.add(refactoring);
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,172 @@
+package org.reextractor.service;
+
+import org.reextractor.util.TaskUsage;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Parts of the detection of a commit run concurrently on the common ForkJoinPool. When the thread that waits for
+ * them is interrupted (e.g. by the watchdog of its CommitBudget) or one of them fails, the others stop at their next
+ * {@link #checkInterrupted() checkpoint}, since interrupting the threads of the pool would not reach them.
+ */
+class DetectionTasks {
+
+    // below, splitting the items into chunks costs more than it saves
+    private static final int MIN_CHUNK_SIZE = 32;
+
+    private static final ThreadLocal<AtomicBoolean> CANCELLATION = new ThreadLocal<>();
+
+    /**
+     * Stop the current part of the detection if it has been cancelled.
+     *
+     * @throws CancellationException if the current thread is interrupted or its tasks are cancelled.
+     */
+    static void checkInterrupted() {
+        AtomicBoolean cancelled = CANCELLATION.get();
+        if (Thread.currentThread().isInterrupted() || cancelled != null && cancelled.get())
+            throw new CancellationException();
+    }
+
+    /**
+     * Run the tasks concurrently and wait for all of them.
+     *
+     * @return the results of the tasks, in the same order.
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        // the tasks of a task are cancelled along with it
+        AtomicBoolean cancelled = CANCELLATION.get() != null ? CANCELLATION.get() : new AtomicBoolean();
+        List<ForkJoinTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            // what the task uses on the threads of the pool counts toward the measurements of the current thread
+            Callable<T> measuredTask = TaskUsage.wrap(task);
+            futures.add(ForkJoinPool.commonPool().submit(() -> {
+                AtomicBoolean previous = CANCELLATION.get();
+                CANCELLATION.set(cancelled);
+                try {
+                    checkInterrupted();
+                    return measuredTask.call();
+                } finally {
+                    CANCELLATION.set(previous);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (ForkJoinTask<T> future : futures)
+                results.add(future.get());
+            return results;
+        } catch (CancellationException e) {
+            cancelled.set(true);
+            awaitAll(futures);
+            throw e;
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            awaitAll(futures);
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (ExecutionException e) {
+            cancelled.set(true);
+            awaitAll(futures);
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Apply the action to the items in chunks that run concurrently, each adding to its own lists. The results are then
+     * added in the order of the items, as if the action had been applied to them one after the other.
+     *
+     * @param links The objects each item shares with other items, or null if the items are independent. The items
+     *              that share an object, directly or through other items, run in the same chunk and in their order,
+     *              since the action on one of them may change what the action on another sees.
+     */
+    static <T, R> void forEach(Collection<T> items, Function<T, List<?>> links, BiConsumer<T, List<R>> action, List<R> results) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (parallelism < 2 || items.size() < 2 * MIN_CHUNK_SIZE) {
+            for (T item : items)
+                action.accept(item, results);
+            return;
+        }
+        List<T> list = new ArrayList<>(items);
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, list.size() / (4 * parallelism));
+        AtomicReferenceArray<List<R>> outputs = new AtomicReferenceArray<>(list.size());
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (List<Integer> chunk : chunk(partition(list, links), chunkSize)) {
+            tasks.add(() -> {
+                List<R> output = new ArrayList<>();
+                for (int index : chunk) {
+                    action.accept(list.get(index), output);
+                    if (!output.isEmpty()) {
+                        outputs.set(index, new ArrayList<>(output));
+                        output.clear();
+                    }
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+        for (int i = 0; i < outputs.length(); i++) {
+            if (outputs.get(i) != null)
+                results.addAll(outputs.get(i));
+        }
+    }
+
+    // the indexes of the items linked directly or through other items, grouped in the order of their first items
+    private static <T> List<List<Integer>> partition(List<T> items, Function<T, List<?>> links) {
+        int[] parents = new int[items.size()];
+        for (int i = 0; i < parents.length; i++)
+            parents[i] = i;
+        if (links != null) {
+            Map<Object, Integer> owners = new IdentityHashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                for (Object link : links.apply(items.get(i))) {
+                    Integer owner = owners.putIfAbsent(link, i);
+                    if (owner != null)
+                        parents[root(parents, owner)] = root(parents, i);
+                }
+            }
+        }
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < parents.length; i++)
+            groups.computeIfAbsent(root(parents, i), key -> new ArrayList<>()).add(i);
+        return new ArrayList<>(groups.values());
+    }
+
+    private static int root(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    // consecutive groups are packed into chunks of at least the given size; a larger group is a chunk of its own
+    private static List<List<Integer>> chunk(List<List<Integer>> groups, int chunkSize) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            chunk.addAll(group);
+            if (chunk.size() >= chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty())
+            chunks.add(chunk);
+        return chunks;
+    }
+
+    // the tasks must not outlive the detection, which owns the lists they write to
+    private static void awaitAll(List<? extends ForkJoinTask<?>> futures) {
+        for (ForkJoinTask<?> future : futures)
+            future.quietlyJoin();
+    }
+}
@@ -0,0 +1,120 @@
+package org.reextractor.service;
+
+import org.reextractor.metrics.MiningMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A stage of the mining pipeline. Its workers take the commits from the bounded queue of the stage, work on them and
+ * hand them to the next stage, waiting while the queue of the next stage is full. The metrics show the depth of each
+ * queue, the time the workers of each stage waited for a commit (idle) and the time they waited for the next stage
+ * (stalled): the slowest stage is the one that is never idle while the stages before it stall.
+ */
+class PipelineStage<T> {
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final MiningMetrics metrics;
+    private final Consumer<T> discard;
+    private final BiFunction<T, Throwable, T> fail;
+
+    /**
+     * @param discard Releases a commit that leaves the pipeline before the end, when it is shut down.
+     * @param fail    Records the failure of the work on a commit, which then goes on to the next stage like any other
+     *                commit, so that the results are never waited for in vain.
+     */
+    PipelineStage(String name, int capacity, MiningMetrics metrics, Consumer<T> discard, BiFunction<T, Throwable, T> fail) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.metrics = metrics;
+        this.discard = discard;
+        this.fail = fail;
+    }
+
+    /**
+     * Run the workers of the stage on the executor until it is shut down.
+     */
+    void start(ExecutorService executor, int workers, UnaryOperator<T> work, PipelineStage<T> next) {
+        for (int i = 0; i < workers; i++)
+            executor.execute(() -> work(work, next));
+    }
+
+    /**
+     * Add a commit to the queue without waiting.
+     *
+     * @return false if the queue is full.
+     */
+    boolean offer(T item) {
+        boolean offered = queue.offer(item);
+        metrics.setQueueDepth(name, queue.size());
+        return offered;
+    }
+
+    /**
+     * Wait for the next commit of the queue, e.g. from the thread that delivers the results of the last stage.
+     */
+    T take() throws InterruptedException {
+        long idleTime = System.nanoTime();
+        T item = queue.take();
+        metrics.setQueueDepth(name, queue.size());
+        metrics.addIdleTime(name, System.nanoTime() - idleTime);
+        return item;
+    }
+
+    /**
+     * Discard the commits left in the queue, once the workers around it have stopped.
+     */
+    void shutdown() {
+        List<T> items = new ArrayList<>();
+        queue.drainTo(items);
+        metrics.setQueueDepth(name, 0);
+        for (T item : items)
+            discard.accept(item);
+    }
+
+    private void work(UnaryOperator<T> work, PipelineStage<T> next) {
+        while (true) {
+            T item;
+            try {
+                item = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            T result;
+            try {
+                result = work.apply(item);
+            } catch (RuntimeException | Error e) {
+                result = fail.apply(item, e);
+            }
+            long stallTime = System.nanoTime();
+            try {
+                next.queue.put(result);
+            } catch (InterruptedException e) {
+                discard.accept(result);
+                return;
+            }
+            metrics.setQueueDepth(next.name, next.queue.size());
+            metrics.addStallTime(name, System.nanoTime() - stallTime);
+        }
+    }
+
+    /**
+     * @return an executor that runs each task on a new virtual thread, which suits the stages that mostly wait for
+     * the disk, or a cached thread pool on a JVM without virtual threads (before Java 21).
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package org.reextractor.service;
 
 import org.eclipse.jgit.lib.Repository;
+import org.reextractor.detector.DetectorRegistry;
+import org.reextractor.dto.PathFilter;
 import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.metrics.MiningMetrics;
+import org.reextractor.refactoring.RefactoringType;
 
 import java.io.File;
+import java.util.EnumSet;
 
 public interface RefactoringExtractorService {
 
@@ -95,7 +100,10 @@ public interface RefactoringExtractorService {
      * @param repository A git repository (from JGit library).
      * @param commitId   The SHA key that identifies the commit.
      * @param handler    A handler object that is responsible to process the detected refactorings.
-     * @param timeout    A timeout, in seconds. When timeout is reached, the operation stops and returns no refactorings.
+     * @param timeout    A timeout, in seconds. When timeout is reached, the operation stops, no refactorings are
+     *                   returned and handleException is called with a TimeoutException. A matching of the entities
+     *                   that is still running is abandoned in the background; unless the service is tree-less, it may still change
+     *                   the working tree. If the timeout is not positive, the analysis is not limited.
      */
     void detectAtCommit(Repository repository, String commitId, RefactoringHandler handler, int timeout);
 
@@ -107,4 +115,110 @@ public interface RefactoringExtractorService {
      * @param handler      A handler object that is responsible to process the detected refactorings.
      */
     void detectAtFiles(File previousFile, File nextFile, RefactoringHandler handler);
+
+    /**
+     * Set the number of worker threads used to analyze commits when iterating over a sequence of commits
+     * (detectAll, detectAllBetweenTags and detectAllBetweenCommits). The default is 1, i.e., commits are
+     * analyzed one at a time on the caller thread.
+     *
+     * @param threads The number of worker threads.
+     */
+    void setThreads(int threads);
+
+    /**
+     * Control the order in which the results of a multi-threaded analysis are delivered to the handler.
+     * By default, results are delivered in commit-walk order. When disabled, each result is delivered as soon
+     * as its commit is analyzed. In both cases, the handler is only called from the caller thread.
+     *
+     * @param ordered Whether results are delivered in commit-walk order.
+     */
+    void setOrdered(boolean ordered);
+
+    /**
+     * Enable or disable the tree-less mode. In tree-less mode, the Java files changed by a commit are read
+     * directly from the object database of the repository, so the working tree is never checked out or reset
+     * and several threads can analyze commits of the same clone concurrently. Only the changed files are
+     * parsed, hence types declared in unchanged files are not visible when resolving bindings.
+     *
+     * @param treeless Whether the working tree is left untouched.
+     */
+    void setTreeless(boolean treeless);
+
+    /**
+     * Set a time budget, in seconds, for the analysis of each commit (detectAll, detectAllBetweenTags,
+     * detectAllBetweenCommits and detectAtCommit). A commit that exceeds its budget is reported through
+     * handleException with a TimeoutException and counted as an error. The detection of refactorings stops at its
+     * next checkpoint. When mining a history, the matching of the entities always runs to completion, since the next
+     * commit may need the working tree; detectAtCommit abandons it instead. The default is 0, i.e., no limit.
+     *
+     * @param timeout The budget of each commit, in seconds.
+     */
+    void setTimeout(int timeout);
+
+    /**
+     * Count a Java file whose changes are limited to comments and whitespace as unchanged, so that a commit with
+     * only such changes is neither matched nor analyzed and gets an empty result. Commits that change no Java file
+     * always get an empty result without being matched.
+     *
+     * @param skipCosmeticChanges Whether comment-only and whitespace-only changes are ignored (default false).
+     */
+    void setSkipCosmeticChanges(boolean skipCosmeticChanges);
+
+    /**
+     * Restrict the analysis to some Java files, e.g. to leave out generated or vendored code. With setTreeless, the
+     * files left out are never read or parsed; otherwise, and with detectAtFiles, the matcher still parses every file
+     * and only the refactorings located entirely in files left out are dropped. In both cases, a commit analyzed on
+     * its own (detectAll, detectAllBetweenCommits, detectAllBetweenTags and detectAtCommit) that changes no other
+     * file gets an empty result without being matched.
+     *
+     * @param pathFilter The files to analyze, or null for all Java files (the default).
+     */
+    void setPathFilter(PathFilter pathFilter);
+
+    /**
+     * Detect only the refactorings of the given types. The detectors that cannot produce any of them are
+     * skipped, e.g. all the statement-level phases when only types of classes, methods and attributes are selected.
+     *
+     * @param refactoringTypes The types to detect, or null for all types (the default).
+     */
+    void setRefactoringTypes(EnumSet<RefactoringType> refactoringTypes);
+
+    /**
+     * Run the detectors of a commit concurrently on the common ForkJoinPool, to lower the latency of large commits.
+     * Most detectors also split their entities and statements into chunks that run concurrently, keeping linked items
+     * in the same chunk (see {@link org.reextractor.dto.ChunkGrouping}). The chunks share the indexes of the whole
+     * commit, so this lowers the latency of a commit, not its memory. The refactorings are the same,
+     * in the same order, as when the detectors run one after the other. The profile of a commit then has a single
+     * detection phase; the time of each detector is still recorded by the registry.
+     *
+     * @param parallelDetection Whether the detectors run concurrently (default false).
+     */
+    void setParallelDetection(boolean parallelDetection);
+
+    /**
+     * With setTreeless, mine sequences of commits through a pipeline of stages linked by bounded queues: the reading
+     * of the changed files of a commit (on virtual threads when the JVM has them), the matching of its entities and
+     * the detection of its refactorings (each on the worker threads set by setThreads). The files of the next commits
+     * are read while the current ones are matched and detected, so the throughput is that of the slowest stage.
+     * The depth of the queues and the time each stage waits are exposed by the {@link MiningMetrics}. The handler is
+     * still only called from the caller thread, in the order set by setOrdered. Without setTreeless the commits are
+     * checked out one after the other, so the option has no effect.
+     *
+     * @param pipelined Whether sequences of commits are mined through a pipeline (default false).
+     */
+    void setPipelined(boolean pipelined);
+
+    /**
+     * @return the detectors of the service, to disable some of them or to see what each one costs. Detectors can
+     * also be added with {@link java.util.ServiceLoader}, see {@link org.reextractor.detector.RefactoringDetector}.
+     */
+    DetectorRegistry getDetectorRegistry();
+
+    /**
+     * Set the metrics updated with the progress of the analyzed commits, e.g. metrics registered over JMX with
+     * {@link MiningMetrics#register()}. By default, the service updates private metrics nobody reads.
+     *
+     * @param metrics The metrics of the service.
+     */
+    void setMetrics(MiningMetrics metrics);
 }
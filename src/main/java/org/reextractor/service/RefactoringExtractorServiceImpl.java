@@ -9,12 +9,26 @@ import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.reextractor.detector.DetectionContext;
+import org.reextractor.detector.DetectorRegistry;
+import org.reextractor.detector.RefactoringDetector;
 import org.reextractor.dto.AnnotationListDiff;
+import org.reextractor.dto.CommitProfile;
+import org.reextractor.dto.ChunkGrouping;
+import org.reextractor.dto.MatchedEntityIndex;
+import org.reextractor.dto.MatchedStatementIndex;
+import org.reextractor.dto.PathFilter;
+import org.reextractor.dto.ProfileSummary;
+import org.reextractor.dto.UnmatchedStatementIndex;
 import org.reextractor.dto.Visibility;
 import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.metrics.MiningMetrics;
 import org.reextractor.refactoring.*;
+import org.reextractor.util.ASTCache;
+import org.reextractor.util.ASTFacts;
 import org.reextractor.util.MethodUtils;
 import org.reextractor.util.StringUtils;
+import org.reextractor.util.TaskUsage;
 import org.remapper.dto.*;
 import org.remapper.handler.MatchingHandler;
 import org.remapper.service.EntityMatcherService;
@@ -26,10 +40,81 @@ import org.remapper.util.GitServiceImpl;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class RefactoringExtractorServiceImpl implements RefactoringExtractorService {
 
+    private int threads = 1;
+    private boolean ordered = true;
+    private boolean treeless = false;
+    private int timeout = 0;
+    private boolean skipCosmeticChanges = false;
+    private PathFilter pathFilter;
+    private EnumSet<RefactoringType> refactoringTypes;
+    private boolean parallelDetection = false;
+    private boolean pipelined = false;
+    private final DetectorRegistry registry = new DetectorRegistry(createBuiltInDetectors());
+    private MiningMetrics metrics = new MiningMetrics();
+
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+        this.threads = threads;
+    }
+
+    @Override
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void setTreeless(boolean treeless) {
+        this.treeless = treeless;
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void setSkipCosmeticChanges(boolean skipCosmeticChanges) {
+        this.skipCosmeticChanges = skipCosmeticChanges;
+    }
+
+    @Override
+    public void setPathFilter(PathFilter pathFilter) {
+        this.pathFilter = pathFilter;
+    }
+
+    @Override
+    public void setRefactoringTypes(EnumSet<RefactoringType> refactoringTypes) {
+        this.refactoringTypes = refactoringTypes == null ? null : EnumSet.copyOf(refactoringTypes);
+    }
+
+    @Override
+    public void setParallelDetection(boolean parallelDetection) {
+        this.parallelDetection = parallelDetection;
+    }
+
+    @Override
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    @Override
+    public DetectorRegistry getDetectorRegistry() {
+        return registry;
+    }
+
+    @Override
+    public void setMetrics(MiningMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public void detectAll(Repository repository, final RefactoringHandler handler) throws Exception {
         GitService gitService = new GitServiceImpl();
@@ -66,9 +151,10 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             ObjectId endRefObjectId = gitService.getActualRefObjectId(refTo);
             RevCommit startCommit = walk.parseCommit(startRefObjectId);
             RevCommit endCommit = walk.parseCommit(endRefObjectId);
-            matchPair = service.matchEntities(gitService, repository, startCommit, endCommit, new MatchingHandler() {
-            });
-            refactoringsAtRevision = detectRefactorings(matchPair);
+            matchPair = treeless ? matchEntities(repository, startCommit, endCommit) :
+                    service.matchEntities(gitService, repository, startCommit, endCommit, new MatchingHandler() {
+                    });
+            refactoringsAtRevision = treeless ? detectRefactorings(matchPair) : filterRefactorings(detectRefactorings(matchPair));
         } catch (MissingObjectException ignored) {
         } catch (Exception e) {
             handler.handleException(startTag, endTag, e);
@@ -90,9 +176,10 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         try {
             RevCommit startCommit = walk.parseCommit(repository.resolve(startCommitId));
             RevCommit endCommit = walk.parseCommit(repository.resolve(endCommitId));
-            matchPair = service.matchEntities(gitService, repository, startCommit, endCommit, new MatchingHandler() {
-            });
-            refactoringsAtRevision = detectRefactorings(matchPair);
+            matchPair = treeless ? matchEntities(repository, startCommit, endCommit) :
+                    service.matchEntities(gitService, repository, startCommit, endCommit, new MatchingHandler() {
+                    });
+            refactoringsAtRevision = treeless ? detectRefactorings(matchPair) : filterRefactorings(detectRefactorings(matchPair));
         } catch (MissingObjectException ignored) {
         } catch (Exception e) {
             handler.handleException(startCommitId, endCommitId, e);
@@ -120,13 +207,18 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     @Override
     public void detectAtCommit(Repository repository, String commitId, RefactoringHandler handler) {
+        detectAtCommit(repository, commitId, handler, timeout);
+    }
+
+    @Override
+    public void detectAtCommit(Repository repository, String commitId, RefactoringHandler handler, int timeout) {
         RevWalk walk = new RevWalk(repository);
         GitService gitService = new GitServiceImpl();
         try {
             RevCommit commit = walk.parseCommit(repository.resolve(commitId));
             if (commit.getParentCount() > 0) {
                 walk.parseCommit(commit.getParent(0));
-                this.detectRefactorings(gitService, repository, handler, commit);
+                this.detectRefactorings(gitService, repository, handler, commit, timeout);
             }
         } catch (MissingObjectException ignored) {
         } catch (Exception e) {
@@ -137,63 +229,503 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         }
     }
 
-    @Override
-    public void detectAtCommit(Repository repository, String commitId, RefactoringHandler handler, int timeout) {
-        ExecutorService service = Executors.newSingleThreadExecutor();
-        Future<?> f = null;
-        try {
-            Runnable r = () -> detectAtCommit(repository, commitId, handler);
-            f = service.submit(r);
-            f.get(timeout, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            f.cancel(true);
-        } catch (ExecutionException | InterruptedException e) {
-            e.printStackTrace();
-        } finally {
-            service.shutdown();
-        }
-    }
-
     private void detectRefactorings(Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+        if (pipelined && treeless) {
+            detectRefactoringsInPipeline(repository, handler, i);
+            return;
+        }
+        if (threads > 1) {
+            detectRefactoringsInParallel(repository, handler, i);
+            return;
+        }
         int commitsCount = 0;
         int errorCommitsCount = 0;
         int refactoringsCount = 0;
-        EntityMatcherService service = new EntityMatcherServiceImpl();
+        ProfileSummary summary = new ProfileSummary();
         GitService gitService = new GitServiceImpl();
         while (i.hasNext()) {
             RevCommit currentCommit = i.next();
             String commitId = currentCommit.getId().getName();
+            if (handler.skipCommit(commitId)) {
+                metrics.commitSkipped();
+                handler.handleSkipped(commitId);
+                continue;
+            }
+            CommitProfile profile = new CommitProfile(commitId);
+            metrics.commitStarted(commitId);
             try {
-                MatchPair matchPair = service.matchEntities(gitService, repository, currentCommit, new MatchingHandler() {
-                });
-                List<Refactoring> refactoringsAtRevision = detectRefactorings(matchPair);
+                CommitBudget budget = CommitBudget.start(commitId, timeout);
+                MatchPair matchPair = matchEntities(gitService, repository, currentCommit, profile);
+                List<Refactoring> refactoringsAtRevision = detectRefactorings(matchPair, budget, profile);
                 refactoringsCount += refactoringsAtRevision.size();
                 handler.handle(commitId, matchPair, refactoringsAtRevision);
+                metrics.commitHandled(refactoringsAtRevision);
             } catch (Exception e) {
+                metrics.commitFailed();
                 handler.handleException(commitId, e);
                 errorCommitsCount++;
             } finally {
-                try {
-                    gitService.resetHard(repository);
-                } catch (Exception ignored) {
+                if (!treeless) {
+                    try {
+                        gitService.resetHard(repository);
+                    } catch (Exception ignored) {
+                    }
                 }
+                profile.end();
+                metrics.commitAnalyzed(commitId, profile);
+                handler.handleProfile(commitId, profile);
+                summary.add(commitId, profile);
             }
             commitsCount++;
         }
-        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount);
+        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount, summary);
+    }
+
+    // the commit walk and all handler callbacks stay on the caller thread, so neither has to be thread-safe
+    private void detectRefactoringsInParallel(Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+        int commitsCount = 0;
+        int errorCommitsCount = 0;
+        int refactoringsCount = 0;
+        ProfileSummary summary = new ProfileSummary();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<CommitResult> completionService = new ExecutorCompletionService<>(executor);
+        Deque<Future<CommitResult>> pending = new ArrayDeque<>();
+        Object workingTree = new Object();
+        try {
+            while (i.hasNext() || !pending.isEmpty()) {
+                while (i.hasNext() && pending.size() < threads * 2) {
+                    ObjectId commitId = i.next().getId().copy();
+                    if (handler.skipCommit(commitId.getName())) {
+                        metrics.commitSkipped();
+                        if (ordered)
+                            pending.add(CompletableFuture.completedFuture(new CommitResult(commitId.getName())));
+                        else
+                            handler.handleSkipped(commitId.getName());
+                        continue;
+                    }
+                    Callable<CommitResult> task = () -> analyzeCommit(repository, commitId, workingTree);
+                    pending.add(ordered ? executor.submit(task) : completionService.submit(task));
+                }
+                metrics.setQueueDepth("pending", pending.size());
+                if (pending.isEmpty())
+                    break;
+                Future<CommitResult> future;
+                if (ordered) {
+                    future = pending.poll();
+                } else {
+                    future = completionService.take();
+                    pending.remove(future);
+                }
+                CommitResult result = getResult(future);
+                if (result.skipped) {
+                    handler.handleSkipped(result.commitId);
+                    continue;
+                }
+                try {
+                    if (result.exception != null)
+                        throw result.exception;
+                    refactoringsCount += result.refactorings.size();
+                    handler.handle(result.commitId, result.matchPair, result.refactorings);
+                    metrics.commitHandled(result.refactorings);
+                } catch (Exception e) {
+                    metrics.commitFailed();
+                    handler.handleException(result.commitId, e);
+                    errorCommitsCount++;
+                } finally {
+                    handler.handleProfile(result.commitId, result.profile);
+                    summary.add(result.commitId, result.profile);
+                }
+                commitsCount++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount, summary);
+    }
+
+    private CommitResult analyzeCommit(Repository repository, ObjectId commitId, Object workingTree) {
+        GitService gitService = new GitServiceImpl();
+        CommitProfile profile = new CommitProfile(commitId.getName());
+        metrics.commitStarted(commitId.getName());
+        try (RevWalk walk = new RevWalk(repository)) {
+            RevCommit currentCommit = walk.parseCommit(commitId);
+            for (RevCommit parent : currentCommit.getParents())
+                walk.parseHeaders(parent);
+            CommitBudget budget = CommitBudget.start(commitId.getName(), timeout);
+            MatchPair matchPair;
+            if (!hasJavaChanges(repository, currentCommit, profile)) {
+                matchPair = new MatchPair();
+            } else if (treeless) {
+                matchPair = matchChangedEntities(gitService, repository, currentCommit, profile);
+            } else {
+                // the matcher works on the shared working tree, so only the detection itself runs concurrently
+                synchronized (workingTree) {
+                    budget = CommitBudget.start(commitId.getName(), timeout);
+                    profile.start();
+                    try {
+                        matchPair = matchChangedEntities(gitService, repository, currentCommit, profile);
+                    } finally {
+                        try {
+                            gitService.resetHard(repository);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                }
+            }
+            List<Refactoring> refactorings = detectRefactorings(matchPair, budget, profile);
+            return new CommitResult(commitId.getName(), matchPair, refactorings, profile, null);
+        } catch (Exception e) {
+            return new CommitResult(commitId.getName(), null, null, profile, e);
+        } finally {
+            profile.end();
+            metrics.commitAnalyzed(commitId.getName(), profile);
+        }
+    }
+
+    // the commits flow through bounded queues from the walk to the reading of their files (on virtual threads, since
+    // it mostly waits for the disk), the matching and the detection (on platform threads), and back to the caller
+    // thread, which delivers the results; the walk and the handler callbacks stay on the caller thread
+    private void detectRefactoringsInPipeline(Repository repository, final RefactoringHandler handler, Iterator<RevCommit> i) {
+        int commitsCount = 0;
+        int errorCommitsCount = 0;
+        int refactoringsCount = 0;
+        ProfileSummary summary = new ProfileSummary();
+        int capacity = threads * 2;
+        // the commits walked but not delivered yet, in the queues, in the stages or waiting for an earlier commit
+        int window = capacity * 4;
+        Consumer<PipelinedCommit> discard = PipelinedCommit::close;
+        BiFunction<PipelinedCommit, Throwable, PipelinedCommit> fail = PipelinedCommit::fail;
+        PipelineStage<PipelinedCommit> reading = new PipelineStage<>(CommitProfile.READING, capacity, metrics, discard, fail);
+        PipelineStage<PipelinedCommit> matching = new PipelineStage<>(CommitProfile.MATCHING, capacity, metrics, discard, fail);
+        PipelineStage<PipelinedCommit> detection = new PipelineStage<>(CommitProfile.DETECTION, capacity, metrics, discard, fail);
+        PipelineStage<PipelinedCommit> delivery = new PipelineStage<>("delivery", capacity, metrics, discard, fail);
+        ExecutorService readers = PipelineStage.newVirtualThreadExecutor();
+        ExecutorService workers = Executors.newFixedThreadPool(threads * 2);
+        reading.start(readers, capacity, commit -> readCommit(repository, commit), matching);
+        matching.start(workers, threads, this::matchCommit, detection);
+        detection.start(workers, threads, this::detectCommit, delivery);
+        Map<Long, PipelinedCommit> done = new HashMap<>();
+        List<PipelinedCommit> deliverable = new ArrayList<>();
+        PipelinedCommit walked = null;
+        long walkedCount = 0;
+        long deliveredCount = 0;
+        int inFlight = 0;
+        try {
+            while (true) {
+                // in order, a slow commit holds back the ones after it, so the walk waits for it once the window is full
+                while (walked != null || i.hasNext() && (!ordered || walkedCount - deliveredCount < window)) {
+                    if (walked == null) {
+                        ObjectId commitId = i.next().getId().copy();
+                        walked = new PipelinedCommit(walkedCount++, commitId.getName(), commitId);
+                        if (handler.skipCommit(walked.commitId)) {
+                            metrics.commitSkipped();
+                            walked.skipped = true;
+                            if (ordered)
+                                done.put(walked.sequence, walked);
+                            else
+                                handler.handleSkipped(walked.commitId);
+                            walked = null;
+                            continue;
+                        }
+                    }
+                    if (!reading.offer(walked))
+                        break;
+                    walked = null;
+                    inFlight++;
+                }
+                if (ordered) {
+                    while (done.containsKey(deliveredCount))
+                        deliverable.add(done.remove(deliveredCount++));
+                }
+                if (deliverable.isEmpty()) {
+                    if (inFlight == 0) {
+                        if (walked == null && !i.hasNext())
+                            break;
+                        continue;
+                    }
+                    PipelinedCommit commit = delivery.take();
+                    inFlight--;
+                    if (ordered)
+                        done.put(commit.sequence, commit);
+                    else
+                        deliverable.add(commit);
+                    continue;
+                }
+                for (PipelinedCommit commit : deliverable) {
+                    if (commit.skipped) {
+                        handler.handleSkipped(commit.commitId);
+                        continue;
+                    }
+                    if (commit.failure instanceof Error)
+                        throw (Error) commit.failure;
+                    try {
+                        if (commit.failure != null)
+                            throw (Exception) commit.failure;
+                        refactoringsCount += commit.refactorings.size();
+                        handler.handle(commit.commitId, commit.matchPair, commit.refactorings);
+                        metrics.commitHandled(commit.refactorings);
+                    } catch (Exception e) {
+                        metrics.commitFailed();
+                        handler.handleException(commit.commitId, e);
+                        errorCommitsCount++;
+                    } finally {
+                        handler.handleProfile(commit.commitId, commit.profile);
+                        summary.add(commit.commitId, commit.profile);
+                    }
+                    commitsCount++;
+                }
+                deliverable.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readers.shutdownNow();
+            workers.shutdownNow();
+            try {
+                readers.awaitTermination(1, TimeUnit.MINUTES);
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reading.shutdown();
+            matching.shutdown();
+            detection.shutdown();
+            delivery.shutdown();
+        }
+        handler.onFinish(refactoringsCount, commitsCount, errorCommitsCount, summary);
+    }
+
+    // reads the changed files of the commit into a snapshot; a commit without Java changes has none
+    private PipelinedCommit readCommit(Repository repository, PipelinedCommit commit) {
+        commit.profile = new CommitProfile(commit.commitId);
+        metrics.commitStarted(commit.commitId);
+        try (RevWalk walk = new RevWalk(repository)) {
+            RevCommit currentCommit = walk.parseCommit(commit.objectId);
+            for (RevCommit parent : currentCommit.getParents())
+                walk.parseHeaders(parent);
+            if (hasJavaChanges(repository, currentCommit, commit.profile)) {
+                RevCommit parentCommit = currentCommit.getParentCount() > 0 ? currentCommit.getParent(0) : null;
+                commit.snapshot = CommitSnapshot.create(repository, parentCommit, currentCommit, pathFilter);
+                commit.profile.setChangedFiles(commit.snapshot.getChangedFiles());
+                commit.profile.lap(CommitProfile.READING);
+            }
+        } catch (Exception | Error e) {
+            commit.failure = e;
+        }
+        return commit;
+    }
+
+    private PipelinedCommit matchCommit(PipelinedCommit commit) {
+        if (commit.failure != null)
+            return commit;
+        // neither the time in the queue nor the reading counts toward the budget
+        commit.profile.start();
+        commit.budget = CommitBudget.start(commit.commitId, timeout);
+        try {
+            if (commit.snapshot == null) {
+                commit.matchPair = new MatchPair();
+            } else {
+                EntityMatcherService service = new EntityMatcherServiceImpl();
+                commit.matchPair = service.matchEntities(commit.snapshot.getPreviousVersion(), commit.snapshot.getNextVersion(),
+                        new MatchingHandler() {
+                        });
+                commit.profile.lap(CommitProfile.MATCHING);
+            }
+        } catch (Exception | Error e) {
+            commit.failure = e;
+        } finally {
+            commit.close();
+        }
+        return commit;
+    }
+
+    private PipelinedCommit detectCommit(PipelinedCommit commit) {
+        try {
+            if (commit.failure == null) {
+                commit.profile.start();
+                commit.refactorings = detectRefactorings(commit.matchPair, commit.budget, commit.profile);
+            }
+        } catch (Exception | Error e) {
+            commit.failure = e;
+        } finally {
+            commit.profile.end();
+            metrics.commitAnalyzed(commit.commitId, commit.profile);
+        }
+        return commit;
+    }
+
+    private CommitResult getResult(Future<CommitResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static class CommitResult {
+
+        private final String commitId;
+        private final MatchPair matchPair;
+        private final List<Refactoring> refactorings;
+        private final CommitProfile profile;
+        private final Exception exception;
+        private final boolean skipped;
+
+        private CommitResult(String commitId, MatchPair matchPair, List<Refactoring> refactorings, CommitProfile profile,
+                             Exception exception) {
+            this.commitId = commitId;
+            this.matchPair = matchPair;
+            this.refactorings = refactorings;
+            this.profile = profile;
+            this.exception = exception;
+            this.skipped = false;
+        }
+
+        private CommitResult(String commitId) {
+            this.commitId = commitId;
+            this.matchPair = null;
+            this.refactorings = null;
+            this.profile = null;
+            this.exception = null;
+            this.skipped = true;
+        }
+    }
+
+    // a commit in the pipeline, handed from stage to stage through queues
+    private static class PipelinedCommit {
+
+        private final long sequence;
+        private final String commitId;
+        private final ObjectId objectId;
+        private boolean skipped;
+        private CommitProfile profile;
+        private CommitSnapshot snapshot;
+        private CommitBudget budget;
+        private MatchPair matchPair;
+        private List<Refactoring> refactorings;
+        private Throwable failure;
+
+        private PipelinedCommit(long sequence, String commitId, ObjectId objectId) {
+            this.sequence = sequence;
+            this.commitId = commitId;
+            this.objectId = objectId;
+        }
+
+        private void close() {
+            if (snapshot != null) {
+                snapshot.close();
+                snapshot = null;
+            }
+        }
+
+        private PipelinedCommit fail(Throwable failure) {
+            if (this.failure == null)
+                this.failure = failure;
+            close();
+            return this;
+        }
     }
 
     protected void detectRefactorings(GitService gitService, Repository repository, final RefactoringHandler handler, RevCommit currentCommit) throws Exception {
+        detectRefactorings(gitService, repository, handler, currentCommit, timeout);
+    }
+
+    private void detectRefactorings(GitService gitService, Repository repository, final RefactoringHandler handler, RevCommit currentCommit,
+                                    int timeout) throws Exception {
         List<Refactoring> refactoringsAtRevision = Collections.emptyList();
         MatchPair matchPair = new MatchPair();
-        EntityMatcherService service = new EntityMatcherServiceImpl();
         String commitId = currentCommit.getId().getName();
-        if (currentCommit.getParentCount() > 0) {
-            matchPair = service.matchEntities(gitService, repository, currentCommit, new MatchingHandler() {
+        if (handler.skipCommit(commitId)) {
+            metrics.commitSkipped();
+            handler.handleSkipped(commitId);
+            return;
+        }
+        CommitProfile profile = new CommitProfile(commitId);
+        metrics.commitStarted(commitId);
+        boolean handled = false;
+        try {
+            if (currentCommit.getParentCount() > 0) {
+                CommitBudget budget = CommitBudget.start(commitId, timeout);
+                matchPair = matchEntities(gitService, repository, currentCommit, profile, budget);
+                refactoringsAtRevision = detectRefactorings(matchPair, budget, profile);
+            }
+            handler.handle(commitId, matchPair, refactoringsAtRevision);
+            metrics.commitHandled(refactoringsAtRevision);
+            handled = true;
+        } finally {
+            profile.end();
+            metrics.commitAnalyzed(commitId, profile);
+            if (!handled)
+                metrics.commitFailed();
+            handler.handleProfile(commitId, profile);
+        }
+    }
+
+    // the matching cannot be interrupted, so with a budget it runs on another thread and is abandoned once the budget
+    // is exceeded, so that the caller never waits longer than the budget; the phases of the matching are profiled
+    // apart, so that an abandoned matching does not touch the profile of the commit
+    private MatchPair matchEntities(GitService gitService, Repository repository, RevCommit currentCommit,
+                                    CommitProfile profile, CommitBudget budget) throws Exception {
+        if (!budget.isLimited())
+            return matchEntities(gitService, repository, currentCommit, profile);
+        CommitProfile matchingProfile = new CommitProfile(profile.getCommitId());
+        MatchPair matchPair = budget.call(() -> {
+            matchingProfile.start();
+            return matchEntities(gitService, repository, currentCommit, matchingProfile);
+        });
+        profile.add(matchingProfile);
+        profile.start();
+        return matchPair;
+    }
+
+    private MatchPair matchEntities(GitService gitService, Repository repository, RevCommit currentCommit,
+                                    CommitProfile profile) throws Exception {
+        if (!hasJavaChanges(repository, currentCommit, profile))
+            return new MatchPair();
+        return matchChangedEntities(gitService, repository, currentCommit, profile);
+    }
+
+    // tells commits that change no Java file (e.g. documentation or build changes) from a diff of the trees alone,
+    // so that they are neither checked out nor matched
+    private boolean hasJavaChanges(Repository repository, RevCommit currentCommit, CommitProfile profile) throws Exception {
+        int changedFiles = new CommitFilter(pathFilter, skipCosmeticChanges).countChangedFiles(repository, currentCommit);
+        profile.setChangedFiles(changedFiles);
+        profile.lap(CommitProfile.FILTERING);
+        return changedFiles > 0;
+    }
+
+    private MatchPair matchChangedEntities(GitService gitService, Repository repository, RevCommit currentCommit,
+                                           CommitProfile profile) throws Exception {
+        if (treeless) {
+            RevCommit parentCommit = currentCommit.getParentCount() > 0 ? currentCommit.getParent(0) : null;
+            return matchEntities(repository, parentCommit, currentCommit, profile);
+        }
+        EntityMatcherService service = new EntityMatcherServiceImpl();
+        MatchPair matchPair = service.matchEntities(gitService, repository, currentCommit, new MatchingHandler() {
+        });
+        profile.lap(CommitProfile.MATCHING);
+        return matchPair;
+    }
+
+    private MatchPair matchEntities(Repository repository, RevCommit startCommit, RevCommit endCommit) throws Exception {
+        return matchEntities(repository, startCommit, endCommit, new CommitProfile());
+    }
+
+    private MatchPair matchEntities(Repository repository, RevCommit startCommit, RevCommit endCommit,
+                                    CommitProfile profile) throws Exception {
+        EntityMatcherService service = new EntityMatcherServiceImpl();
+        try (CommitSnapshot snapshot = CommitSnapshot.create(repository, startCommit, endCommit, pathFilter)) {
+            profile.setChangedFiles(snapshot.getChangedFiles());
+            profile.lap(CommitProfile.READING);
+            MatchPair matchPair = service.matchEntities(snapshot.getPreviousVersion(), snapshot.getNextVersion(), new MatchingHandler() {
             });
-            refactoringsAtRevision = detectRefactorings(matchPair);
+            profile.lap(CommitProfile.MATCHING);
+            return matchPair;
         }
-        handler.handle(commitId, matchPair, refactoringsAtRevision);
     }
 
     public void detectAtFiles(File previousFile, File nextFile, RefactoringHandler handler) {
@@ -204,58 +736,191 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         try {
             matchPair = service.matchEntities(previousFile, nextFile, new MatchingHandler() {
             });
-            refactoringsAtRevision = detectRefactorings(matchPair);
+            refactoringsAtRevision = filterRefactorings(detectRefactorings(matchPair));
         } catch (Exception e) {
             handler.handleException(id, e);
         }
         handler.handle(id, matchPair, refactoringsAtRevision);
     }
 
+    private List<Refactoring> detectRefactorings(MatchPair matchPair, CommitBudget budget, CommitProfile profile) throws TimeoutException {
+        if (profile.getChangedFiles() == 0)
+            return Collections.emptyList();
+        budget.watch();
+        try {
+            List<Refactoring> refactorings = detectRefactorings(matchPair, profile);
+            // in checkout mode the matcher reads every file, so the files left out by the path filter are only
+            // left out of the result
+            if (!treeless && pathFilter != null) {
+                refactorings = filterRefactorings(refactorings);
+                profile.setRefactoringsCount(refactorings.size());
+            }
+            return refactorings;
+        } finally {
+            profile.end();
+            budget.stop();
+        }
+    }
+
+    // the refactorings located in a file accepted by the path filter, for a matcher that read every file
+    private List<Refactoring> filterRefactorings(List<Refactoring> refactorings) {
+        if (pathFilter == null)
+            return refactorings;
+        List<Refactoring> accepted = new ArrayList<>(refactorings.size());
+        for (Refactoring refactoring : refactorings) {
+            if (acceptsAnyPath(refactoring.leftSide()) || acceptsAnyPath(refactoring.rightSide()))
+                accepted.add(refactoring);
+        }
+        return accepted;
+    }
+
+    private boolean acceptsAnyPath(List<CodeRange> ranges) {
+        for (CodeRange range : ranges) {
+            if (pathFilter.acceptsPath(range.getFilePath()))
+                return true;
+        }
+        return false;
+    }
+
+    // lets the watchdog stop the detection of a commit that exceeds its time budget (see CommitBudget)
+    private static void checkInterrupted() {
+        DetectionTasks.checkInterrupted();
+    }
+
     protected List<Refactoring> detectRefactorings(MatchPair matchPair) {
+        return detectRefactorings(matchPair, new CommitProfile());
+    }
+
+    /**
+     * Detect the refactorings of the matched entities and statements, and record the time of each phase in the profile.
+     */
+    protected List<Refactoring> detectRefactorings(MatchPair matchPair, CommitProfile profile) {
+        DetectionPlan plan = new DetectionPlan(registry.getEnabledDetectors(), refactoringTypes);
+        profile.count(matchPair);
+        DetectionContext context = createDetectionContext(matchPair, plan);
+        profile.lap(CommitProfile.INDEXING);
+
         List<Refactoring> refactorings = new ArrayList<>();
-        Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities = matchPair.getMatchedEntities();
-        Set<DeclarationNodeTree> inlinedEntities = matchPair.getInlinedEntities();
-        Set<DeclarationNodeTree> extractedEntities = matchPair.getExtractedEntities();
-        Set<DeclarationNodeTree> addedEntities = matchPair.getAddedEntities();
-        Set<DeclarationNodeTree> deletedEntities = matchPair.getDeletedEntities();
-        Map<DeclarationNodeTree, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>>> introducedObjects = matchPair.getIntroducedObjects();
-        Set<Pair<MethodNode, MethodNode>> methodNodePairs = mapMethodNodePairs(matchedEntities, inlinedEntities, extractedEntities);
-        Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements = matchPair.getMatchedStatements();
-        Set<StatementNodeTree> deletedStatements = matchPair.getDeletedStatements();
-        Set<StatementNodeTree> addedStatements = matchPair.getAddedStatements();
-
-        detectRefactoringsInMatchedEntities(matchedEntities, refactorings);
-        detectRefactoringsBetweenMatchedAndAddedEntities(matchPair, matchedEntities, addedEntities, matchedStatements, refactorings);
-        detectRefactoringsBetweenMatchedDeletedEntities(matchedEntities, deletedEntities, matchedStatements, refactorings);
-        detectRefactoringsInIntroducedObjects(introducedObjects, matchPair, refactorings);
-
-        detectRefactoringsInMatchedStatements(matchedStatements, refactorings);
-        detectRefactoringsBetweenMatchedAndAddedStatements(methodNodePairs, matchedStatements, addedStatements, refactorings);
-        detectRefactoringsBetweenMatchedAndDeletedStatements(methodNodePairs, matchedStatements, deletedStatements, refactorings);
-        detectRefactoringsBetweenAddedAndDeletedStatements(methodNodePairs, addedStatements, deletedStatements, matchPair, refactorings);
+        if (parallelDetection) {
+            TaskUsage tasks = TaskUsage.start();
+            try {
+                detectInParallel(plan.getDetectors(), context, refactorings);
+            } finally {
+                tasks.stop();
+            }
+            profile.addCpuTime(tasks.getCpuTime());
+            profile.lap(CommitProfile.DETECTION);
+        } else {
+            for (RefactoringDetector detector : plan.getDetectors()) {
+                registry.detect(detector, context, refactorings);
+                profile.lap(detector.getName());
+            }
+        }
+        refactorings = plan.select(refactorings);
+        profile.setRefactoringsCount(refactorings.size());
         return refactorings;
     }
 
-    private Set<Pair<MethodNode, MethodNode>> mapMethodNodePairs(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities,
+    /**
+     * @return the inputs of all the enabled detectors for the matched entities and statements, e.g. to run a single
+     * detector of the registry on them.
+     */
+    DetectionContext createDetectionContext(MatchPair matchPair) {
+        return createDetectionContext(matchPair, new DetectionPlan(registry.getEnabledDetectors(), null));
+    }
+
+    private DetectionContext createDetectionContext(MatchPair matchPair, DetectionPlan plan) {
+        MatchedEntityIndex entityIndex = new MatchedEntityIndex(matchPair.getMatchedEntities());
+        MatchedStatementIndex statementIndex = plan.needs(RefactoringDetector.Input.STATEMENTS) ?
+                new MatchedStatementIndex(matchPair.getMatchedStatements()) : null;
+        Set<Pair<MethodNode, MethodNode>> methodNodePairs = plan.needs(RefactoringDetector.Input.METHOD_PAIRS) ?
+                mapMethodNodePairs(entityIndex, matchPair.getInlinedEntities(), matchPair.getExtractedEntities()) : null;
+        // only decides which items share a chunk; every chunk still sees the indexes of the whole commit
+        ChunkGrouping grouping = parallelDetection ? new ChunkGrouping(matchPair, methodNodePairs) : null;
+        return new DetectionContext(matchPair, entityIndex, statementIndex, methodNodePairs, grouping);
+    }
+
+    // each detector writes to its own list, and the lists are merged in the order the detectors would have run one
+    // after the other; a detector that reads the refactorings found before it waits for the detectors before it
+    private void detectInParallel(List<RefactoringDetector> detectors, DetectionContext context, List<Refactoring> refactorings) {
+        int start = 0;
+        while (start < detectors.size()) {
+            int end = start + 1;
+            while (end < detectors.size() && !detectors.get(end).getInputs().contains(RefactoringDetector.Input.REFACTORINGS))
+                end++;
+            List<Callable<List<Refactoring>>> tasks = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                RefactoringDetector detector = detectors.get(i);
+                List<Refactoring> output = i == start ? refactorings : new ArrayList<>();
+                tasks.add(() -> {
+                    registry.detect(detector, context, output);
+                    return output;
+                });
+            }
+            List<List<Refactoring>> outputs = DetectionTasks.invokeAll(tasks);
+            for (int i = 1; i < outputs.size(); i++)
+                refactorings.addAll(outputs.get(i));
+            start = end;
+        }
+    }
+
+    // the detection phases below, in the order they run
+    private List<RefactoringDetector> createBuiltInDetectors() {
+        EnumSet<RefactoringDetector.Input> entities = EnumSet.of(RefactoringDetector.Input.ENTITIES);
+        // the extract and inline method phases look at the matched statements too
+        EnumSet<RefactoringDetector.Input> entitiesAndStatements = EnumSet.of(RefactoringDetector.Input.ENTITIES,
+                RefactoringDetector.Input.STATEMENTS);
+        EnumSet<RefactoringDetector.Input> statements = EnumSet.of(RefactoringDetector.Input.STATEMENTS);
+        EnumSet<RefactoringDetector.Input> methodPairs = EnumSet.of(RefactoringDetector.Input.METHOD_PAIRS);
+        // adds the references of the variables extracted by the phases before
+        EnumSet<RefactoringDetector.Input> methodPairsAndRefactorings = EnumSet.of(RefactoringDetector.Input.METHOD_PAIRS,
+                RefactoringDetector.Input.REFACTORINGS);
+        return List.of(
+                new BuiltInDetector("detectRefactoringsInMatchedEntities", BuiltInDetector.MATCHED_ENTITIES, entities,
+                        (context, refactorings) -> detectRefactoringsInMatchedEntities(context.getEntityIndex(), context.getChunkGrouping(),
+                                refactorings)),
+                new BuiltInDetector("detectRefactoringsBetweenMatchedAndAddedEntities", BuiltInDetector.MATCHED_AND_ADDED_ENTITIES,
+                        entitiesAndStatements, (context, refactorings) -> detectRefactoringsBetweenMatchedAndAddedEntities(
+                        context.getMatchPair(), context.getEntityIndex(), context.getMatchPair().getAddedEntities(),
+                        context.getStatementIndex(), context.getChunkGrouping(), refactorings)),
+                new BuiltInDetector("detectRefactoringsBetweenMatchedDeletedEntities", BuiltInDetector.MATCHED_AND_DELETED_ENTITIES,
+                        entitiesAndStatements, (context, refactorings) -> detectRefactoringsBetweenMatchedDeletedEntities(
+                        context.getEntityIndex(), context.getMatchPair().getDeletedEntities(), context.getStatementIndex(),
+                        context.getChunkGrouping(), refactorings)),
+                new BuiltInDetector("detectRefactoringsInIntroducedObjects", BuiltInDetector.INTRODUCED_OBJECTS, entities,
+                        (context, refactorings) -> detectRefactoringsInIntroducedObjects(
+                                context.getMatchPair().getIntroducedObjects(), context.getEntityIndex(), refactorings)),
+                new BuiltInDetector("detectRefactoringsInMatchedStatements", BuiltInDetector.MATCHED_STATEMENTS, statements,
+                        (context, refactorings) -> detectRefactoringsInMatchedStatements(context.getStatementIndex(), context.getChunkGrouping(),
+                                refactorings)),
+                new BuiltInDetector("detectRefactoringsBetweenMatchedAndAddedStatements", BuiltInDetector.MATCHED_AND_ADDED_STATEMENTS,
+                        methodPairs, (context, refactorings) -> detectRefactoringsBetweenMatchedAndAddedStatements(
+                        context.getMethodNodePairs(), context.getMatchPair().getMatchedStatements(),
+                        context.getMatchPair().getAddedStatements(), context.getChunkGrouping(), refactorings)),
+                new BuiltInDetector("detectRefactoringsBetweenMatchedAndDeletedStatements", BuiltInDetector.MATCHED_AND_DELETED_STATEMENTS,
+                        methodPairs, (context, refactorings) -> detectRefactoringsBetweenMatchedAndDeletedStatements(
+                        context.getMethodNodePairs(), context.getMatchPair().getMatchedStatements(),
+                        context.getMatchPair().getDeletedStatements(), context.getChunkGrouping(), refactorings)),
+                new BuiltInDetector("detectRefactoringsBetweenAddedAndDeletedStatements", BuiltInDetector.ADDED_AND_DELETED_STATEMENTS,
+                        methodPairsAndRefactorings, (context, refactorings) -> detectRefactoringsBetweenAddedAndDeletedStatements(
+                        context.getMethodNodePairs(), context.getMatchPair().getAddedStatements(),
+                        context.getMatchPair().getDeletedStatements(), context.getMatchPair(), refactorings)));
+    }
+
+    private Set<Pair<MethodNode, MethodNode>> mapMethodNodePairs(MatchedEntityIndex entityIndex,
                                                                  Set<DeclarationNodeTree> inlinedEntities,
                                                                  Set<DeclarationNodeTree> extractedEntities) {
         Set<Pair<MethodNode, MethodNode>> methodNodePairs = new LinkedHashSet<>();
-        for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : matchedEntities) {
-            DeclarationNodeTree left = matchedEntity.getLeft();
-            DeclarationNodeTree right = matchedEntity.getRight();
-            if (left.getType() == EntityType.METHOD && right.getType() == EntityType.METHOD)
-                methodNodePairs.add(Pair.of(left.getMethodNode(), right.getMethodNode()));
+        List<Pair<DeclarationNodeTree, DeclarationNodeTree>> methodPairs = entityIndex.getMethodPairs();
+        for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : methodPairs) {
+            methodNodePairs.add(Pair.of(matchedEntity.getLeft().getMethodNode(), matchedEntity.getRight().getMethodNode()));
         }
         for (DeclarationNodeTree inlinedEntity : inlinedEntities) {
             if (inlinedEntity.getType() == EntityType.METHOD) {
                 List<EntityInfo> dependencies = inlinedEntity.getDependencies();
-                for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : matchedEntities) {
-                    DeclarationNodeTree left = matchedEntity.getLeft();
-                    DeclarationNodeTree right = matchedEntity.getRight();
-                    if (left.getType() == EntityType.METHOD && right.getType() == EntityType.METHOD) {
-                        if (dependencies.contains(left.getEntity())) {
-                            methodNodePairs.add(Pair.of(inlinedEntity.getMethodNode(), right.getMethodNode()));
-                        }
+                for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : methodPairs) {
+                    if (dependencies.contains(matchedEntity.getLeft().getEntity())) {
+                        methodNodePairs.add(Pair.of(inlinedEntity.getMethodNode(), matchedEntity.getRight().getMethodNode()));
                     }
                 }
             }
@@ -263,13 +928,9 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         for (DeclarationNodeTree extractedEntity : extractedEntities) {
             if (extractedEntity.getType() == EntityType.METHOD) {
                 List<EntityInfo> dependencies = extractedEntity.getDependencies();
-                for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : matchedEntities) {
-                    DeclarationNodeTree left = matchedEntity.getLeft();
-                    DeclarationNodeTree right = matchedEntity.getRight();
-                    if (left.getType() == EntityType.METHOD && right.getType() == EntityType.METHOD) {
-                        if (dependencies.contains(right.getEntity())) {
-                            methodNodePairs.add(Pair.of(left.getMethodNode(), extractedEntity.getMethodNode()));
-                        }
+                for (Pair<DeclarationNodeTree, DeclarationNodeTree> matchedEntity : methodPairs) {
+                    if (dependencies.contains(matchedEntity.getRight().getEntity())) {
+                        methodNodePairs.add(Pair.of(matchedEntity.getLeft().getMethodNode(), extractedEntity.getMethodNode()));
                     }
                 }
             }
@@ -277,42 +938,53 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         return methodNodePairs;
     }
 
-    private void detectRefactoringsInMatchedEntities(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities,
+    private void detectRefactoringsInMatchedEntities(MatchedEntityIndex entityIndex, ChunkGrouping grouping,
                                                      List<Refactoring> refactorings) {
-        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-            DeclarationNodeTree oldEntity = pair.getLeft();
-            DeclarationNodeTree newEntity = pair.getRight();
-            boolean isMove = !oldEntity.getNamespace().equals(newEntity.getNamespace()) &&
-                    !matchedEntities.contains(Pair.of(oldEntity.getParent(), newEntity.getParent()));
-            if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
-                processOperations(isMove, matchedEntities, oldEntity, newEntity, refactorings);
-            } else if (oldEntity.getType() == EntityType.FIELD && newEntity.getType() == EntityType.FIELD) {
-                processAttributes(isMove, matchedEntities, oldEntity, newEntity, refactorings);
-            } else if (oldEntity.getType() == EntityType.ENUM_CONSTANT && newEntity.getType() == EntityType.ENUM_CONSTANT) {
-                processEnumConstants(isMove, oldEntity, newEntity, refactorings);
-            } else if ((oldEntity.getType() == EntityType.CLASS || oldEntity.getType() == EntityType.INTERFACE ||
-                    oldEntity.getType() == EntityType.ENUM || oldEntity.getType() == EntityType.ANNOTATION_TYPE) ||
-                    (newEntity.getType() == EntityType.CLASS || newEntity.getType() == EntityType.INTERFACE ||
-                            newEntity.getType() == EntityType.ENUM || newEntity.getType() == EntityType.ANNOTATION_TYPE)) {
-                processClasses(isMove, oldEntity, newEntity, refactorings);
-            }
+        if (grouping != null) {
+            DetectionTasks.forEach(entityIndex.getMatchedEntities(),
+                    pair -> Arrays.asList(grouping.getGroup(pair.getLeft()), grouping.getGroup(pair.getRight())),
+                    (pair, output) -> detectRefactoringsInMatchedEntity(entityIndex, pair, output), refactorings);
+        } else {
+            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getMatchedEntities())
+                detectRefactoringsInMatchedEntity(entityIndex, pair, refactorings);
         }
     }
 
-    private void processOperations(boolean isMove, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities,
+    private void detectRefactoringsInMatchedEntity(MatchedEntityIndex entityIndex, Pair<DeclarationNodeTree, DeclarationNodeTree> pair,
+                                                   List<Refactoring> refactorings) {
+        checkInterrupted();
+        DeclarationNodeTree oldEntity = pair.getLeft();
+        DeclarationNodeTree newEntity = pair.getRight();
+        boolean isMove = !oldEntity.getNamespace().equals(newEntity.getNamespace()) &&
+                !entityIndex.contains(oldEntity.getParent(), newEntity.getParent());
+        if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
+            processOperations(isMove, entityIndex, oldEntity, newEntity, refactorings);
+        } else if (oldEntity.getType() == EntityType.FIELD && newEntity.getType() == EntityType.FIELD) {
+            processAttributes(isMove, entityIndex, oldEntity, newEntity, refactorings);
+        } else if (oldEntity.getType() == EntityType.ENUM_CONSTANT && newEntity.getType() == EntityType.ENUM_CONSTANT) {
+            processEnumConstants(isMove, oldEntity, newEntity, refactorings);
+        } else if ((oldEntity.getType() == EntityType.CLASS || oldEntity.getType() == EntityType.INTERFACE ||
+                oldEntity.getType() == EntityType.ENUM || oldEntity.getType() == EntityType.ANNOTATION_TYPE) ||
+                (newEntity.getType() == EntityType.CLASS || newEntity.getType() == EntityType.INTERFACE ||
+                        newEntity.getType() == EntityType.ENUM || newEntity.getType() == EntityType.ANNOTATION_TYPE)) {
+            processClasses(isMove, oldEntity, newEntity, refactorings);
+        }
+    }
+
+    private void processOperations(boolean isMove, MatchedEntityIndex entityIndex,
                                    DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity, List<Refactoring> refactorings) {
         MethodDeclaration removedOperation = (MethodDeclaration) oldEntity.getDeclaration();
         MethodDeclaration addedOperation = (MethodDeclaration) newEntity.getDeclaration();
         if (isMove) {
-            if (isSubTypeOf(matchedEntities, oldEntity, newEntity, 0)) {
+            if (isSubTypeOf(entityIndex, oldEntity, newEntity, 0)) {
                 PullUpOperationRefactoring refactoring = new PullUpOperationRefactoring(oldEntity, newEntity);
                 refactorings.add(refactoring);
             }
-            if (isSubTypeOf(matchedEntities, newEntity, oldEntity, 1)) {
+            if (isSubTypeOf(entityIndex, newEntity, oldEntity, 1)) {
                 PushDownOperationRefactoring refactoring = new PushDownOperationRefactoring(oldEntity, newEntity);
                 refactorings.add(refactoring);
             }
-            if (!isSubTypeOf(matchedEntities, oldEntity, newEntity, 0) && !isSubTypeOf(matchedEntities, newEntity, oldEntity, 1)) {
+            if (!isSubTypeOf(entityIndex, oldEntity, newEntity, 0) && !isSubTypeOf(entityIndex, newEntity, oldEntity, 1)) {
                 if (!oldEntity.getName().equals(newEntity.getName()) &&
                         !(removedOperation.isConstructor() && addedOperation.isConstructor())) {
                     MoveAndRenameOperationRefactoring refactoring = new MoveAndRenameOperationRefactoring(oldEntity, newEntity);
@@ -329,8 +1001,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                 refactorings.add(refactoring);
             }
         }
-        String originalType = removedOperation.getReturnType2() == null ? "" : removedOperation.getReturnType2().toString();
-        String changedType = addedOperation.getReturnType2() == null ? "" : addedOperation.getReturnType2().toString();
+        String originalType = removedOperation.getReturnType2() == null ? "" : ASTCache.toString(removedOperation.getReturnType2());
+        String changedType = addedOperation.getReturnType2() == null ? "" : ASTCache.toString(addedOperation.getReturnType2());
         if (!StringUtils.equals(originalType, changedType)) {
             ChangeReturnTypeRefactoring refactoring = new ChangeReturnTypeRefactoring(removedOperation.getReturnType2(), addedOperation.getReturnType2(), oldEntity, newEntity);
             refactorings.add(refactoring);
@@ -341,12 +1013,12 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         checkForOperationParameterChanges(oldEntity, newEntity, refactorings);
     }
 
-    private void processAttributes(boolean isMove, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities, DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity,
+    private void processAttributes(boolean isMove, MatchedEntityIndex entityIndex, DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity,
                                    List<Refactoring> refactorings) {
         FieldDeclaration removedAttribute = (FieldDeclaration) oldEntity.getDeclaration();
         FieldDeclaration addedAttribute = (FieldDeclaration) newEntity.getDeclaration();
         if (isMove) {
-            if (isSubTypeOf(matchedEntities, oldEntity, newEntity, 0)) {
+            if (isSubTypeOf(entityIndex, oldEntity, newEntity, 0)) {
                 if (oldEntity.getName().equals(newEntity.getName())) {
                     PullUpAttributeRefactoring refactoring = new PullUpAttributeRefactoring(oldEntity, newEntity);
                     refactorings.add(refactoring);
@@ -355,7 +1027,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                     refactorings.add(refactoring);
                 }
             }
-            if (isSubTypeOf(matchedEntities, newEntity, oldEntity, 1)) {
+            if (isSubTypeOf(entityIndex, newEntity, oldEntity, 1)) {
                 if (oldEntity.getName().equals(newEntity.getName())) {
                     PushDownAttributeRefactoring refactoring = new PushDownAttributeRefactoring(oldEntity, newEntity);
                     refactorings.add(refactoring);
@@ -364,7 +1036,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                     refactorings.add(refactoring);
                 }
             }
-            if (!isSubTypeOf(matchedEntities, oldEntity, newEntity, 0) && !isSubTypeOf(matchedEntities, newEntity, oldEntity, 1)) {
+            if (!isSubTypeOf(entityIndex, oldEntity, newEntity, 0) && !isSubTypeOf(entityIndex, newEntity, oldEntity, 1)) {
                 if (!oldEntity.getName().equals(newEntity.getName())) {
                     MoveAndRenameAttributeRefactoring refactoring = new MoveAndRenameAttributeRefactoring(oldEntity, newEntity);
                     refactorings.add(refactoring);
@@ -379,8 +1051,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                 refactorings.add(refactoring);
             }
         }
-        String originalType = removedAttribute.getType().toString();
-        String changedType = addedAttribute.getType().toString();
+        String originalType = ASTCache.toString(removedAttribute.getType());
+        String changedType = ASTCache.toString(addedAttribute.getType());
         if (!StringUtils.equals(originalType, changedType)) {
             ChangeAttributeTypeRefactoring refactoring = new ChangeAttributeTypeRefactoring(oldEntity, newEntity);
             refactorings.add(refactoring);
@@ -405,8 +1077,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         });
         for (MethodDeclaration oldMethod : oldMethods) {
             for (MethodDeclaration newMethod : newMethods) {
-                originalType = oldMethod.getReturnType2() == null ? "" : oldMethod.getReturnType2().toString();
-                changedType = newMethod.getReturnType2() == null ? "" : newMethod.getReturnType2().toString();
+                originalType = oldMethod.getReturnType2() == null ? "" : ASTCache.toString(oldMethod.getReturnType2());
+                changedType = newMethod.getReturnType2() == null ? "" : ASTCache.toString(newMethod.getReturnType2());
                 if (oldMethod.getName().getIdentifier().equals(newMethod.getName().getIdentifier()) &&
                         StringUtils.equals(originalType, changedType) &&
                         oldMethod.parameters().size() == newMethod.parameters().size() && equalsParameters(oldMethod, newMethod)) {
@@ -569,7 +1241,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         for (Type exceptionType1 : exceptionTypes1) {
             boolean found = false;
             for (Type exceptionType2 : exceptionTypes2) {
-                if (exceptionType1.toString().equals(exceptionType2.toString())) {
+                if (ASTCache.toString(exceptionType1).equals(ASTCache.toString(exceptionType2))) {
                     found = true;
                     break;
                 }
@@ -581,7 +1253,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         for (Type exceptionType2 : exceptionTypes2) {
             boolean found = false;
             for (Type exceptionType1 : exceptionTypes1) {
-                if (exceptionType1.toString().equals(exceptionType2.toString())) {
+                if (ASTCache.toString(exceptionType1).equals(ASTCache.toString(exceptionType2))) {
                     found = true;
                     break;
                 }
@@ -693,7 +1365,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             SingleVariableDeclaration removedParameter = removedParameterIterator.next();
             for (Iterator<SingleVariableDeclaration> addedParameterIterator = addedParameters.iterator(); addedParameterIterator.hasNext(); ) {
                 SingleVariableDeclaration addedParameter = addedParameterIterator.next();
-                if (removedParameter.getType().toString().equals(addedParameter.getType().toString()) &&
+                if (ASTCache.toString(removedParameter.getType()).equals(ASTCache.toString(addedParameter.getType())) &&
                         !existsAnotherAddedParameterWithTheSameType(removedOperation, addedOperation, addedParameters, addedParameter)) {
                     parameterDiffList.add(Pair.of(removedParameter, addedParameter));
                     addedParameterIterator.remove();
@@ -729,7 +1401,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             for (int i = 0; i < removedParameters.size(); i++) {
                 SingleVariableDeclaration removedParameter = removedParameters.get(i);
                 SingleVariableDeclaration addedParameter = addedParameters.get(i);
-                if (!removedParameter.getType().toString().equals(addedParameter.getType().toString())) {
+                if (!ASTCache.toString(removedParameter.getType()).equals(ASTCache.toString(addedParameter.getType()))) {
                     sameType = false;
                     break;
                 }
@@ -757,7 +1429,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                 RenameParameterRefactoring refactoring = new RenameParameterRefactoring(parameter1, parameter2, oldEntity, newEntity);
                 refactorings.add(refactoring);
             }
-            if (!parameter1.getType().toString().equals(parameter2.getType().toString())) {
+            if (!ASTCache.toString(parameter1.getType()).equals(ASTCache.toString(parameter2.getType()))) {
                 ChangeParameterTypeRefactoring refactoring = new ChangeParameterTypeRefactoring(parameter1, parameter2, oldEntity, newEntity);
                 refactorings.add(refactoring);
             }
@@ -814,15 +1486,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private List<String> getAllVariables(MethodDeclaration methodDeclaration) {
-        List<String> operationVariables = new ArrayList<>();
-        methodDeclaration.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(VariableDeclarationFragment node) {
-                operationVariables.add(node.getName().getIdentifier());
-                return true;
-            }
-        });
-        return operationVariables;
+        return ASTFacts.of(methodDeclaration).getVariableNames();
     }
 
     private int indexOfParameter(List<SingleVariableDeclaration> parameters, SingleVariableDeclaration parameter) {
@@ -843,7 +1507,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         }
         for (SingleVariableDeclaration addedParameter : addedParameters) {
             if (!addedParameter.getName().equals(parameter.getName()) &&
-                    addedParameter.getType().toString().equals(parameter.getType().toString())) {
+                    ASTCache.toString(addedParameter.getType()).equals(ASTCache.toString(parameter.getType()))) {
                 return true;
             }
         }
@@ -853,7 +1517,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     public boolean hasTwoParametersWithTheSameType(MethodDeclaration methodDeclaration) {
         List<SingleVariableDeclaration> parameterTypes = methodDeclaration.parameters();
         if (parameterTypes.size() == 2) {
-            if (parameterTypes.get(0).getType().toString().equals(parameterTypes.get(1).getType().toString())) {
+            if (ASTCache.toString(parameterTypes.get(0).getType()).equals(ASTCache.toString(parameterTypes.get(1).getType()))) {
                 return true;
             }
         }
@@ -862,7 +1526,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private boolean equalsIncludingName(SingleVariableDeclaration parameter1, SingleVariableDeclaration parameter2) {
         return parameter1.getName().getIdentifier().equals(parameter2.getName().getIdentifier()) &&
-                parameter1.getType().toString().equals(parameter2.getType().toString()) &&
+                ASTCache.toString(parameter1.getType()).equals(ASTCache.toString(parameter2.getType())) &&
                 parameter1.isVarargs() == parameter2.isVarargs();
     }
 
@@ -1009,243 +1673,257 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private void detectRefactoringsBetweenMatchedAndAddedEntities(MatchPair matchPair,
-                                                                  Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities,
+                                                                  MatchedEntityIndex entityIndex,
                                                                   Set<DeclarationNodeTree> addedEntities,
-                                                                  Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                                                  MatchedStatementIndex statementIndex,
+                                                                  ChunkGrouping grouping,
                                                                   List<Refactoring> refactorings) {
-        for (DeclarationNodeTree addedEntity : addedEntities) {
-            if (addedEntity.getType() != EntityType.METHOD)
-                continue;
-            List<EntityInfo> dependencies = addedEntity.getDependencies();
-            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-                DeclarationNodeTree oldEntity = pair.getLeft();
-                DeclarationNodeTree newEntity = pair.getRight();
-                if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
-                    if (!dependencies.contains(newEntity.getEntity()) && !hasMethodInvocation(newEntity, addedEntity))
-                        continue;
-                    if (MethodUtils.isNewFunction(oldEntity.getDeclaration(), newEntity.getDeclaration()))
-                        continue;
-                    if (MethodUtils.isGetter((MethodDeclaration) addedEntity.getDeclaration()) || MethodUtils.isSetter((MethodDeclaration) addedEntity.getDeclaration()))
-                        continue;
-                    DeclarationNodeTree extractedEntity = getDelegatedMethod(addedEntity, addedEntities);
-                    boolean isExtracted = isExtractedFromStatement(oldEntity, newEntity, extractedEntity, matchedStatements, refactorings);
-                    double dice = DiceFunction.calculateBodyDice((LeafNode) oldEntity, (LeafNode) newEntity, (LeafNode) extractedEntity);
-                    if (dice >= 0.25 || isExtracted ||
-                            matchedLOCAreGreaterThanUnmatchedLOC(oldEntity, newEntity, extractedEntity, true, matchedStatements, dice)) {
-                        boolean isMove = !oldEntity.getNamespace().equals(addedEntity.getNamespace()) &&
-                                !matchedEntities.contains(Pair.of(oldEntity.getParent(), addedEntity.getParent()));
-                        double ref1 = DiceFunction.calculateReferenceSimilarity(matchPair, oldEntity, newEntity);
-                        double ref2 = DiceFunction.calculateReferenceSimilarity(matchPair, oldEntity, addedEntity);
-                        double dice1 = DiceFunction.calculateDiceSimilarity((LeafNode) oldEntity, (LeafNode) newEntity);
-                        double dice2 = DiceFunction.calculateDiceSimilarity((LeafNode) oldEntity, (LeafNode) extractedEntity);
-                        MethodDeclaration declaration = (MethodDeclaration) newEntity.getDeclaration();
-                        boolean isDeprecated = false;
-                        List<IExtendedModifier> modifiers = declaration.modifiers();
-                        for (IExtendedModifier modifier : modifiers) {
-                            if (modifier.isAnnotation() && modifier.toString().equals("@Deprecated")) {
-                                isDeprecated = true;
-                                break;
-                            }
+        if (grouping != null) {
+            DetectionTasks.forEach(addedEntities, addedEntity -> Collections.singletonList(grouping.getGroup(addedEntity)),
+                    (addedEntity, output) -> detectRefactoringsBetweenMatchedAndAddedMethod(matchPair, entityIndex, addedEntities,
+                            statementIndex, addedEntity, output), refactorings);
+            DetectionTasks.forEach(addedEntities, addedEntity -> Collections.singletonList(grouping.getGroup(addedEntity)),
+                    (addedEntity, output) -> detectRefactoringsBetweenMatchedAndAddedType(matchPair, entityIndex, addedEntities,
+                            statementIndex, addedEntity, output), refactorings);
+        } else {
+            for (DeclarationNodeTree addedEntity : addedEntities)
+                detectRefactoringsBetweenMatchedAndAddedMethod(matchPair, entityIndex, addedEntities, statementIndex, addedEntity, refactorings);
+            for (DeclarationNodeTree addedEntity : addedEntities)
+                detectRefactoringsBetweenMatchedAndAddedType(matchPair, entityIndex, addedEntities, statementIndex, addedEntity, refactorings);
+        }
+    }
+
+    private void detectRefactoringsBetweenMatchedAndAddedMethod(MatchPair matchPair, MatchedEntityIndex entityIndex, Set<DeclarationNodeTree> addedEntities,
+                                                                MatchedStatementIndex statementIndex, DeclarationNodeTree addedEntity,
+                                                                List<Refactoring> refactorings) {
+        checkInterrupted();
+        if (addedEntity.getType() != EntityType.METHOD)
+            return;
+        List<EntityInfo> dependencies = addedEntity.getDependencies();
+        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getMethodPairs()) {
+            DeclarationNodeTree oldEntity = pair.getLeft();
+            DeclarationNodeTree newEntity = pair.getRight();
+            if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
+                if (!dependencies.contains(newEntity.getEntity()) && !hasMethodInvocation(newEntity, addedEntity))
+                    continue;
+                if (MethodUtils.isNewFunction(oldEntity.getDeclaration(), newEntity.getDeclaration()))
+                    continue;
+                if (MethodUtils.isGetter((MethodDeclaration) addedEntity.getDeclaration()) || MethodUtils.isSetter((MethodDeclaration) addedEntity.getDeclaration()))
+                    continue;
+                DeclarationNodeTree extractedEntity = getDelegatedMethod(addedEntity, addedEntities);
+                boolean isExtracted = isExtractedFromStatement(oldEntity, newEntity, extractedEntity, statementIndex, refactorings);
+                double dice = DiceFunction.calculateBodyDice((LeafNode) oldEntity, (LeafNode) newEntity, (LeafNode) extractedEntity);
+                if (dice >= 0.25 || isExtracted ||
+                        matchedLOCAreGreaterThanUnmatchedLOC(oldEntity, newEntity, extractedEntity, true, statementIndex, dice)) {
+                    boolean isMove = !oldEntity.getNamespace().equals(addedEntity.getNamespace()) &&
+                            !entityIndex.contains(oldEntity.getParent(), addedEntity.getParent());
+                    double ref1 = DiceFunction.calculateReferenceSimilarity(matchPair, oldEntity, newEntity);
+                    double ref2 = DiceFunction.calculateReferenceSimilarity(matchPair, oldEntity, addedEntity);
+                    double dice1 = DiceFunction.calculateDiceSimilarity((LeafNode) oldEntity, (LeafNode) newEntity);
+                    double dice2 = DiceFunction.calculateDiceSimilarity((LeafNode) oldEntity, (LeafNode) extractedEntity);
+                    MethodDeclaration declaration = (MethodDeclaration) newEntity.getDeclaration();
+                    boolean isDeprecated = false;
+                    List<IExtendedModifier> modifiers = declaration.modifiers();
+                    for (IExtendedModifier modifier : modifiers) {
+                        if (modifier.isAnnotation() && modifier.toString().equals("@Deprecated")) {
+                            isDeprecated = true;
+                            break;
                         }
-                        if (isMove) {
-                            MethodDeclaration extractedMethod = (MethodDeclaration) extractedEntity.getDeclaration();
-                            if (!extractedMethod.isConstructor()) {
-                                ExtractAndMoveOperationRefactoring refactoring = new ExtractAndMoveOperationRefactoring(oldEntity, newEntity, addedEntity, matchedStatements);
-                                refactorings.add(refactoring);
-                            }
-                        } else {
-                            if (ref2 > ref1 && dice2 > dice1 && isDeprecated && !oldEntity.getName().equals(addedEntity.getName())) {
-                                RenameOperationRefactoring refactoring = new RenameOperationRefactoring(oldEntity, addedEntity);
-                                refactorings.add(refactoring);
-                            } else {
-                                ExtractOperationRefactoring refactoring = new ExtractOperationRefactoring(oldEntity, newEntity, addedEntity, matchedStatements);
-                                refactorings.add(refactoring);
-                            }
+                    }
+                    if (isMove) {
+                        MethodDeclaration extractedMethod = (MethodDeclaration) extractedEntity.getDeclaration();
+                        if (!extractedMethod.isConstructor()) {
+                            ExtractAndMoveOperationRefactoring refactoring = new ExtractAndMoveOperationRefactoring(oldEntity, newEntity, addedEntity,
+                                    statementIndex.getPairs(oldEntity.getMethodNode(), addedEntity.getMethodNode()));
+                            refactorings.add(refactoring);
                         }
                     } else {
-                        MethodNode extractedMethodNode = extractedEntity.getMethodNode();
-                        List<StatementNodeTree> allOperations = extractedMethodNode.getAllOperations();
-                        List<StatementNodeTree> allControls = extractedMethodNode.getAllControls();
-                        List<StatementNodeTree> allBlocks = extractedMethodNode.getAllBlocks();
-                        if (allOperations.size() == 1 && allControls.isEmpty() && allBlocks.size() == 1 &&
-                                allOperations.get(0).getType() == StatementType.RETURN_STATEMENT && allOperations.get(0).getExpression().startsWith("return ")) {
-                            isExtracted = false;
-                            String name = extractedEntity.getName();
-                            for (Pair<StatementNodeTree, StatementNodeTree> pair2 : matchedStatements) {
-                                StatementNodeTree oldStatement = pair2.getLeft();
-                                StatementNodeTree newStatement = pair2.getRight();
-                                if (oldStatement.getRoot().getMethodEntity() == oldEntity && newStatement.getRoot().getMethodEntity() == newEntity) {
-                                    MethodNode newMethodNode = newEntity.getMethodNode();
-                                    List<StatementNodeTree> operations = newMethodNode.getAllOperations();
-                                    List<StatementNodeTree> controls = newMethodNode.getAllControls();
-                                    List<StatementNodeTree> locations = new ArrayList<>();
-                                    findMethodInvocation(operations, controls, extractedEntity, locations);
-                                    List<MethodInvocation> invocations = new ArrayList<>();
-                                    for (StatementNodeTree location : locations) {
-                                        location.getStatement().accept(new ASTVisitor() {
-                                            @Override
-                                            public boolean visit(MethodInvocation node) {
-                                                if (node.getName().getIdentifier().equals(name)) {
-                                                    invocations.add(node);
-                                                }
-                                                return true;
-                                            }
-                                        });
+                        if (ref2 > ref1 && dice2 > dice1 && isDeprecated && !oldEntity.getName().equals(addedEntity.getName())) {
+                            RenameOperationRefactoring refactoring = new RenameOperationRefactoring(oldEntity, addedEntity);
+                            refactorings.add(refactoring);
+                        } else {
+                            ExtractOperationRefactoring refactoring = new ExtractOperationRefactoring(oldEntity, newEntity, addedEntity,
+                                    statementIndex.getPairs(oldEntity.getMethodNode(), addedEntity.getMethodNode()));
+                            refactorings.add(refactoring);
+                        }
+                    }
+                } else {
+                    MethodNode extractedMethodNode = extractedEntity.getMethodNode();
+                    List<StatementNodeTree> allOperations = extractedMethodNode.getAllOperations();
+                    List<StatementNodeTree> allControls = extractedMethodNode.getAllControls();
+                    List<StatementNodeTree> allBlocks = extractedMethodNode.getAllBlocks();
+                    if (allOperations.size() == 1 && allControls.isEmpty() && allBlocks.size() == 1 &&
+                            allOperations.get(0).getType() == StatementType.RETURN_STATEMENT && allOperations.get(0).getExpression().startsWith("return ")) {
+                        isExtracted = false;
+                        String name = extractedEntity.getName();
+                        for (Pair<StatementNodeTree, StatementNodeTree> pair2 : statementIndex.getPairs(oldEntity, newEntity)) {
+                            StatementNodeTree oldStatement = pair2.getLeft();
+                            StatementNodeTree newStatement = pair2.getRight();
+                            MethodNode newMethodNode = newEntity.getMethodNode();
+                            List<StatementNodeTree> operations = newMethodNode.getAllOperations();
+                            List<StatementNodeTree> controls = newMethodNode.getAllControls();
+                            List<StatementNodeTree> locations = new ArrayList<>();
+                            findMethodInvocation(operations, controls, extractedEntity, locations);
+                            List<MethodInvocation> invocations = new ArrayList<>();
+                            for (StatementNodeTree location : locations) {
+                                for (MethodInvocation node : ASTFacts.of(location.getStatement()).getMethodInvocations()) {
+                                    if (node.getName().getIdentifier().equals(name)) {
+                                        invocations.add(node);
                                     }
-                                    for (MethodInvocation invocation : invocations) {
-                                        List<Expression> arguments = invocation.arguments();
-                                        MethodDeclaration declaration = (MethodDeclaration) extractedEntity.getDeclaration();
-                                        List<SingleVariableDeclaration> parameters = declaration.parameters();
-                                        String operation = allOperations.get(0).getExpression().substring("return ".length());
-                                        if (operation.endsWith(";\n"))
-                                            operation = operation.substring(0, operation.length() - 2);
-                                        if (arguments.size() == parameters.size()) {
-                                            for (int i = 0; i < arguments.size(); i++) {
-                                                String argument = arguments.get(i).toString();
-                                                String parameter = parameters.get(i).getName().getIdentifier();
-                                                operation = operation.replace(parameter, argument);
-                                            }
-                                        }
-                                        if (newStatement.getExpression().contains(invocation.toString()) && !oldStatement.getExpression().equals(newStatement.getExpression()) &&
-                                                oldStatement.getExpression().equals(newStatement.getExpression().replace(invocation.toString(), operation))) {
-                                            isExtracted = true;
-                                            break;
+                                }
+                            }
+                            for (MethodInvocation invocation : invocations) {
+                                List<Expression> arguments = invocation.arguments();
+                                MethodDeclaration declaration = (MethodDeclaration) extractedEntity.getDeclaration();
+                                List<SingleVariableDeclaration> parameters = declaration.parameters();
+                                String operation = allOperations.get(0).getExpression().substring("return ".length());
+                                if (operation.endsWith(";\n"))
+                                    operation = operation.substring(0, operation.length() - 2);
+                                if (arguments.size() == parameters.size()) {
+                                    for (int i = 0; i < arguments.size(); i++) {
+                                        String argument = arguments.get(i).toString();
+                                        String parameter = parameters.get(i).getName().getIdentifier();
+                                        operation = operation.replace(parameter, argument);
+                                    }
+                                }
+                                if (newStatement.getExpression().contains(invocation.toString()) && !oldStatement.getExpression().equals(newStatement.getExpression()) &&
+                                        oldStatement.getExpression().equals(newStatement.getExpression().replace(invocation.toString(), operation))) {
+                                    isExtracted = true;
+                                    break;
+                                }
+                                ReturnStatement statement = (ReturnStatement) allOperations.get(0).getStatement();
+                                if (statement.getExpression() instanceof ClassInstanceCreation) {
+                                    ClassInstanceCreation creation = (ClassInstanceCreation) statement.getExpression();
+                                    if (!creation.getType().toString().equals(declaration.getReturnType2().toString())) {
+                                        operation = creation.toString().replace(creation.getType().toString(), declaration.getReturnType2().toString());
+                                        Map<String, String> replacements = new HashMap<>();
+                                        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair3 : entityIndex.getPairs(EntityType.CLASS)) {
+                                            DeclarationNodeTree left = pair3.getLeft();
+                                            DeclarationNodeTree right = pair3.getRight();
+                                            if (!left.getName().equals(right.getName()))
+                                                replacements.put(left.getName(), right.getName());
                                         }
-                                        ReturnStatement statement = (ReturnStatement) allOperations.get(0).getStatement();
-                                        if (statement.getExpression() instanceof ClassInstanceCreation) {
-                                            ClassInstanceCreation creation = (ClassInstanceCreation) statement.getExpression();
-                                            if (!creation.getType().toString().equals(declaration.getReturnType2().toString())) {
-                                                operation = creation.toString().replace(creation.getType().toString(), declaration.getReturnType2().toString());
-                                                Map<String, String> replacements = new HashMap<>();
-                                                for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair3 : matchedEntities) {
-                                                    DeclarationNodeTree left = pair3.getLeft();
-                                                    DeclarationNodeTree right = pair3.getRight();
-                                                    if (left.getType() == EntityType.CLASS && right.getType() == EntityType.CLASS)
-                                                        if (!left.getName().equals(right.getName()))
-                                                            replacements.put(left.getName(), right.getName());
-                                                }
-                                                boolean isSame = false;
-                                                for (String key : replacements.keySet()) {
-                                                    if (newStatement.getExpression().contains(invocation.toString()) && !oldStatement.getExpression().equals(newStatement.getExpression())) {
-                                                        String replace1 = oldStatement.getExpression().replace(key, replacements.get(key));
-                                                        String replace2 = newStatement.getExpression().replace(invocation.toString(), operation);
-                                                        if (replace1.equals(replace2)) {
-                                                            isExtracted = true;
-                                                            isSame = true;
-                                                            break;
-                                                        }
-                                                    }
-                                                }
-                                                if (isSame)
+                                        boolean isSame = false;
+                                        for (String key : replacements.keySet()) {
+                                            if (newStatement.getExpression().contains(invocation.toString()) && !oldStatement.getExpression().equals(newStatement.getExpression())) {
+                                                String replace1 = oldStatement.getExpression().replace(key, replacements.get(key));
+                                                String replace2 = newStatement.getExpression().replace(invocation.toString(), operation);
+                                                if (replace1.equals(replace2)) {
+                                                    isExtracted = true;
+                                                    isSame = true;
                                                     break;
+                                                }
                                             }
                                         }
+                                        if (isSame)
+                                            break;
                                     }
                                 }
                             }
-                            if (!isExtracted)
-                                continue;
-                            boolean isMove = !oldEntity.getNamespace().equals(extractedEntity.getNamespace()) &&
-                                    !matchedEntities.contains(Pair.of(oldEntity.getParent(), extractedEntity.getParent()));
-                            if (isMove) {
-                                MethodDeclaration extractedMethod = (MethodDeclaration) extractedEntity.getDeclaration();
-                                if (!extractedMethod.isConstructor()) {
-                                    ExtractAndMoveOperationRefactoring refactoring = new ExtractAndMoveOperationRefactoring(oldEntity, newEntity, addedEntity, matchedStatements);
-                                    refactorings.add(refactoring);
-                                }
-                            } else {
-                                ExtractOperationRefactoring refactoring = new ExtractOperationRefactoring(oldEntity, newEntity, addedEntity, matchedStatements);
-                                refactorings.add(refactoring);
-                            }
                         }
-                    }
-                }
-            }
-        }
-        for (DeclarationNodeTree addedEntity : addedEntities) {
-            if (addedEntity.getType() == EntityType.CLASS || addedEntity.getType() == EntityType.INTERFACE) {
-                Set<DeclarationNodeTree> mapping = new HashSet<>();
-                Map<DeclarationNodeTree, DeclarationNodeTree> mapping2 = new HashMap<>();
-                Map<DeclarationNodeTree, DeclarationNodeTree> extractedOperations = new TreeMap<>(Comparator.comparingInt(startLine -> startLine.getLocationInfo().getStartLine()));
-                Map<DeclarationNodeTree, DeclarationNodeTree> extractedAttributes = new TreeMap<>(Comparator.comparingInt(startLine -> startLine.getLocationInfo().getStartLine()));
-                for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-                    DeclarationNodeTree oldEntity = pair.getLeft();
-                    DeclarationNodeTree newEntity = pair.getRight();
-                    if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
-                        if (newEntity.getParent() == addedEntity) {
-                            MethodDeclaration declaration1 = (MethodDeclaration) oldEntity.getDeclaration();
-                            MethodDeclaration declaration2 = (MethodDeclaration) newEntity.getDeclaration();
-                            if (!declaration1.isConstructor() && !declaration2.isConstructor()) {
-                                mapping.add(oldEntity.getParent());
-                                extractedOperations.put(oldEntity, newEntity);
+                        if (!isExtracted)
+                            continue;
+                        boolean isMove = !oldEntity.getNamespace().equals(extractedEntity.getNamespace()) &&
+                                !entityIndex.contains(oldEntity.getParent(), extractedEntity.getParent());
+                        if (isMove) {
+                            MethodDeclaration extractedMethod = (MethodDeclaration) extractedEntity.getDeclaration();
+                            if (!extractedMethod.isConstructor()) {
+                                ExtractAndMoveOperationRefactoring refactoring = new ExtractAndMoveOperationRefactoring(oldEntity, newEntity, addedEntity,
+                                    statementIndex.getPairs(oldEntity.getMethodNode(), addedEntity.getMethodNode()));
+                                refactorings.add(refactoring);
                             }
                         } else {
-                            if (newEntity.getParent().getType() == EntityType.CLASS || newEntity.getParent().getType() == EntityType.INTERFACE) {
-                                TypeDeclaration newClass = (TypeDeclaration) newEntity.getParent().getDeclaration();
-                                TypeDeclaration addedClass = (TypeDeclaration) addedEntity.getDeclaration();
-                                if (isSubTypeOf(newClass, addedClass)) {
-                                    List<DeclarationNodeTree> children = addedEntity.getChildren();
-                                    for (DeclarationNodeTree child : children) {
-                                        if (child.getType() == newEntity.getType() && child.getName().equals(newEntity.getName()) &&
-                                                isSameSignature(child, newEntity)) {
-                                            mapping2.put(oldEntity.getParent(), newEntity.getParent());
-                                            extractedOperations.put(oldEntity, child);
-                                        }
-                                    }
-                                }
-                            }
+                            ExtractOperationRefactoring refactoring = new ExtractOperationRefactoring(oldEntity, newEntity, addedEntity,
+                                    statementIndex.getPairs(oldEntity.getMethodNode(), addedEntity.getMethodNode()));
+                            refactorings.add(refactoring);
                         }
                     }
-                    if (oldEntity.getType() == EntityType.FIELD && newEntity.getType() == EntityType.FIELD && newEntity.getParent() == addedEntity) {
-                        mapping.add(oldEntity.getParent());
-                        extractedAttributes.put(oldEntity, newEntity);
-                    }
                 }
-                Set<DeclarationNodeTree> deletion = new HashSet<>();
-                for (DeclarationNodeTree key1 : mapping2.keySet()) {
-                    for (DeclarationNodeTree key2 : mapping2.keySet()) {
-                        if (key1 == key2) continue;
-                        TypeDeclaration typeDeclaration1 = (TypeDeclaration) mapping2.get(key1).getDeclaration();
-                        TypeDeclaration typeDeclaration2 = (TypeDeclaration) mapping2.get(key2).getDeclaration();
-                        if (isSubTypeOf(typeDeclaration2, typeDeclaration1))
-                            deletion.add(key2);
+            }
+        }
+    }
+
+    private void detectRefactoringsBetweenMatchedAndAddedType(MatchPair matchPair, MatchedEntityIndex entityIndex, Set<DeclarationNodeTree> addedEntities,
+                                                              MatchedStatementIndex statementIndex, DeclarationNodeTree addedEntity,
+                                                              List<Refactoring> refactorings) {
+        checkInterrupted();
+        if (addedEntity.getType() == EntityType.CLASS || addedEntity.getType() == EntityType.INTERFACE) {
+            Set<DeclarationNodeTree> mapping = new HashSet<>();
+            Map<DeclarationNodeTree, DeclarationNodeTree> mapping2 = new HashMap<>();
+            Map<DeclarationNodeTree, DeclarationNodeTree> extractedOperations = new TreeMap<>(Comparator.comparingInt(startLine -> startLine.getLocationInfo().getStartLine()));
+            Map<DeclarationNodeTree, DeclarationNodeTree> extractedAttributes = new TreeMap<>(Comparator.comparingInt(startLine -> startLine.getLocationInfo().getStartLine()));
+            Map<DeclarationNodeTree, Boolean> subTypes = new IdentityHashMap<>();
+            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getMethodPairs()) {
+                DeclarationNodeTree oldEntity = pair.getLeft();
+                DeclarationNodeTree newEntity = pair.getRight();
+                if (newEntity.getParent() == addedEntity) {
+                    MethodDeclaration declaration1 = (MethodDeclaration) oldEntity.getDeclaration();
+                    MethodDeclaration declaration2 = (MethodDeclaration) newEntity.getDeclaration();
+                    if (!declaration1.isConstructor() && !declaration2.isConstructor()) {
+                        mapping.add(oldEntity.getParent());
+                        extractedOperations.put(oldEntity, newEntity);
                     }
-                }
-                mapping.addAll(mapping2.keySet());
-                mapping.removeAll(deletion);
-                Set<DeclarationNodeTree> subclassSetBefore = new LinkedHashSet<>();
-                Set<DeclarationNodeTree> subclassSetAfter = new LinkedHashSet<>();
-                for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-                    DeclarationNodeTree oldEntity = pair.getLeft();
-                    if (mapping.contains(oldEntity)) {
-                        DeclarationNodeTree newEntity = pair.getRight();
-                        if (newEntity.getType() == EntityType.CLASS || newEntity.getType() == EntityType.INTERFACE) {
-                            TypeDeclaration newClass = (TypeDeclaration) newEntity.getDeclaration();
-                            TypeDeclaration addedClass = (TypeDeclaration) addedEntity.getDeclaration();
-                            if (!isSubTypeOf(newClass, addedClass) && !isSubTypeOf(addedClass, newClass)) {
-                                ExtractClassRefactoring refactoring = new ExtractClassRefactoring(oldEntity, newEntity, addedEntity, extractedOperations, extractedAttributes);
-                                refactorings.add(refactoring);
-                            }
-                            if (isSubTypeOf(newClass, addedClass)) {
-                                subclassSetBefore.add(oldEntity);
-                                subclassSetAfter.add(newEntity);
-                            } else if (isSubTypeOf(addedClass, newClass)) {
-                                ExtractSubClassRefactoring refactoring = new ExtractSubClassRefactoring(oldEntity, newEntity, addedEntity, extractedOperations, extractedAttributes);
-                                refactorings.add(refactoring);
-                            }
+                } else if (isSubTypeOf(newEntity.getParent(), addedEntity, subTypes)) {
+                    List<DeclarationNodeTree> children = addedEntity.getChildren();
+                    for (DeclarationNodeTree child : children) {
+                        if (child.getType() == newEntity.getType() && child.getName().equals(newEntity.getName()) &&
+                                isSameSignature(child, newEntity)) {
+                            mapping2.put(oldEntity.getParent(), newEntity.getParent());
+                            extractedOperations.put(oldEntity, child);
                         }
                     }
                 }
-                if (!subclassSetBefore.isEmpty()) {
-                    if (addedEntity.getType() == EntityType.INTERFACE) {
-                        ExtractInterfaceRefactoring refactoring = new ExtractInterfaceRefactoring(addedEntity, subclassSetBefore, subclassSetAfter);
+            }
+            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getPairs(EntityType.FIELD)) {
+                DeclarationNodeTree oldEntity = pair.getLeft();
+                DeclarationNodeTree newEntity = pair.getRight();
+                if (newEntity.getParent() == addedEntity) {
+                    mapping.add(oldEntity.getParent());
+                    extractedAttributes.put(oldEntity, newEntity);
+                }
+            }
+            Set<DeclarationNodeTree> deletion = new HashSet<>();
+            for (DeclarationNodeTree key1 : mapping2.keySet()) {
+                for (DeclarationNodeTree key2 : mapping2.keySet()) {
+                    if (key1 == key2) continue;
+                    TypeDeclaration typeDeclaration1 = (TypeDeclaration) mapping2.get(key1).getDeclaration();
+                    TypeDeclaration typeDeclaration2 = (TypeDeclaration) mapping2.get(key2).getDeclaration();
+                    if (isSubTypeOf(typeDeclaration2, typeDeclaration1))
+                        deletion.add(key2);
+                }
+            }
+            mapping.addAll(mapping2.keySet());
+            mapping.removeAll(deletion);
+            Set<DeclarationNodeTree> subclassSetBefore = new LinkedHashSet<>();
+            Set<DeclarationNodeTree> subclassSetAfter = new LinkedHashSet<>();
+            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getPairsByRightType(EntityType.CLASS, EntityType.INTERFACE)) {
+                DeclarationNodeTree oldEntity = pair.getLeft();
+                if (mapping.contains(oldEntity)) {
+                    DeclarationNodeTree newEntity = pair.getRight();
+                    TypeDeclaration newClass = (TypeDeclaration) newEntity.getDeclaration();
+                    TypeDeclaration addedClass = (TypeDeclaration) addedEntity.getDeclaration();
+                    if (!isSubTypeOf(newClass, addedClass) && !isSubTypeOf(addedClass, newClass)) {
+                        ExtractClassRefactoring refactoring = new ExtractClassRefactoring(oldEntity, newEntity, addedEntity, extractedOperations, extractedAttributes);
                         refactorings.add(refactoring);
-                    } else {
-                        ExtractSuperClassRefactoring refactoring = new ExtractSuperClassRefactoring(addedEntity, subclassSetBefore, subclassSetAfter);
+                    }
+                    if (isSubTypeOf(newClass, addedClass)) {
+                        subclassSetBefore.add(oldEntity);
+                        subclassSetAfter.add(newEntity);
+                    } else if (isSubTypeOf(addedClass, newClass)) {
+                        ExtractSubClassRefactoring refactoring = new ExtractSubClassRefactoring(oldEntity, newEntity, addedEntity, extractedOperations, extractedAttributes);
                         refactorings.add(refactoring);
                     }
                 }
             }
+            if (!subclassSetBefore.isEmpty()) {
+                if (addedEntity.getType() == EntityType.INTERFACE) {
+                    ExtractInterfaceRefactoring refactoring = new ExtractInterfaceRefactoring(addedEntity, subclassSetBefore, subclassSetAfter);
+                    refactorings.add(refactoring);
+                } else {
+                    ExtractSuperClassRefactoring refactoring = new ExtractSuperClassRefactoring(addedEntity, subclassSetBefore, subclassSetAfter);
+                    refactorings.add(refactoring);
+                }
+            }
         }
     }
 
@@ -1368,32 +2046,23 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private boolean hasMethodInvocation(ASTNode statement, MethodDeclaration declaration2) {
         if (statement == null) return false;
-        List<MethodInvocation> invocations = new ArrayList<>();
-        statement.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(MethodInvocation node) {
-                if (node.getName().getIdentifier().equals(declaration2.getName().getIdentifier()) &&
-                        node.arguments().size() == declaration2.parameters().size())
-                    invocations.add(node);
-                return true;
-            }
-        });
+        List<MethodInvocation> invocations = ASTFacts.of(statement).getMethodInvocations(declaration2.getName().getIdentifier(),
+                declaration2.parameters().size());
         return !invocations.isEmpty();
     }
 
     private boolean isExtractedFromStatement(DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity, DeclarationNodeTree extractedEntity,
-                                             Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements, List<Refactoring> refactorings) {
+                                             MatchedStatementIndex statementIndex, List<Refactoring> refactorings) {
         MethodNode methodNode = extractedEntity.getMethodNode();
         MethodDeclaration declaration = (MethodDeclaration) extractedEntity.getDeclaration();
         List<StatementNodeTree> allOperations = methodNode.getAllOperations();
         List<StatementNodeTree> allControls = methodNode.getAllControls();
         List<StatementNodeTree> allBlocks = methodNode.getAllBlocks();
         Set<Pair<StatementNodeTree, StatementNodeTree>> pairs = new HashSet<>();
-        for (Pair<StatementNodeTree, StatementNodeTree> pair : matchedStatements) {
+        for (Pair<StatementNodeTree, StatementNodeTree> pair : statementIndex.getPairs(oldEntity, newEntity)) {
             StatementNodeTree oldStatement = pair.getLeft();
             StatementNodeTree newStatement = pair.getRight();
-            if (oldStatement.getRoot().getMethodEntity() == oldEntity && newStatement.getRoot().getMethodEntity() == newEntity &&
-                    !oldStatement.getExpression().equals(newStatement.getExpression()) && contains(newStatement, extractedEntity.getName())) {
+            if (!oldStatement.getExpression().equals(newStatement.getExpression()) && contains(newStatement, extractedEntity.getName())) {
                 pairs.add(pair);
             }
         }
@@ -1401,15 +2070,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             for (Pair<StatementNodeTree, StatementNodeTree> pair : pairs) {
                 StatementNodeTree oldStatement = pair.getLeft();
                 StatementNodeTree newStatement = pair.getRight();
-                List<MethodInvocation> list = new ArrayList<>();
-                newStatement.getStatement().accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(MethodInvocation node) {
-                        if (node.getName().getIdentifier().equals(extractedEntity.getName()) && node.arguments().size() == declaration.parameters().size())
-                            list.add(node);
-                        return true;
-                    }
-                });
+                List<MethodInvocation> list = ASTFacts.of(newStatement.getStatement()).getMethodInvocations(extractedEntity.getName(),
+                        declaration.parameters().size());
                 if (list.isEmpty())
                     continue;
                 Map<String, String> replacements = new HashMap();
@@ -1482,15 +2144,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         for (Pair<StatementNodeTree, StatementNodeTree> pair : pairs) {
             StatementNodeTree oldStatement = pair.getLeft();
             StatementNodeTree newStatement = pair.getRight();
-            List<MethodInvocation> list = new ArrayList<>();
-            newStatement.getStatement().accept(new ASTVisitor() {
-                @Override
-                public boolean visit(MethodInvocation node) {
-                    if (node.getName().getIdentifier().equals(extractedEntity.getName()) && node.arguments().size() == declaration.parameters().size())
-                        list.add(node);
-                    return true;
-                }
-            });
+            List<MethodInvocation> list = ASTFacts.of(newStatement.getStatement()).getMethodInvocations(extractedEntity.getName(),
+                    declaration.parameters().size());
             if (list.isEmpty())
                 continue;
             if (isSameStatement(oldEntity, newEntity, oldStatement, newStatement, list, declaration, expression, refactorings, false))
@@ -1498,15 +2153,8 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         }
 
         for (StatementNodeTree newOperation : allNewOperations) {
-            List<MethodInvocation> list = new ArrayList<>();
-            newOperation.getStatement().accept(new ASTVisitor() {
-                @Override
-                public boolean visit(MethodInvocation node) {
-                    if (node.getName().getIdentifier().equals(extractedEntity.getName()) && node.arguments().size() == declaration.parameters().size())
-                        list.add(node);
-                    return true;
-                }
-            });
+            List<MethodInvocation> list = ASTFacts.of(newOperation.getStatement()).getMethodInvocations(extractedEntity.getName(),
+                    declaration.parameters().size());
             if (list.isEmpty())
                 continue;
             for (StatementNodeTree oldOperation : allOldOperations) {
@@ -1530,135 +2178,50 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private boolean contains(StatementNodeTree snt, String name) {
-        List<String> list = new ArrayList<>();
         if (snt.getType() == StatementType.DO_STATEMENT) {
             DoStatement doStatement = (DoStatement) snt.getStatement();
-            Expression expression = doStatement.getExpression();
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(doStatement.getExpression()).containsName(name);
         } else if (snt.getType() == StatementType.ENHANCED_FOR_STATEMENT) {
             EnhancedForStatement enhancedForStatement = (EnhancedForStatement) snt.getStatement();
-            SingleVariableDeclaration parameter = enhancedForStatement.getParameter();
-            Expression expression = enhancedForStatement.getExpression();
-            parameter.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(enhancedForStatement.getParameter()).containsName(name) ||
+                    ASTFacts.of(enhancedForStatement.getExpression()).containsName(name);
         } else if (snt.getType() == StatementType.FOR_STATEMENT) {
             ForStatement forStatement = (ForStatement) snt.getStatement();
             List<Expression> initializers = forStatement.initializers();
-            Expression expression = forStatement.getExpression();
             List<Expression> updaters = forStatement.updaters();
             for (Expression initializer : initializers) {
-                initializer.accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(SimpleName node) {
-                        list.add(node.getIdentifier());
-                        return true;
-                    }
-                });
-            }
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
+                if (ASTFacts.of(initializer).containsName(name))
                     return true;
-                }
-            });
+            }
+            if (ASTFacts.of(forStatement.getExpression()).containsName(name))
+                return true;
             for (Expression updater : updaters) {
-                updater.accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(SimpleName node) {
-                        list.add(node.getIdentifier());
-                        return true;
-                    }
-                });
+                if (ASTFacts.of(updater).containsName(name))
+                    return true;
             }
-            return list.contains(name);
+            return false;
         } else if (snt.getType() == StatementType.IF_STATEMENT) {
             IfStatement ifStatement = (IfStatement) snt.getStatement();
-            Expression expression = ifStatement.getExpression();
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(ifStatement.getExpression()).containsName(name);
         } else if (snt.getType() == StatementType.SWITCH_STATEMENT) {
             SwitchStatement switchStatement = (SwitchStatement) snt.getStatement();
-            Expression expression = switchStatement.getExpression();
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(switchStatement.getExpression()).containsName(name);
         } else if (snt.getType() == StatementType.TRY_STATEMENT) {
             TryStatement tryStatement = (TryStatement) snt.getStatement();
             List<Expression> resources = tryStatement.resources();
             for (Expression resource : resources) {
-                resource.accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(SimpleName node) {
-                        list.add(node.getIdentifier());
-                        return true;
-                    }
-                });
+                if (ASTFacts.of(resource).containsName(name))
+                    return true;
             }
-            return list.contains(name);
+            return false;
         } else if (snt.getType() == StatementType.WHILE_STATEMENT) {
             WhileStatement whileStatement = (WhileStatement) snt.getStatement();
-            Expression expression = whileStatement.getExpression();
-            expression.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(whileStatement.getExpression()).containsName(name);
         } else if (snt.getType() == StatementType.CATCH_CLAUSE) {
             CatchClause catchClause = (CatchClause) snt.getStatement();
-            SingleVariableDeclaration variable = catchClause.getException();
-            variable.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(SimpleName node) {
-                    list.add(node.getIdentifier());
-                    return true;
-                }
-            });
-            return list.contains(name);
+            return ASTFacts.of(catchClause.getException()).containsName(name);
         }
-        ASTNode statement = snt.getStatement();
-        statement.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(SimpleName node) {
-                list.add(node.getIdentifier());
-                return true;
-            }
-        });
-        return list.contains(name);
+        return ASTFacts.of(snt.getStatement()).containsName(name);
     }
 
     private boolean isSameStatement(DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity,
@@ -1811,24 +2374,15 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     private boolean hasMethodInvocation(DeclarationNodeTree node1, DeclarationNodeTree node2) {
         MethodDeclaration declaration1 = (MethodDeclaration) node1.getDeclaration();
         MethodDeclaration declaration2 = (MethodDeclaration) node2.getDeclaration();
-        List<MethodInvocation> invocations = new ArrayList<>();
+        ASTFacts facts = ASTFacts.of(declaration1);
+        List<MethodInvocation> invocations = facts.getMethodInvocations(declaration2.getName().getIdentifier(),
+                declaration2.parameters().size());
         List<ConstructorInvocation> constructors = new ArrayList<>();
-        declaration1.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(MethodInvocation node) {
-                if (node.getName().getIdentifier().equals(declaration2.getName().getIdentifier()) &&
-                        node.arguments().size() == declaration2.parameters().size())
-                    invocations.add(node);
-                return true;
-            }
-
-            public boolean visit(ConstructorInvocation node) {
-                if (declaration2.isConstructor() &&
-                        node.arguments().size() == declaration2.parameters().size())
-                    constructors.add(node);
-                return true;
-            }
-        });
+        for (ConstructorInvocation node : facts.getConstructorInvocations()) {
+            if (declaration2.isConstructor() &&
+                    node.arguments().size() == declaration2.parameters().size())
+                constructors.add(node);
+        }
         List<DeclarationNodeTree> children = node2.getParent().getChildren();
         for (DeclarationNodeTree child : children) {
             if (child.getType() != EntityType.METHOD) continue;
@@ -1843,7 +2397,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private boolean matchedLOCAreGreaterThanUnmatchedLOC(DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity,
                                                          DeclarationNodeTree anotherEntity, boolean isExtracted,
-                                                         Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                                         MatchedStatementIndex statementIndex,
                                                          double dice) {
         MethodNode methodNode = anotherEntity.getMethodNode();
         List<StatementNodeTree> statements = methodNode.getMatchedStatements();
@@ -1853,10 +2407,9 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         // isExtracted == true ? extract method : inline method
         if (isExtracted) {
             for (StatementNodeTree snt : statements) {
-                for (Pair<StatementNodeTree, StatementNodeTree> pair : matchedStatements) {
+                for (Pair<StatementNodeTree, StatementNodeTree> pair : statementIndex.getPairsByRight(snt)) {
                     StatementNodeTree oldStatement = pair.getLeft();
-                    StatementNodeTree newStatement = pair.getRight();
-                    if (snt == newStatement && oldStatement.getRoot().getMethodEntity() == oldEntity) {
+                    if (oldStatement.getRoot().getMethodEntity() == oldEntity) {
                         if (snt.getRoot() != snt.getHigherRoot() && snt.getType() == StatementType.RETURN_STATEMENT &&
                                 oldStatement.getType() != StatementType.RETURN_STATEMENT && dice < 0.15) ;
                         else
@@ -1866,10 +2419,9 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             }
         } else {
             for (StatementNodeTree snt : statements) {
-                for (Pair<StatementNodeTree, StatementNodeTree> pair : matchedStatements) {
-                    StatementNodeTree oldStatement = pair.getLeft();
+                for (Pair<StatementNodeTree, StatementNodeTree> pair : statementIndex.getPairsByLeft(snt)) {
                     StatementNodeTree newStatement = pair.getRight();
-                    if (snt == oldStatement && newStatement.getRoot().getMethodEntity() == newEntity) {
+                    if (newStatement.getRoot().getMethodEntity() == newEntity) {
                         matchedLOC += 1;
                     }
                 }
@@ -1893,101 +2445,112 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         return matchedLOC >= unMatchedLOC;
     }
 
-    private void detectRefactoringsBetweenMatchedDeletedEntities(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities,
+    private void detectRefactoringsBetweenMatchedDeletedEntities(MatchedEntityIndex entityIndex,
                                                                  Set<DeclarationNodeTree> deletedEntities,
-                                                                 Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                                                 MatchedStatementIndex statementIndex,
+                                                                 ChunkGrouping grouping,
                                                                  List<Refactoring> refactorings) {
-        for (DeclarationNodeTree deletedEntity : deletedEntities) {
-            if (deletedEntity.getType() != EntityType.METHOD)
-                continue;
-            List<EntityInfo> dependencies = deletedEntity.getDependencies();
-            for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-                DeclarationNodeTree oldEntity = pair.getLeft();
-                DeclarationNodeTree newEntity = pair.getRight();
-                if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
-                    if (!dependencies.contains(oldEntity.getEntity()) && !hasMethodInvocation(oldEntity, deletedEntity))
-                        continue;
-                    if (MethodUtils.isNewFunction(newEntity.getDeclaration(), oldEntity.getDeclaration()))
-                        continue;
-                    if (MethodUtils.isGetter((MethodDeclaration) deletedEntity.getDeclaration()) || MethodUtils.isSetter((MethodDeclaration) deletedEntity.getDeclaration()))
-                        continue;
-                    DeclarationNodeTree inlinedEntity = getDelegatedMethod(deletedEntity, deletedEntities);
-                    double dice = DiceFunction.calculateBodyDice((LeafNode) newEntity, (LeafNode) oldEntity, (LeafNode) inlinedEntity);
-                    if (dice >= 0.25 ||
-                            matchedLOCAreGreaterThanUnmatchedLOC(oldEntity, newEntity, inlinedEntity, false, matchedStatements, dice)) {
-                        boolean isMove = !deletedEntity.getNamespace().equals(newEntity.getNamespace()) &&
-                                !matchedEntities.contains(Pair.of(deletedEntity.getParent(), newEntity.getParent()));
-                        if (isMove) {
-                            MoveAndInlineOperationRefactoring refactoring = new MoveAndInlineOperationRefactoring(oldEntity, newEntity, deletedEntity, matchedStatements);
-                            refactorings.add(refactoring);
-                        } else {
-                            InlineOperationRefactoring refactoring = new InlineOperationRefactoring(oldEntity, newEntity, deletedEntity, matchedStatements);
-                            refactorings.add(refactoring);
-                        }
+        if (grouping != null) {
+            DetectionTasks.forEach(deletedEntities, deletedEntity -> Collections.singletonList(grouping.getGroup(deletedEntity)),
+                    (deletedEntity, output) -> detectRefactoringsBetweenMatchedDeletedEntity(entityIndex, deletedEntities, statementIndex,
+                            deletedEntity, output), refactorings);
+        } else {
+            for (DeclarationNodeTree deletedEntity : deletedEntities)
+                detectRefactoringsBetweenMatchedDeletedEntity(entityIndex, deletedEntities, statementIndex, deletedEntity, refactorings);
+        }
+    }
+
+    private void detectRefactoringsBetweenMatchedDeletedEntity(MatchedEntityIndex entityIndex, Set<DeclarationNodeTree> deletedEntities,
+                                                               MatchedStatementIndex statementIndex, DeclarationNodeTree deletedEntity,
+                                                               List<Refactoring> refactorings) {
+        checkInterrupted();
+        if (deletedEntity.getType() != EntityType.METHOD)
+            return;
+        List<EntityInfo> dependencies = deletedEntity.getDependencies();
+        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getMethodPairs()) {
+            DeclarationNodeTree oldEntity = pair.getLeft();
+            DeclarationNodeTree newEntity = pair.getRight();
+            if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
+                if (!dependencies.contains(oldEntity.getEntity()) && !hasMethodInvocation(oldEntity, deletedEntity))
+                    continue;
+                if (MethodUtils.isNewFunction(newEntity.getDeclaration(), oldEntity.getDeclaration()))
+                    continue;
+                if (MethodUtils.isGetter((MethodDeclaration) deletedEntity.getDeclaration()) || MethodUtils.isSetter((MethodDeclaration) deletedEntity.getDeclaration()))
+                    continue;
+                DeclarationNodeTree inlinedEntity = getDelegatedMethod(deletedEntity, deletedEntities);
+                double dice = DiceFunction.calculateBodyDice((LeafNode) newEntity, (LeafNode) oldEntity, (LeafNode) inlinedEntity);
+                if (dice >= 0.25 ||
+                        matchedLOCAreGreaterThanUnmatchedLOC(oldEntity, newEntity, inlinedEntity, false, statementIndex, dice)) {
+                    boolean isMove = !deletedEntity.getNamespace().equals(newEntity.getNamespace()) &&
+                            !entityIndex.contains(deletedEntity.getParent(), newEntity.getParent());
+                    if (isMove) {
+                        MoveAndInlineOperationRefactoring refactoring = new MoveAndInlineOperationRefactoring(oldEntity, newEntity, deletedEntity,
+                                    statementIndex.getPairs(deletedEntity.getMethodNode(), newEntity.getMethodNode()));
+                        refactorings.add(refactoring);
                     } else {
-                        MethodNode inlinedMethodNode = inlinedEntity.getMethodNode();
-                        List<StatementNodeTree> allOperations = inlinedMethodNode.getAllOperations();
-                        List<StatementNodeTree> allControls = inlinedMethodNode.getAllControls();
-                        List<StatementNodeTree> allBlocks = inlinedMethodNode.getAllBlocks();
-                        if (allOperations.size() == 1 && allControls.isEmpty() && allBlocks.size() == 1 &&
-                                allOperations.get(0).getType() == StatementType.RETURN_STATEMENT && allOperations.get(0).getExpression().startsWith("return ")) {
-                            boolean isInlined = false;
-                            String name = inlinedEntity.getName();
-                            for (Pair<StatementNodeTree, StatementNodeTree> pair2 : matchedStatements) {
-                                StatementNodeTree oldStatement = pair2.getLeft();
-                                StatementNodeTree newStatement = pair2.getRight();
-                                if (oldStatement.getRoot().getMethodEntity() == oldEntity && newStatement.getRoot().getMethodEntity() == newEntity) {
-                                    MethodNode oldMethodNode = oldEntity.getMethodNode();
-                                    List<StatementNodeTree> operations = oldMethodNode.getAllOperations();
-                                    List<StatementNodeTree> controls = oldMethodNode.getAllControls();
-                                    List<StatementNodeTree> locations = new ArrayList<>();
-                                    findMethodInvocation(operations, controls, inlinedEntity, locations);
-                                    List<MethodInvocation> invocations = new ArrayList<>();
-                                    for (StatementNodeTree location : locations) {
-                                        location.getStatement().accept(new ASTVisitor() {
-                                            @Override
-                                            public boolean visit(MethodInvocation node) {
-                                                if (node.getName().getIdentifier().equals(name)) {
-                                                    invocations.add(node);
-                                                }
-                                                return true;
-                                            }
-                                        });
-                                    }
-                                    for (MethodInvocation invocation : invocations) {
-                                        List<Expression> arguments = invocation.arguments();
-                                        MethodDeclaration declaration = (MethodDeclaration) inlinedEntity.getDeclaration();
-                                        List<SingleVariableDeclaration> parameters = declaration.parameters();
-                                        String operation = allOperations.get(0).getExpression().substring("return ".length());
-                                        if (operation.endsWith(";\n"))
-                                            operation = operation.substring(0, operation.length() - 2);
-                                        if (arguments.size() == parameters.size()) {
-                                            for (int i = 0; i < arguments.size(); i++) {
-                                                String argument = arguments.get(i).toString();
-                                                String parameter = parameters.get(i).getName().getIdentifier();
-                                                operation = operation.replace(argument, parameter);
-                                            }
-                                        }
-                                        if (oldStatement.getExpression().contains(invocation.toString()) && !newStatement.getExpression().equals(oldStatement.getExpression()) &&
-                                                newStatement.getExpression().equals(oldStatement.getExpression().replace(invocation.toString(), operation))) {
-                                            isInlined = true;
-                                            break;
-                                        }
+                        InlineOperationRefactoring refactoring = new InlineOperationRefactoring(oldEntity, newEntity, deletedEntity,
+                                    statementIndex.getPairs(deletedEntity.getMethodNode(), newEntity.getMethodNode()));
+                        refactorings.add(refactoring);
+                    }
+                } else {
+                    MethodNode inlinedMethodNode = inlinedEntity.getMethodNode();
+                    List<StatementNodeTree> allOperations = inlinedMethodNode.getAllOperations();
+                    List<StatementNodeTree> allControls = inlinedMethodNode.getAllControls();
+                    List<StatementNodeTree> allBlocks = inlinedMethodNode.getAllBlocks();
+                    if (allOperations.size() == 1 && allControls.isEmpty() && allBlocks.size() == 1 &&
+                            allOperations.get(0).getType() == StatementType.RETURN_STATEMENT && allOperations.get(0).getExpression().startsWith("return ")) {
+                        boolean isInlined = false;
+                        String name = inlinedEntity.getName();
+                        for (Pair<StatementNodeTree, StatementNodeTree> pair2 : statementIndex.getPairs(oldEntity, newEntity)) {
+                            StatementNodeTree oldStatement = pair2.getLeft();
+                            StatementNodeTree newStatement = pair2.getRight();
+                            MethodNode oldMethodNode = oldEntity.getMethodNode();
+                            List<StatementNodeTree> operations = oldMethodNode.getAllOperations();
+                            List<StatementNodeTree> controls = oldMethodNode.getAllControls();
+                            List<StatementNodeTree> locations = new ArrayList<>();
+                            findMethodInvocation(operations, controls, inlinedEntity, locations);
+                            List<MethodInvocation> invocations = new ArrayList<>();
+                            for (StatementNodeTree location : locations) {
+                                for (MethodInvocation node : ASTFacts.of(location.getStatement()).getMethodInvocations()) {
+                                    if (node.getName().getIdentifier().equals(name)) {
+                                        invocations.add(node);
                                     }
                                 }
                             }
-                            if (!isInlined)
-                                continue;
-                            boolean isMove = !inlinedEntity.getNamespace().equals(newEntity.getNamespace()) &&
-                                    !matchedEntities.contains(Pair.of(inlinedEntity.getParent(), newEntity.getParent()));
-                            if (isMove) {
-                                MoveAndInlineOperationRefactoring refactoring = new MoveAndInlineOperationRefactoring(oldEntity, newEntity, deletedEntity, matchedStatements);
-                                refactorings.add(refactoring);
-                            } else {
-                                InlineOperationRefactoring refactoring = new InlineOperationRefactoring(oldEntity, newEntity, deletedEntity, matchedStatements);
-                                refactorings.add(refactoring);
+                            for (MethodInvocation invocation : invocations) {
+                                List<Expression> arguments = invocation.arguments();
+                                MethodDeclaration declaration = (MethodDeclaration) inlinedEntity.getDeclaration();
+                                List<SingleVariableDeclaration> parameters = declaration.parameters();
+                                String operation = allOperations.get(0).getExpression().substring("return ".length());
+                                if (operation.endsWith(";\n"))
+                                    operation = operation.substring(0, operation.length() - 2);
+                                if (arguments.size() == parameters.size()) {
+                                    for (int i = 0; i < arguments.size(); i++) {
+                                        String argument = arguments.get(i).toString();
+                                        String parameter = parameters.get(i).getName().getIdentifier();
+                                        operation = operation.replace(argument, parameter);
+                                    }
+                                }
+                                if (oldStatement.getExpression().contains(invocation.toString()) && !newStatement.getExpression().equals(oldStatement.getExpression()) &&
+                                        newStatement.getExpression().equals(oldStatement.getExpression().replace(invocation.toString(), operation))) {
+                                    isInlined = true;
+                                    break;
+                                }
                             }
                         }
+                        if (!isInlined)
+                            continue;
+                        boolean isMove = !inlinedEntity.getNamespace().equals(newEntity.getNamespace()) &&
+                                !entityIndex.contains(inlinedEntity.getParent(), newEntity.getParent());
+                        if (isMove) {
+                            MoveAndInlineOperationRefactoring refactoring = new MoveAndInlineOperationRefactoring(oldEntity, newEntity, deletedEntity,
+                                    statementIndex.getPairs(deletedEntity.getMethodNode(), newEntity.getMethodNode()));
+                            refactorings.add(refactoring);
+                        } else {
+                            InlineOperationRefactoring refactoring = new InlineOperationRefactoring(oldEntity, newEntity, deletedEntity,
+                                    statementIndex.getPairs(deletedEntity.getMethodNode(), newEntity.getMethodNode()));
+                            refactorings.add(refactoring);
+                        }
                     }
                 }
             }
@@ -1995,9 +2558,9 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private void detectRefactoringsInIntroducedObjects(Map<DeclarationNodeTree, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>>> introducedObjects,
-                                                       MatchPair matchPair, List<Refactoring> refactorings) {
-        Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities = matchPair.getMatchedEntities();
+                                                       MatchedEntityIndex entityIndex, List<Refactoring> refactorings) {
         for (DeclarationNodeTree extractedEntity : introducedObjects.keySet()) {
+            checkInterrupted();
             Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> value = introducedObjects.get(extractedEntity);
             Map<Pair<DeclarationNodeTree, DeclarationNodeTree>, Map<DeclarationNodeTree, DeclarationNodeTree>> extractedAttributes = new LinkedHashMap<>();
             for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : value) {
@@ -2017,29 +2580,22 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             for (Pair<DeclarationNodeTree, DeclarationNodeTree> parentPair : extractedAttributes.keySet()) {
                 Map<DeclarationNodeTree, DeclarationNodeTree> attributes = extractedAttributes.get(parentPair);
                 Map<DeclarationNodeTree, DeclarationNodeTree> extractedOperations = new TreeMap<>(Comparator.comparingInt(startLine -> startLine.getLocationInfo().getStartLine()));
-                for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
+                Map<DeclarationNodeTree, Boolean> subTypes = new IdentityHashMap<>();
+                for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : entityIndex.getMethodPairs()) {
                     DeclarationNodeTree oldEntity = pair.getLeft();
                     DeclarationNodeTree newEntity = pair.getRight();
-                    if (oldEntity.getType() == EntityType.METHOD && newEntity.getType() == EntityType.METHOD) {
-                        if (newEntity.getParent() == extractedEntity) {
-                            MethodDeclaration declaration1 = (MethodDeclaration) oldEntity.getDeclaration();
-                            MethodDeclaration declaration2 = (MethodDeclaration) newEntity.getDeclaration();
-                            if (!declaration1.isConstructor() && !declaration2.isConstructor()) {
-                                extractedOperations.put(oldEntity, newEntity);
-                            }
-                        } else {
-                            if (newEntity.getParent().getType() == EntityType.CLASS || newEntity.getParent().getType() == EntityType.INTERFACE) {
-                                TypeDeclaration newClass = (TypeDeclaration) newEntity.getParent().getDeclaration();
-                                TypeDeclaration addedClass = (TypeDeclaration) extractedEntity.getDeclaration();
-                                if (isSubTypeOf(newClass, addedClass)) {
-                                    List<DeclarationNodeTree> children = extractedEntity.getChildren();
-                                    for (DeclarationNodeTree child : children) {
-                                        if (child.getType() == newEntity.getType() && child.getName().equals(newEntity.getName()) &&
-                                                isSameSignature(child, newEntity)) {
-                                            extractedOperations.put(oldEntity, child);
-                                        }
-                                    }
-                                }
+                    if (newEntity.getParent() == extractedEntity) {
+                        MethodDeclaration declaration1 = (MethodDeclaration) oldEntity.getDeclaration();
+                        MethodDeclaration declaration2 = (MethodDeclaration) newEntity.getDeclaration();
+                        if (!declaration1.isConstructor() && !declaration2.isConstructor()) {
+                            extractedOperations.put(oldEntity, newEntity);
+                        }
+                    } else if (isSubTypeOf(newEntity.getParent(), extractedEntity, subTypes)) {
+                        List<DeclarationNodeTree> children = extractedEntity.getChildren();
+                        for (DeclarationNodeTree child : children) {
+                            if (child.getType() == newEntity.getType() && child.getName().equals(newEntity.getName()) &&
+                                    isSameSignature(child, newEntity)) {
+                                extractedOperations.put(oldEntity, child);
                             }
                         }
                     }
@@ -2050,26 +2606,16 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         }
     }
 
-    private DeclarationNodeTree findMatchedEntity(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities, DeclarationNodeTree entity) {
-        for (Pair<DeclarationNodeTree, DeclarationNodeTree> pair : matchedEntities) {
-            if (pair.getLeft() == entity)
-                return pair.getRight();
-            if (pair.getRight() == entity)
-                return pair.getLeft();
-        }
-        return null;
-    }
-
-    private boolean isSubTypeOf(Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities, DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity, int range) {
+    private boolean isSubTypeOf(MatchedEntityIndex entityIndex, DeclarationNodeTree oldEntity, DeclarationNodeTree newEntity, int range) {
         DeclarationNodeTree oldParent = oldEntity.getParent();
         DeclarationNodeTree newParent = newEntity.getParent();
         if ((oldParent.getType() == EntityType.CLASS || oldParent.getType() == EntityType.INTERFACE) &&
                 (newParent.getType() == EntityType.CLASS || newParent.getType() == EntityType.INTERFACE)) {
             TypeDeclaration removedClass = (TypeDeclaration) oldParent.getDeclaration();
             TypeDeclaration addedClass = (TypeDeclaration) newParent.getDeclaration();
-            DeclarationNodeTree matchedAddedEntity = findMatchedEntity(matchedEntities, newParent);
+            DeclarationNodeTree matchedAddedEntity = entityIndex.getMatchedEntity(newParent);
             TypeDeclaration matchedAddedClass = matchedAddedEntity == null ? null : (TypeDeclaration) (matchedAddedEntity.getDeclaration());
-            DeclarationNodeTree matchedDeletedEntity = findMatchedEntity(matchedEntities, oldParent);
+            DeclarationNodeTree matchedDeletedEntity = entityIndex.getMatchedEntity(oldParent);
             TypeDeclaration matchedDeletedClass = matchedDeletedEntity == null ? null : (TypeDeclaration) (matchedDeletedEntity.getDeclaration());
             if (range == 0)
                 return matchedDeletedClass != null && isSubTypeOf(matchedDeletedClass, addedClass);
@@ -2079,6 +2625,13 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         return false;
     }
 
+    private boolean isSubTypeOf(DeclarationNodeTree entity, DeclarationNodeTree addedEntity, Map<DeclarationNodeTree, Boolean> subTypes) {
+        if (entity.getType() != EntityType.CLASS && entity.getType() != EntityType.INTERFACE)
+            return false;
+        return subTypes.computeIfAbsent(entity, parent ->
+                isSubTypeOf((TypeDeclaration) parent.getDeclaration(), (TypeDeclaration) addedEntity.getDeclaration()));
+    }
+
     private boolean isSubTypeOf(TypeDeclaration removedClass, TypeDeclaration addedClass) {
         ITypeBinding removedBinding = removedClass.resolveBinding();
         ITypeBinding addedBinding = addedClass.resolveBinding();
@@ -2119,153 +2672,136 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
         return false;
     }
 
-    private void detectRefactoringsInMatchedStatements(Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+    private void detectRefactoringsInMatchedStatements(MatchedStatementIndex statementIndex, ChunkGrouping grouping,
                                                        List<Refactoring> refactorings) {
-        for (Pair<StatementNodeTree, StatementNodeTree> pair : matchedStatements) {
-            StatementNodeTree oldStatement = pair.getLeft();
-            StatementNodeTree newStatement = pair.getRight();
-            DeclarationNodeTree oldEntity = oldStatement.getRoot().getMethodEntity();
-            DeclarationNodeTree newEntity = newStatement.getRoot().getMethodEntity();
-            if (oldStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT && newStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
-                processVariableDeclarationStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.IF_STATEMENT && newStatement.getType() == StatementType.IF_STATEMENT) {
-                processIfStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT && newStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT) {
-                processEnhancedForStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.FOR_STATEMENT && newStatement.getType() == StatementType.FOR_STATEMENT) {
-                processForStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.CATCH_CLAUSE && newStatement.getType() == StatementType.CATCH_CLAUSE) {
-                processCatchClause(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.TRY_STATEMENT && newStatement.getType() == StatementType.TRY_STATEMENT) {
-                processTryStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if ((oldStatement.getType() == StatementType.FOR_STATEMENT || oldStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
-                    oldStatement.getType() == StatementType.WHILE_STATEMENT || oldStatement.getType() == StatementType.DO_STATEMENT) &&
-                    (newStatement.getType() == StatementType.FOR_STATEMENT || newStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
-                            newStatement.getType() == StatementType.WHILE_STATEMENT || newStatement.getType() == StatementType.DO_STATEMENT)) {
-                processLoopStatement(oldStatement, newStatement, oldEntity, newEntity, matchedStatements, refactorings);
-            }
-            if ((oldStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || oldStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
-                    oldStatement.getType() == StatementType.RETURN_STATEMENT) &&
-                    (newStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || newStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
-                            newStatement.getType() == StatementType.RETURN_STATEMENT)) {
-                processAnonymousWithLambda(oldStatement, newStatement, oldEntity, newEntity, refactorings);
-            }
-            if (oldStatement.getType() == StatementType.IF_STATEMENT && newStatement.getType() == StatementType.IF_STATEMENT) {
-                processInvertCondition(oldStatement, newStatement, oldEntity, newEntity, matchedStatements, refactorings);
-            }
-            if (oldStatement instanceof OperationNode && newStatement instanceof OperationNode) {
-                List<LambdaExpression> oldLambdaExpressions = new ArrayList<>();
-                List<LambdaExpression> newLambdaExpressions = new ArrayList<>();
-                oldStatement.getStatement().accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(LambdaExpression node) {
-                        oldLambdaExpressions.add(node);
-                        return true;
-                    }
-                });
-                newStatement.getStatement().accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(LambdaExpression node) {
-                        newLambdaExpressions.add(node);
-                        return true;
-                    }
-                });
-                if (oldLambdaExpressions.size() == 1 && newLambdaExpressions.size() == 1) {
-                    LambdaExpression oldLambdaExpression = oldLambdaExpressions.get(0);
-                    LambdaExpression newLambdaExpression = newLambdaExpressions.get(0);
-                    List<VariableDeclaration> oldParameters = oldLambdaExpression.parameters();
-                    List<VariableDeclaration> newParameters = newLambdaExpression.parameters();
-                    if (oldParameters.size() == newParameters.size()) {
-                        for (int i = 0; i < oldParameters.size(); i++) {
-                            VariableDeclaration oldFragment = oldParameters.get(i);
-                            VariableDeclaration newFragment = newParameters.get(i);
-                            if (!oldFragment.getName().getIdentifier().equals(newFragment.getName().getIdentifier())) {
-                                RenameVariableRefactoring refactoring = new RenameVariableRefactoring(oldFragment, newFragment, oldEntity, newEntity);
-                                refactorings.add(refactoring);
-                            }
+        if (grouping != null) {
+            DetectionTasks.forEach(statementIndex.getMatchedStatements(),
+                    pair -> Arrays.asList(grouping.getGroup(pair.getLeft()), grouping.getGroup(pair.getRight())),
+                    (pair, output) -> detectRefactoringsInMatchedStatement(statementIndex, pair, output), refactorings);
+        } else {
+            for (Pair<StatementNodeTree, StatementNodeTree> pair : statementIndex.getMatchedStatements())
+                detectRefactoringsInMatchedStatement(statementIndex, pair, refactorings);
+        }
+    }
+
+    private void detectRefactoringsInMatchedStatement(MatchedStatementIndex statementIndex, Pair<StatementNodeTree, StatementNodeTree> pair,
+                                                      List<Refactoring> refactorings) {
+        checkInterrupted();
+        StatementNodeTree oldStatement = pair.getLeft();
+        StatementNodeTree newStatement = pair.getRight();
+        DeclarationNodeTree oldEntity = oldStatement.getRoot().getMethodEntity();
+        DeclarationNodeTree newEntity = newStatement.getRoot().getMethodEntity();
+        if (oldStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT && newStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
+            processVariableDeclarationStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.IF_STATEMENT && newStatement.getType() == StatementType.IF_STATEMENT) {
+            processIfStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT && newStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT) {
+            processEnhancedForStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.FOR_STATEMENT && newStatement.getType() == StatementType.FOR_STATEMENT) {
+            processForStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.CATCH_CLAUSE && newStatement.getType() == StatementType.CATCH_CLAUSE) {
+            processCatchClause(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.TRY_STATEMENT && newStatement.getType() == StatementType.TRY_STATEMENT) {
+            processTryStatement(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if ((oldStatement.getType() == StatementType.FOR_STATEMENT || oldStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
+                oldStatement.getType() == StatementType.WHILE_STATEMENT || oldStatement.getType() == StatementType.DO_STATEMENT) &&
+                (newStatement.getType() == StatementType.FOR_STATEMENT || newStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
+                        newStatement.getType() == StatementType.WHILE_STATEMENT || newStatement.getType() == StatementType.DO_STATEMENT)) {
+            processLoopStatement(oldStatement, newStatement, oldEntity, newEntity, statementIndex, refactorings);
+        }
+        if ((oldStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || oldStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
+                oldStatement.getType() == StatementType.RETURN_STATEMENT) &&
+                (newStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || newStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
+                        newStatement.getType() == StatementType.RETURN_STATEMENT)) {
+            processAnonymousWithLambda(oldStatement, newStatement, oldEntity, newEntity, refactorings);
+        }
+        if (oldStatement.getType() == StatementType.IF_STATEMENT && newStatement.getType() == StatementType.IF_STATEMENT) {
+            processInvertCondition(oldStatement, newStatement, oldEntity, newEntity, statementIndex, refactorings);
+        }
+        if (oldStatement instanceof OperationNode && newStatement instanceof OperationNode) {
+            ASTFacts oldFacts = ASTFacts.of(oldStatement.getStatement());
+            ASTFacts newFacts = ASTFacts.of(newStatement.getStatement());
+            List<LambdaExpression> oldLambdaExpressions = oldFacts.getLambdaExpressions();
+            List<LambdaExpression> newLambdaExpressions = newFacts.getLambdaExpressions();
+            if (oldLambdaExpressions.size() == 1 && newLambdaExpressions.size() == 1) {
+                LambdaExpression oldLambdaExpression = oldLambdaExpressions.get(0);
+                LambdaExpression newLambdaExpression = newLambdaExpressions.get(0);
+                List<VariableDeclaration> oldParameters = oldLambdaExpression.parameters();
+                List<VariableDeclaration> newParameters = newLambdaExpression.parameters();
+                if (oldParameters.size() == newParameters.size()) {
+                    for (int i = 0; i < oldParameters.size(); i++) {
+                        VariableDeclaration oldFragment = oldParameters.get(i);
+                        VariableDeclaration newFragment = newParameters.get(i);
+                        if (!oldFragment.getName().getIdentifier().equals(newFragment.getName().getIdentifier())) {
+                            RenameVariableRefactoring refactoring = new RenameVariableRefactoring(oldFragment, newFragment, oldEntity, newEntity);
+                            refactorings.add(refactoring);
                         }
                     }
                 }
-                List<MethodDeclaration> oldMethods = new ArrayList<>();
-                List<MethodDeclaration> newMethods = new ArrayList<>();
-                oldStatement.getStatement().accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(MethodDeclaration node) {
-                        oldMethods.add(node);
-                        return true;
+            }
+            List<MethodDeclaration> oldMethods = oldFacts.getMethodDeclarations();
+            List<MethodDeclaration> newMethods = newFacts.getMethodDeclarations();
+            Set<MethodDeclaration> matched = new HashSet<>();
+            for (MethodDeclaration oldMethod : oldMethods) {
+                for (MethodDeclaration newMethod : newMethods) {
+                    if (matched.contains(newMethod)) continue;
+                    if (oldMethod.toString().equals(newMethod.toString())) {
+                        matched.add(newMethod);
+                        break;
                     }
-                });
-                newStatement.getStatement().accept(new ASTVisitor() {
-                    @Override
-                    public boolean visit(MethodDeclaration node) {
-                        newMethods.add(node);
-                        return true;
+                    String originalType = oldMethod.getReturnType2() == null ? "" : oldMethod.getReturnType2().toString();
+                    String changedType = newMethod.getReturnType2() == null ? "" : newMethod.getReturnType2().toString();
+                    if (oldMethod.getName().getIdentifier().equals(newMethod.getName().getIdentifier()) &&
+                            StringUtils.equals(originalType, changedType) &&
+                            oldMethod.parameters().size() == newMethod.parameters().size() && equalsParameters(oldMethod, newMethod)) {
+                        DeclarationNodeTree leftEntity = new LeafNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod);
+                        DeclarationNodeTree rightEntity = new LeafNode((CompilationUnit) newMethod.getRoot(), newStatement.getLocationInfo().getFilePath(), newMethod);
+                        leftEntity.setDeclaration(oldMethod);
+                        leftEntity.setType(EntityType.METHOD);
+                        leftEntity.setParent(new InternalNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod));
+                        leftEntity.getParent().setType(EntityType.CLASS);
+                        if (oldMethod.getParent() instanceof AnonymousClassDeclaration && oldMethod.getParent().getParent() instanceof ClassInstanceCreation)
+                            leftEntity.setNamespace(oldStatement.getRoot().getMethodEntity().getNamespace() + "." + oldStatement.getRoot().getMethodEntity().getName() + ".new " +
+                                    ((ClassInstanceCreation) oldMethod.getParent().getParent()).getType().toString());
+                        rightEntity.setDeclaration(newMethod);
+                        rightEntity.setType(EntityType.METHOD);
+                        rightEntity.setParent(new InternalNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod));
+                        rightEntity.getParent().setType(EntityType.CLASS);
+                        if (newMethod.getParent() instanceof AnonymousClassDeclaration && newMethod.getParent().getParent() instanceof ClassInstanceCreation)
+                            rightEntity.setNamespace(newStatement.getRoot().getMethodEntity().getNamespace() + "." + newStatement.getRoot().getMethodEntity().getName() + ".new " +
+                                    ((ClassInstanceCreation) newMethod.getParent().getParent()).getType().toString());
+                        checkForOperationAnnotationChanges(leftEntity, rightEntity, refactorings);
+                        checkForOperationModifierChanges(leftEntity, rightEntity, refactorings);
+                        checkForThrownExceptionTypeChanges(leftEntity, rightEntity, refactorings);
                     }
-                });
-                Set<MethodDeclaration> matched = new HashSet<>();
-                for (MethodDeclaration oldMethod : oldMethods) {
-                    for (MethodDeclaration newMethod : newMethods) {
-                        if (matched.contains(newMethod)) continue;
-                        if (oldMethod.toString().equals(newMethod.toString())) {
-                            matched.add(newMethod);
-                            break;
-                        }
-                        String originalType = oldMethod.getReturnType2() == null ? "" : oldMethod.getReturnType2().toString();
-                        String changedType = newMethod.getReturnType2() == null ? "" : newMethod.getReturnType2().toString();
-                        if (oldMethod.getName().getIdentifier().equals(newMethod.getName().getIdentifier()) &&
-                                StringUtils.equals(originalType, changedType) &&
-                                oldMethod.parameters().size() == newMethod.parameters().size() && equalsParameters(oldMethod, newMethod)) {
-                            DeclarationNodeTree leftEntity = new LeafNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod);
-                            DeclarationNodeTree rightEntity = new LeafNode((CompilationUnit) newMethod.getRoot(), newStatement.getLocationInfo().getFilePath(), newMethod);
-                            leftEntity.setDeclaration(oldMethod);
-                            leftEntity.setType(EntityType.METHOD);
-                            leftEntity.setParent(new InternalNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod));
-                            leftEntity.getParent().setType(EntityType.CLASS);
-                            if (oldMethod.getParent() instanceof AnonymousClassDeclaration && oldMethod.getParent().getParent() instanceof ClassInstanceCreation)
-                                leftEntity.setNamespace(oldStatement.getRoot().getMethodEntity().getNamespace() + "." + oldStatement.getRoot().getMethodEntity().getName() + ".new " +
-                                        ((ClassInstanceCreation) oldMethod.getParent().getParent()).getType().toString());
-                            rightEntity.setDeclaration(newMethod);
-                            rightEntity.setType(EntityType.METHOD);
-                            rightEntity.setParent(new InternalNode((CompilationUnit) oldMethod.getRoot(), oldStatement.getLocationInfo().getFilePath(), oldMethod));
-                            rightEntity.getParent().setType(EntityType.CLASS);
-                            if (newMethod.getParent() instanceof AnonymousClassDeclaration && newMethod.getParent().getParent() instanceof ClassInstanceCreation)
-                                rightEntity.setNamespace(newStatement.getRoot().getMethodEntity().getNamespace() + "." + newStatement.getRoot().getMethodEntity().getName() + ".new " +
-                                        ((ClassInstanceCreation) newMethod.getParent().getParent()).getType().toString());
-                            checkForOperationAnnotationChanges(leftEntity, rightEntity, refactorings);
-                            checkForOperationModifierChanges(leftEntity, rightEntity, refactorings);
-                            checkForThrownExceptionTypeChanges(leftEntity, rightEntity, refactorings);
-                        }
-                        if (oldMethod.getName().getIdentifier().equals(newMethod.getName().getIdentifier()) &&
-                                !StringUtils.equals(originalType, changedType) && oldMethod.getBody() != null && newMethod.getBody() != null &&
-                                oldMethod.getBody().toString().equals(newMethod.getBody().toString()) &&
-                                oldMethod.parameters().size() == newMethod.parameters().size() && equalsParameters(oldMethod, newMethod)) {
-                            DeclarationNodeTree oldLeafNode = new LeafNode((CompilationUnit) oldMethod.getRoot(), oldEntity.getFilePath(), oldMethod);
-                            oldLeafNode.setHeight(oldEntity.getHeight() + 1);
-                            oldLeafNode.setType(EntityType.METHOD);
-                            oldLeafNode.setNamespace("".equals(oldEntity.getNamespace()) ? oldEntity.getName() : oldEntity.getNamespace() + "." + oldEntity.getName());
-                            oldLeafNode.setName(oldMethod.getName().getFullyQualifiedName());
-                            oldLeafNode.setParent(oldEntity);
-                            oldMethod.setJavadoc(null);
-                            oldLeafNode.setDeclaration(oldMethod);
-                            oldLeafNode.setFilePath(oldEntity.getFilePath());
-                            DeclarationNodeTree newLeafNode = new LeafNode((CompilationUnit) newMethod.getRoot(), newEntity.getFilePath(), newMethod);
-                            newLeafNode.setHeight(newEntity.getHeight() + 1);
-                            newLeafNode.setType(EntityType.METHOD);
-                            newLeafNode.setNamespace("".equals(newEntity.getNamespace()) ? newEntity.getName() : newEntity.getNamespace() + "." + newEntity.getName());
-                            newLeafNode.setName(newMethod.getName().getFullyQualifiedName());
-                            newLeafNode.setParent(newEntity);
-                            newMethod.setJavadoc(null);
-                            newLeafNode.setDeclaration(newMethod);
-                            newLeafNode.setFilePath(newEntity.getFilePath());
-                            ChangeReturnTypeRefactoring refactoring = new ChangeReturnTypeRefactoring(oldMethod.getReturnType2(), newMethod.getReturnType2(), oldLeafNode, newLeafNode);
-                            refactorings.add(refactoring);
-                        }
+                    if (oldMethod.getName().getIdentifier().equals(newMethod.getName().getIdentifier()) &&
+                            !StringUtils.equals(originalType, changedType) && oldMethod.getBody() != null && newMethod.getBody() != null &&
+                            oldMethod.getBody().toString().equals(newMethod.getBody().toString()) &&
+                            oldMethod.parameters().size() == newMethod.parameters().size() && equalsParameters(oldMethod, newMethod)) {
+                        DeclarationNodeTree oldLeafNode = new LeafNode((CompilationUnit) oldMethod.getRoot(), oldEntity.getFilePath(), oldMethod);
+                        oldLeafNode.setHeight(oldEntity.getHeight() + 1);
+                        oldLeafNode.setType(EntityType.METHOD);
+                        oldLeafNode.setNamespace("".equals(oldEntity.getNamespace()) ? oldEntity.getName() : oldEntity.getNamespace() + "." + oldEntity.getName());
+                        oldLeafNode.setName(oldMethod.getName().getFullyQualifiedName());
+                        oldLeafNode.setParent(oldEntity);
+                        oldLeafNode.setDeclaration(oldMethod);
+                        oldLeafNode.setFilePath(oldEntity.getFilePath());
+                        DeclarationNodeTree newLeafNode = new LeafNode((CompilationUnit) newMethod.getRoot(), newEntity.getFilePath(), newMethod);
+                        newLeafNode.setHeight(newEntity.getHeight() + 1);
+                        newLeafNode.setType(EntityType.METHOD);
+                        newLeafNode.setNamespace("".equals(newEntity.getNamespace()) ? newEntity.getName() : newEntity.getNamespace() + "." + newEntity.getName());
+                        newLeafNode.setName(newMethod.getName().getFullyQualifiedName());
+                        newLeafNode.setParent(newEntity);
+                        newLeafNode.setDeclaration(newMethod);
+                        newLeafNode.setFilePath(newEntity.getFilePath());
+                        ChangeReturnTypeRefactoring refactoring = new ChangeReturnTypeRefactoring(oldMethod.getReturnType2(), newMethod.getReturnType2(), oldLeafNode, newLeafNode);
+                        refactorings.add(refactoring);
                     }
                 }
             }
@@ -2660,7 +3196,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private void processLoopStatement(StatementNodeTree oldStatement, StatementNodeTree newStatement, DeclarationNodeTree oldEntity,
-                                      DeclarationNodeTree newEntity, Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                      DeclarationNodeTree newEntity, MatchedStatementIndex statementIndex,
                                       List<Refactoring> refactorings) {
         if (oldStatement.getType() != newStatement.getType()) {
             ChangeLoopTypeRefactoring refactoring = new ChangeLoopTypeRefactoring(oldStatement, newStatement, oldEntity, newEntity);
@@ -2673,7 +3209,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
             parent = parent.getParent();
         }
         StatementNodeTree child = retrieveSNTByBFS(oldStatement);
-        if (child != null && matchedStatements.contains(Pair.of(child, parent))) {
+        if (child != null && statementIndex.contains(child, parent)) {
             LoopInterchangeRefactoring refactoring1 = new LoopInterchangeRefactoring(oldStatement, newStatement, oldEntity, newEntity);
             refactorings.add(refactoring1);
         }
@@ -2681,76 +3217,14 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private void processAnonymousWithLambda(StatementNodeTree oldStatement, StatementNodeTree newStatement, DeclarationNodeTree oldEntity,
                                             DeclarationNodeTree newEntity, List<Refactoring> refactorings) {
-        ASTNode statement1 = oldStatement.getStatement();
-        ASTNode statement2 = newStatement.getStatement();
-        List<AnonymousClassDeclaration> anonymous1 = new ArrayList<>();
-        List<LambdaExpression> lambda1 = new ArrayList<>();
-        List<MethodReference> references1 = new ArrayList<>();
-        List<AnonymousClassDeclaration> anonymous2 = new ArrayList<>();
-        List<LambdaExpression> lambda2 = new ArrayList<>();
-        List<MethodReference> references2 = new ArrayList<>();
-        statement1.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(AnonymousClassDeclaration node) {
-                anonymous1.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(LambdaExpression node) {
-                lambda1.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(ExpressionMethodReference node) {
-                references1.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(SuperMethodReference node) {
-                references1.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(TypeMethodReference node) {
-                references1.add(node);
-                return true;
-            }
-        });
-        statement2.accept(new ASTVisitor() {
-            @Override
-            public boolean visit(AnonymousClassDeclaration node) {
-                anonymous2.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(LambdaExpression node) {
-                lambda2.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(ExpressionMethodReference node) {
-                references2.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(SuperMethodReference node) {
-                references2.add(node);
-                return true;
-            }
-
-            @Override
-            public boolean visit(TypeMethodReference node) {
-                references2.add(node);
-                return true;
-            }
-        });
+        ASTFacts facts1 = ASTFacts.of(oldStatement.getStatement());
+        ASTFacts facts2 = ASTFacts.of(newStatement.getStatement());
+        List<AnonymousClassDeclaration> anonymous1 = facts1.getAnonymousClassDeclarations();
+        List<LambdaExpression> lambda1 = facts1.getLambdaExpressions();
+        List<MethodReference> references1 = facts1.getMethodReferences();
+        List<AnonymousClassDeclaration> anonymous2 = facts2.getAnonymousClassDeclarations();
+        List<LambdaExpression> lambda2 = facts2.getLambdaExpressions();
+        List<MethodReference> references2 = facts2.getMethodReferences();
         if (anonymous1.size() == 1 && lambda1.isEmpty() && references1.isEmpty() &&
                 lambda2.size() == 1 && references2.isEmpty() && anonymous2.isEmpty()) {
             ReplaceAnonymousWithLambdaRefactoring refactoring = new ReplaceAnonymousWithLambdaRefactoring(anonymous1.get(0), lambda2.get(0), oldEntity, newEntity);
@@ -2764,7 +3238,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     }
 
     private void processInvertCondition(StatementNodeTree oldStatement, StatementNodeTree newStatement, DeclarationNodeTree oldEntity,
-                                        DeclarationNodeTree newEntity, Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                        DeclarationNodeTree newEntity, MatchedStatementIndex statementIndex,
                                         List<Refactoring> refactorings) {
         if (!oldStatement.getExpression().equals(newStatement.getExpression()))
             return;
@@ -2794,7 +3268,7 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                 if (invertedFlag)
                     break;
                 for (StatementNodeTree child2 : children2) {
-                    if (matchedStatements.contains(Pair.of(child1, child2)) && !Objects.equals(child1.getBlockExpression(), child2.getBlockExpression()) &&
+                    if (statementIndex.contains(child1, child2) && !Objects.equals(child1.getBlockExpression(), child2.getBlockExpression()) &&
                             ((child1.getBlockType() == BlockType.IF_BLOCK && child2.getBlockType() == BlockType.ELSE_BLOCK) ||
                                     (child1.getBlockType() == BlockType.ELSE_BLOCK && child2.getBlockType() == BlockType.IF_BLOCK))) {
                         InvertConditionRefactoring refactoring = new InvertConditionRefactoring(oldStatement, newStatement, oldEntity, newEntity);
@@ -2827,16 +3301,29 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private void detectRefactoringsBetweenMatchedAndAddedStatements(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
                                                                     Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
-                                                                    Set<StatementNodeTree> addedStatements, List<Refactoring> refactorings) {
-        for (StatementNodeTree addedStatement : addedStatements) {
-            if (addedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
-                checkForExtractVariable(methodNodePairs, matchedStatements, addedStatement, refactorings);
-            }
+                                                                    Set<StatementNodeTree> addedStatements, ChunkGrouping grouping,
+                                                                    List<Refactoring> refactorings) {
+        if (grouping != null) {
+            DetectionTasks.forEach(addedStatements, addedStatement -> Collections.singletonList(grouping.getGroup(addedStatement)),
+                    (addedStatement, output) -> detectRefactoringsBetweenMatchedAndAddedStatement(methodNodePairs, matchedStatements,
+                            addedStatement, output), refactorings);
+        } else {
+            for (StatementNodeTree addedStatement : addedStatements)
+                detectRefactoringsBetweenMatchedAndAddedStatement(methodNodePairs, matchedStatements, addedStatement, refactorings);
         }
 
         checkForSplitConditional(methodNodePairs, matchedStatements, addedStatements, refactorings);
     }
 
+    private void detectRefactoringsBetweenMatchedAndAddedStatement(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
+                                                                   Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                                                   StatementNodeTree addedStatement, List<Refactoring> refactorings) {
+        checkInterrupted();
+        if (addedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
+            checkForExtractVariable(methodNodePairs, matchedStatements, addedStatement, refactorings);
+        }
+    }
+
     private void checkForExtractVariable(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
                                          Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
                                          StatementNodeTree addedStatement, List<Refactoring> refactorings) {
@@ -2972,22 +3459,35 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
 
     private void detectRefactoringsBetweenMatchedAndDeletedStatements(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
                                                                       Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
-                                                                      Set<StatementNodeTree> deletedStatements, List<Refactoring> refactorings) {
-        for (StatementNodeTree deletedStatement : deletedStatements) {
-            if (deletedStatement.getType() == StatementType.EXPRESSION_STATEMENT) {
-                checkForMergeDeclarationAndAssignment(methodNodePairs, deletedStatement, matchedStatements, refactorings);
-            }
-            if (deletedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
-                checkForInlineVariable(methodNodePairs, deletedStatement, matchedStatements, refactorings);
-            }
-            if (deletedStatement.getType() == StatementType.IF_STATEMENT) {
-                checkForReplaceIfWithTernary(methodNodePairs, deletedStatement, matchedStatements, refactorings);
-            }
+                                                                      Set<StatementNodeTree> deletedStatements, ChunkGrouping grouping,
+                                                                      List<Refactoring> refactorings) {
+        if (grouping != null) {
+            DetectionTasks.forEach(deletedStatements, deletedStatement -> Collections.singletonList(grouping.getGroup(deletedStatement)),
+                    (deletedStatement, output) -> detectRefactoringsBetweenMatchedAndDeletedStatement(methodNodePairs, matchedStatements,
+                            deletedStatement, output), refactorings);
+        } else {
+            for (StatementNodeTree deletedStatement : deletedStatements)
+                detectRefactoringsBetweenMatchedAndDeletedStatement(methodNodePairs, matchedStatements, deletedStatement, refactorings);
         }
 
         checkForMergeConditional(methodNodePairs, matchedStatements, deletedStatements, refactorings);
     }
 
+    private void detectRefactoringsBetweenMatchedAndDeletedStatement(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
+                                                                     Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
+                                                                     StatementNodeTree deletedStatement, List<Refactoring> refactorings) {
+        checkInterrupted();
+        if (deletedStatement.getType() == StatementType.EXPRESSION_STATEMENT) {
+            checkForMergeDeclarationAndAssignment(methodNodePairs, deletedStatement, matchedStatements, refactorings);
+        }
+        if (deletedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT) {
+            checkForInlineVariable(methodNodePairs, deletedStatement, matchedStatements, refactorings);
+        }
+        if (deletedStatement.getType() == StatementType.IF_STATEMENT) {
+            checkForReplaceIfWithTernary(methodNodePairs, deletedStatement, matchedStatements, refactorings);
+        }
+    }
+
     private void checkForMergeDeclarationAndAssignment(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
                                                        StatementNodeTree deletedStatement, Set<Pair<StatementNodeTree, StatementNodeTree>> matchedStatements,
                                                        List<Refactoring> refactorings) {
@@ -3148,10 +3648,19 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
     private void detectRefactoringsBetweenAddedAndDeletedStatements(Set<Pair<MethodNode, MethodNode>> methodNodePairs,
                                                                     Set<StatementNodeTree> addedStatements, Set<StatementNodeTree> deletedStatements,
                                                                     MatchPair matchPair, List<Refactoring> refactorings) {
+        UnmatchedStatementIndex statementIndex = new UnmatchedStatementIndex(methodNodePairs, addedStatements, deletedStatements);
         for (StatementNodeTree addedStatement : addedStatements) {
-            for (StatementNodeTree deletedStatement : deletedStatements) {
-                if (!methodNodePairs.contains(Pair.of(deletedStatement.getRoot(), addedStatement.getRoot())))
-                    continue;
+            checkInterrupted();
+            List<StatementNodeTree> candidates = Collections.emptyList();
+            if (addedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || addedStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
+                    addedStatement.getType() == StatementType.RETURN_STATEMENT)
+                candidates = statementIndex.getDeletedStatements(addedStatement.getRoot(), StatementType.FOR_STATEMENT,
+                        StatementType.ENHANCED_FOR_STATEMENT, StatementType.WHILE_STATEMENT, StatementType.DO_STATEMENT);
+            if (addedStatement.getType() == StatementType.FOR_STATEMENT || addedStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
+                    addedStatement.getType() == StatementType.WHILE_STATEMENT || addedStatement.getType() == StatementType.DO_STATEMENT)
+                candidates = statementIndex.getDeletedStatements(addedStatement.getRoot(), StatementType.VARIABLE_DECLARATION_STATEMENT,
+                        StatementType.EXPRESSION_STATEMENT, StatementType.RETURN_STATEMENT);
+            for (StatementNodeTree deletedStatement : candidates) {
                 if ((deletedStatement.getType() == StatementType.FOR_STATEMENT || deletedStatement.getType() == StatementType.ENHANCED_FOR_STATEMENT ||
                         deletedStatement.getType() == StatementType.WHILE_STATEMENT || deletedStatement.getType() == StatementType.DO_STATEMENT) &&
                         (addedStatement.getType() == StatementType.VARIABLE_DECLARATION_STATEMENT || addedStatement.getType() == StatementType.EXPRESSION_STATEMENT ||
@@ -3184,13 +3693,9 @@ public class RefactoringExtractorServiceImpl implements RefactoringExtractorServ
                 DeclarationNodeTree oldEntity = null;
                 for (VariableDeclarationFragment fragment : fragments) {
                     Map<StatementNodeTree, StatementNodeTree> references = new TreeMap<>(Comparator.comparingInt(StatementNodeTree::getPosition));
-                    for (StatementNodeTree anotherAddedStatement : addedStatements) {
-                        if (addedStatement.getRoot() != anotherAddedStatement.getRoot())
-                            continue;
+                    for (StatementNodeTree anotherAddedStatement : statementIndex.getAddedStatements(addedStatement.getRoot())) {
                         if (anotherAddedStatement == addedStatement) continue;
-                        for (StatementNodeTree deletedStatement : deletedStatements) {
-                            if (!methodNodePairs.contains(Pair.of(deletedStatement.getRoot(), anotherAddedStatement.getRoot())))
-                                continue;
+                        for (StatementNodeTree deletedStatement : statementIndex.getDeletedStatements(anotherAddedStatement.getRoot(), anotherAddedStatement.getType())) {
                             String expression1 = deletedStatement.getExpression();
                             String expression2 = anotherAddedStatement.getExpression();
                             if (!expression1.equals(expression2) && deletedStatement.getType() == anotherAddedStatement.getType() &&
@@ -0,0 +1,51 @@
+package org.reextractor.util;
+
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+
+import java.util.function.Function;
+
+/**
+ * Values computed from an AST node and stored as a property of the node. A value is computed at most once as long
+ * as the AST is not modified, so it lives exactly as long as the ASTs of the MatchPair the node belongs to.
+ */
+public class ASTCache {
+
+    private static final String TO_STRING = ASTCache.class.getName() + ".toString";
+
+    /**
+     * @return the value stored in the node under the given key, computed by the function if it is missing or if the
+     * AST has been modified since it was computed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(ASTNode node, String key, Function<ASTNode, T> function) {
+        AST ast = node.getAST();
+        synchronized (ast) {
+            long modificationCount = ast.modificationCount();
+            Entry entry = (Entry) node.getProperty(key);
+            if (entry == null || entry.modificationCount != modificationCount) {
+                entry = new Entry(modificationCount, function.apply(node));
+                node.setProperty(key, entry);
+            }
+            return (T) entry.value;
+        }
+    }
+
+    /**
+     * @return the result of {@link ASTNode#toString()}, which flattens the whole subtree of the node.
+     */
+    public static String toString(ASTNode node) {
+        return get(node, TO_STRING, ASTNode::toString);
+    }
+
+    private static class Entry {
+
+        private final long modificationCount;
+        private final Object value;
+
+        private Entry(long modificationCount, Object value) {
+            this.modificationCount = modificationCount;
+            this.value = value;
+        }
+    }
+}
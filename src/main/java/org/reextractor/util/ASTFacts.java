@@ -0,0 +1,163 @@
+package org.reextractor.util;
+
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * Facts about the subtree of an AST node that the detectors query over and over again (names, invocations,
+ * lambdas, ...). They are collected in a single traversal and cached in the node (see {@link ASTCache}). The lists
+ * are in visiting order and read-only, since they are shared by all the detectors that query the node.
+ */
+public class ASTFacts {
+
+    private static final String PROPERTY = ASTFacts.class.getName();
+
+    private final Set<String> simpleNames = new HashSet<>();
+    private final List<String> variableNames = new ArrayList<>();
+    private final List<String> invokedNames = new ArrayList<>();
+    private final List<MethodInvocation> methodInvocations = new ArrayList<>();
+    private final List<ConstructorInvocation> constructorInvocations = new ArrayList<>();
+    private final List<MethodDeclaration> methodDeclarations = new ArrayList<>();
+    private final List<AnonymousClassDeclaration> anonymousClassDeclarations = new ArrayList<>();
+    private final List<LambdaExpression> lambdaExpressions = new ArrayList<>();
+    private final List<MethodReference> methodReferences = new ArrayList<>();
+
+    private ASTFacts(ASTNode node) {
+        node.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(SimpleName node) {
+                simpleNames.add(node.getIdentifier());
+                return true;
+            }
+
+            @Override
+            public boolean visit(VariableDeclarationFragment node) {
+                variableNames.add(node.getName().getIdentifier());
+                return true;
+            }
+
+            @Override
+            public boolean visit(MethodInvocation node) {
+                methodInvocations.add(node);
+                invokedNames.add(node.getName().getFullyQualifiedName());
+                return true;
+            }
+
+            @Override
+            public boolean visit(SuperMethodInvocation node) {
+                invokedNames.add(node.getName().getFullyQualifiedName());
+                return true;
+            }
+
+            @Override
+            public boolean visit(ConstructorInvocation node) {
+                constructorInvocations.add(node);
+                return true;
+            }
+
+            @Override
+            public boolean visit(MethodDeclaration node) {
+                methodDeclarations.add(node);
+                return true;
+            }
+
+            @Override
+            public boolean visit(AnonymousClassDeclaration node) {
+                anonymousClassDeclarations.add(node);
+                return true;
+            }
+
+            @Override
+            public boolean visit(LambdaExpression node) {
+                lambdaExpressions.add(node);
+                return true;
+            }
+
+            @Override
+            public boolean visit(ExpressionMethodReference node) {
+                methodReferences.add(node);
+                invokedNames.add(node.getName().getFullyQualifiedName());
+                return true;
+            }
+
+            @Override
+            public boolean visit(SuperMethodReference node) {
+                methodReferences.add(node);
+                invokedNames.add(node.getName().getFullyQualifiedName());
+                return true;
+            }
+
+            @Override
+            public boolean visit(TypeMethodReference node) {
+                methodReferences.add(node);
+                invokedNames.add(node.getName().getFullyQualifiedName());
+                return true;
+            }
+        });
+    }
+
+    public static ASTFacts of(ASTNode node) {
+        return ASTCache.get(node, PROPERTY, ASTFacts::new);
+    }
+
+    /**
+     * @return whether a simple name with the given identifier occurs in the node.
+     */
+    public boolean containsName(String identifier) {
+        return simpleNames.contains(identifier);
+    }
+
+    /**
+     * @return the names of the declared variable fragments.
+     */
+    public List<String> getVariableNames() {
+        return Collections.unmodifiableList(variableNames);
+    }
+
+    /**
+     * @return the names of the invoked and referenced methods, including the invocations and references through super.
+     */
+    public List<String> getInvokedNames() {
+        return Collections.unmodifiableList(invokedNames);
+    }
+
+    public List<MethodInvocation> getMethodInvocations() {
+        return Collections.unmodifiableList(methodInvocations);
+    }
+
+    /**
+     * @return the invocations of methods with the given name and number of arguments.
+     */
+    public List<MethodInvocation> getMethodInvocations(String name, int arguments) {
+        List<MethodInvocation> invocations = new ArrayList<>();
+        for (MethodInvocation invocation : methodInvocations) {
+            if (invocation.getName().getIdentifier().equals(name) && invocation.arguments().size() == arguments)
+                invocations.add(invocation);
+        }
+        return invocations;
+    }
+
+    public List<ConstructorInvocation> getConstructorInvocations() {
+        return Collections.unmodifiableList(constructorInvocations);
+    }
+
+    public List<MethodDeclaration> getMethodDeclarations() {
+        return Collections.unmodifiableList(methodDeclarations);
+    }
+
+    public List<AnonymousClassDeclaration> getAnonymousClassDeclarations() {
+        return Collections.unmodifiableList(anonymousClassDeclarations);
+    }
+
+    public List<LambdaExpression> getLambdaExpressions() {
+        return Collections.unmodifiableList(lambdaExpressions);
+    }
+
+    /**
+     * @return the expression, super and type method references (creation references are not included).
+     */
+    public List<MethodReference> getMethodReferences() {
+        return Collections.unmodifiableList(methodReferences);
+    }
+}
@@ -8,7 +8,13 @@ import java.util.Map;
 
 public class AnnotationUtils {
 
+    private static final String ANNOTATION_TO_STRING = AnnotationUtils.class.getName() + ".annotation2String";
+
     public static String annotation2String(Annotation annotation) {
+        return ASTCache.get(annotation, ANNOTATION_TO_STRING, node -> toString((Annotation) node));
+    }
+
+    private static String toString(Annotation annotation) {
         String typeName = annotation.getTypeName().getFullyQualifiedName();
         StringBuilder sb = new StringBuilder();
         sb.append("@").append(typeName);
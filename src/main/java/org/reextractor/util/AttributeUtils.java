@@ -6,14 +6,21 @@ import org.remapper.dto.EntityType;
 
 public class AttributeUtils {
 
+    private static final String ATTRIBUTE_TO_STRING = AttributeUtils.class.getName() + ".attribute2String";
+    private static final String ATTRIBUTE_TO_QUALIFIED_STRING = AttributeUtils.class.getName() + ".attribute2QualifiedString";
+
     public static String attribute2QualifiedString(DeclarationNodeTree attribute) {
+        return ASTCache.get(attribute.getDeclaration(), ATTRIBUTE_TO_QUALIFIED_STRING, declaration -> toQualifiedString(attribute));
+    }
+
+    private static String toQualifiedString(DeclarationNodeTree attribute) {
         StringBuilder sb = new StringBuilder();
         if (attribute.getType() == EntityType.FIELD) {
             FieldDeclaration fieldDeclaration = (FieldDeclaration) attribute.getDeclaration();
             VariableDeclarationFragment fragment = (VariableDeclarationFragment) fieldDeclaration.fragments().get(0);
             sb.append(fragment.getName().getIdentifier());
             sb.append(" : ");
-            sb.append(fieldDeclaration.getType().toString());
+            sb.append(ASTCache.toString(fieldDeclaration.getType()));
         } else if (attribute.getType() == EntityType.ENUM_CONSTANT) {
             EnumConstantDeclaration enumConstantDeclaration = (EnumConstantDeclaration) attribute.getDeclaration();
             sb.append(enumConstantDeclaration.getName().getIdentifier());
@@ -24,6 +31,10 @@ public class AttributeUtils {
     }
 
     public static String attribute2String(DeclarationNodeTree attribute) {
+        return ASTCache.get(attribute.getDeclaration(), ATTRIBUTE_TO_STRING, declaration -> toString(attribute));
+    }
+
+    private static String toString(DeclarationNodeTree attribute) {
         StringBuilder sb = new StringBuilder();
         if (attribute.getType() == EntityType.FIELD) {
             FieldDeclaration fieldDeclaration = (FieldDeclaration) attribute.getDeclaration();
@@ -48,7 +59,7 @@ public class AttributeUtils {
                 sb.append("abstract").append(" ");
             sb.append(fragment.getName().getIdentifier());
             sb.append(" : ");
-            sb.append(fieldDeclaration.getType().toString());
+            sb.append(ASTCache.toString(fieldDeclaration.getType()));
         } else if (attribute.getType() == EntityType.ENUM_CONSTANT) {
             EnumConstantDeclaration enumConstantDeclaration = (EnumConstantDeclaration) attribute.getDeclaration();
             sb.append(enumConstantDeclaration.getName().getIdentifier());
@@ -12,6 +12,8 @@ import java.util.Objects;
 
 public class MethodUtils {
 
+    private static final String METHOD_TO_STRING = MethodUtils.class.getName() + ".method2String";
+
     public static boolean isGetter(MethodDeclaration methodDeclaration) {
         Block body = methodDeclaration.getBody();
         if (body != null) {
@@ -84,7 +86,10 @@ public class MethodUtils {
     public static String method2String(DeclarationNodeTree method) {
         if (method.getType() == EntityType.INITIALIZER)
             return "initializer";
-        MethodDeclaration methodDeclaration = (MethodDeclaration) method.getDeclaration();
+        return ASTCache.get(method.getDeclaration(), METHOD_TO_STRING, declaration -> method2String((MethodDeclaration) declaration));
+    }
+
+    private static String method2String(MethodDeclaration methodDeclaration) {
         StringBuilder sb = new StringBuilder();
         int methodModifiers = methodDeclaration.getModifiers();
         boolean isInterfaceMethod = false;
@@ -110,16 +115,16 @@ public class MethodUtils {
         List<String> list = new ArrayList<>();
         for (SingleVariableDeclaration parameter : parameters) {
             if (parameter.isVarargs()) {
-                list.add(parameter.getName().getFullyQualifiedName() + " " + parameter.getType().toString() + "...");
+                list.add(parameter.getName().getFullyQualifiedName() + " " + ASTCache.toString(parameter.getType()) + "...");
             } else {
-                list.add(parameter.getName().getFullyQualifiedName() + " " + parameter.getType().toString());
+                list.add(parameter.getName().getFullyQualifiedName() + " " + ASTCache.toString(parameter.getType()));
             }
         }
         sb.append(String.join(", ", list));
         sb.append(")");
         if (methodDeclaration.getReturnType2() != null) {
             sb.append(" : ");
-            sb.append(methodDeclaration.getReturnType2().toString());
+            sb.append(ASTCache.toString(methodDeclaration.getReturnType2()));
         }
         return sb.toString();
     }
@@ -223,46 +228,12 @@ public class MethodUtils {
     }
 
     public static boolean isStreamAPI(ASTNode statement) {
-        if (statement.toString().contains(" -> ") || statement.toString().contains("::")) {
-            List<Expression> list = new ArrayList<>();
-            statement.accept(new ASTVisitor() {
-                @Override
-                public boolean visit(MethodInvocation node) {
-                    if (streamAPIName(node.getName().getFullyQualifiedName()))
-                        list.add(node);
-                    return true;
-                }
-
-                @Override
-                public boolean visit(SuperMethodInvocation node) {
-                    if (streamAPIName(node.getName().getFullyQualifiedName()))
-                        list.add(node);
-                    return true;
-                }
-
-                @Override
-                public boolean visit(ExpressionMethodReference node) {
-                    if (streamAPIName(node.getName().getFullyQualifiedName()))
-                        list.add(node);
+        String string = ASTCache.toString(statement);
+        if (string.contains(" -> ") || string.contains("::")) {
+            for (String name : ASTFacts.of(statement).getInvokedNames()) {
+                if (streamAPIName(name))
                     return true;
-                }
-
-                @Override
-                public boolean visit(SuperMethodReference node) {
-                    if (streamAPIName(node.getName().getFullyQualifiedName()))
-                        list.add(node);
-                    return true;
-                }
-
-                @Override
-                public boolean visit(TypeMethodReference node) {
-                    if (streamAPIName(node.getName().getFullyQualifiedName()))
-                        list.add(node);
-                    return true;
-                }
-            });
-            if (list.size() > 0)
-                return true;
+            }
         }
         return false;
     }
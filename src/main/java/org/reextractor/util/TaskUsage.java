@@ -0,0 +1,107 @@
+package org.reextractor.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The CPU time and the memory used by the tasks that a measured thread hands to other threads, e.g. the parts of a
+ * parallel detection. A thread measures itself, and a measurement started with {@link #start()} adds what the tasks
+ * {@link #wrap(Callable) wrapped} while it was open used on the other threads, including the tasks of those tasks.
+ * A task that runs on a thread that is already measured, e.g. while it waits for the task, is not counted again.
+ * Times are in nanoseconds; a value is -1 if the JVM does not measure it.
+ */
+public class TaskUsage {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationThreads();
+    private static final ThreadLocal<TaskUsage> CURRENT = new ThreadLocal<>();
+
+    private final TaskUsage parent;
+    private final LongAdder cpuTime = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private TaskUsage(TaskUsage parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Start measuring the tasks that the current thread hands to other threads, until {@link #stop()}.
+     */
+    public static TaskUsage start() {
+        TaskUsage usage = new TaskUsage(CURRENT.get());
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    public void stop() {
+        CURRENT.set(parent);
+    }
+
+    /**
+     * @return the task, which adds what it uses to the measurements open on the current thread when it runs on
+     * another thread.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        TaskUsage owner = CURRENT.get();
+        if (owner == null)
+            return task;
+        return () -> {
+            TaskUsage previous = CURRENT.get();
+            CURRENT.set(owner);
+            // a thread that is measured already counts the task
+            boolean measured = previous == null;
+            long cpuTime = measured ? cpuTime() : -1;
+            long allocatedBytes = measured ? allocatedBytes() : -1;
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+                if (measured)
+                    owner.add(cpuTime < 0 ? -1 : cpuTime() - cpuTime, allocatedBytes < 0 ? -1 : allocatedBytes() - allocatedBytes);
+            }
+        };
+    }
+
+    /**
+     * @return the CPU time of the tasks on other threads, or -1 if it is not measured.
+     */
+    public long getCpuTime() {
+        return CPU_TIME ? cpuTime.sum() : -1;
+    }
+
+    /**
+     * @return the memory allocated by the tasks on other threads, in bytes, or -1 if it is not measured.
+     */
+    public long getAllocatedBytes() {
+        return ALLOCATION == null ? -1 : allocatedBytes.sum();
+    }
+
+    private void add(long cpuTime, long allocatedBytes) {
+        for (TaskUsage usage = this; usage != null; usage = usage.parent) {
+            if (cpuTime > 0)
+                usage.cpuTime.add(cpuTime);
+            if (allocatedBytes > 0)
+                usage.allocatedBytes.add(allocatedBytes);
+        }
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationThreads() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationThreads = (com.sun.management.ThreadMXBean) THREADS;
+            if (allocationThreads.isThreadAllocatedMemorySupported() && allocationThreads.isThreadAllocatedMemoryEnabled())
+                return allocationThreads;
+        }
+        return null;
+    }
+}
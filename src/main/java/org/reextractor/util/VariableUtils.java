@@ -4,20 +4,26 @@ import org.eclipse.jdt.core.dom.*;
 
 public class VariableUtils {
 
+    private static final String VARIABLE_TO_STRING = VariableUtils.class.getName() + ".variable2String";
+
     public static String variable2String(VariableDeclaration variableDeclaration) {
+        return ASTCache.get(variableDeclaration, VARIABLE_TO_STRING, declaration -> toString((VariableDeclaration) declaration));
+    }
+
+    private static String toString(VariableDeclaration variableDeclaration) {
         StringBuilder sb = new StringBuilder();
         sb.append(variableDeclaration.getName().getIdentifier());
         sb.append(" : ");
         if (variableDeclaration instanceof SingleVariableDeclaration) {
-            sb.append(((SingleVariableDeclaration) variableDeclaration).getType().toString());
+            sb.append(ASTCache.toString(((SingleVariableDeclaration) variableDeclaration).getType()));
             if (((SingleVariableDeclaration) variableDeclaration).isVarargs())
                 sb.append("...");
         } else {
             ASTNode parent = variableDeclaration.getParent();
             if (parent instanceof VariableDeclarationStatement) {
-                sb.append(((VariableDeclarationStatement) parent).getType().toString());
+                sb.append(ASTCache.toString(((VariableDeclarationStatement) parent).getType()));
             } else if (parent instanceof VariableDeclarationExpression) {
-                sb.append(((VariableDeclarationExpression) parent).getType().toString());
+                sb.append(ASTCache.toString(((VariableDeclarationExpression) parent).getType()));
             } else if (parent instanceof LambdaExpression) {
                 sb.append("null");
             } else {
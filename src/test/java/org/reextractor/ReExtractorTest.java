@@ -2,27 +2,44 @@ package org.reextractor;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.reextractor.dto.RefactoringDiscoveryJSON;
 import org.reextractor.handler.RefactoringHandler;
 import org.reextractor.refactoring.Refactoring;
 import org.reextractor.service.RefactoringExtractorService;
 import org.reextractor.service.RefactoringExtractorServiceImpl;
+import org.remapper.dto.MatchPair;
 import org.remapper.service.GitService;
 import org.remapper.util.GitServiceImpl;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
+import static org.junit.Assert.assertTrue;
+
 public class ReExtractorTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void detectAtCommit() throws Exception {
         String folder = "E:\\commons-math";
@@ -33,8 +50,8 @@ public class ReExtractorTest {
             RefactoringExtractorService service = new RefactoringExtractorServiceImpl();
             service.detectAtCommit(repo, commitId, new RefactoringHandler() {
                 @Override
-                public void handle(String commitId, List<Refactoring> refactorings) {
-                    commitJSON(gitURL, commitId, refactorings);
+                public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactorings) {
+                    commitJSON(gitURL, commitId, matchPair, refactorings);
                 }
 
                 @Override
@@ -46,7 +63,43 @@ public class ReExtractorTest {
         }
     }
 
-    private static void commitJSON(String cloneURL, String currentCommitId, List<Refactoring> refactorings) {
+    @Test
+    public void theStandardOutputStaysAJSONDocumentWithProfile() throws Exception {
+        File directory = folder.newFolder();
+        PersonIdent author = new PersonIdent("ReExtractor", "reextractor@example.com");
+        try (Git git = Git.init().setDirectory(directory).call()) {
+            StoredConfig config = git.getRepository().getConfig();
+            config.setString("remote", "origin", "url", "https://github.com/example/shapes.git");
+            config.save();
+            Path file = directory.toPath().resolve("src/p/Shape.java");
+            Files.createDirectories(file.getParent());
+            for (String method : new String[]{"area", "surface"}) {
+                Files.write(file, ("package p;\n\nclass Shape {\n\n    int " + method + "(int width) {\n" +
+                        "        return width * width;\n    }\n}\n").getBytes(StandardCharsets.UTF_8));
+                git.add().addFilepattern("src/p/Shape.java").call();
+                git.commit().setMessage("Add " + method).setAuthor(author).setCommitter(author).call();
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            ReExtractor.main(new String[]{"-profile", "-treeless", "-a", directory.getAbsolutePath()});
+        } finally {
+            System.setOut(systemOut);
+            System.setErr(systemErr);
+        }
+        // the totals and the profile go to the standard error, after the end of the document
+        JsonArray results = JsonParser.parseString(out.toString(StandardCharsets.UTF_8)).getAsJsonObject().getAsJsonArray("results");
+        assertTrue(results.size() > 0);
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Total count: [Commits: "));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("Errors: 0"));
+    }
+
+    private static void commitJSON(String cloneURL, String currentCommitId, MatchPair matchPair, List<Refactoring> refactorings) {
         Path path = Paths.get("E:/results.json");
         Gson gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
         String url = cloneURL.replace(".git", "/commit/") + currentCommitId;
@@ -62,7 +115,7 @@ public class ReExtractorTest {
             }
             try (BufferedWriter out = new BufferedWriter(new FileWriter(path.toFile()))) {
                 RefactoringDiscoveryJSON results = new RefactoringDiscoveryJSON();
-                results.populateJSON(cloneURL, currentCommitId, url, refactorings);
+                results.populateJSON(cloneURL, currentCommitId, url, matchPair, refactorings);
                 String jsonString = gson.toJson(results, RefactoringDiscoveryJSON.class).replace("\\t", "\t");
                 out.write(jsonString);
             } catch (IOException e) {
@@ -71,7 +124,7 @@ public class ReExtractorTest {
         } else {
             try (FileReader reader = new FileReader(path.toFile())) {
                 RefactoringDiscoveryJSON results = gson.fromJson(reader, RefactoringDiscoveryJSON.class);
-                results.populateJSON(cloneURL, currentCommitId, url, refactorings);
+                results.populateJSON(cloneURL, currentCommitId, url, matchPair, refactorings);
                 String jsonString = gson.toJson(results, RefactoringDiscoveryJSON.class).replace("\\t", "\t");
                 BufferedWriter out = new BufferedWriter(new FileWriter(path.toFile()));
                 out.write(jsonString);
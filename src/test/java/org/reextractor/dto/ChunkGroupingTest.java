@@ -0,0 +1,113 @@
+package org.reextractor.dto;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.jdt.core.dom.*;
+import org.junit.Test;
+import org.remapper.dto.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkGroupingTest {
+
+    private final CompilationUnit oldUnit = parse("package p;\nclass A {\n void m() {}\n}\nclass B {\n void o() {}\n}\n");
+    private final CompilationUnit newUnit = parse("package p;\nclass A {\n void m() {}\n void k() {}\n}\nclass B {\n void o() {}\n}\n");
+    private final DeclarationNodeTree oldA = type(oldUnit, 0);
+    private final DeclarationNodeTree oldB = type(oldUnit, 1);
+    private final DeclarationNodeTree newA = type(newUnit, 0);
+    private final DeclarationNodeTree newB = type(newUnit, 1);
+    private final DeclarationNodeTree oldM = method(oldA, 0);
+    private final DeclarationNodeTree oldO = method(oldB, 0);
+    private final DeclarationNodeTree newM = method(newA, 0);
+    private final DeclarationNodeTree newK = method(newA, 1);
+    private final DeclarationNodeTree newO = method(newB, 0);
+    private final Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> matchedEntities = new LinkedHashSet<>();
+    private final Set<DeclarationNodeTree> addedEntities = new LinkedHashSet<>();
+    private final Map<DeclarationNodeTree, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>>> introducedObjects = new LinkedHashMap<>();
+
+    @Test
+    public void theEntitiesOfATypeAreGroupedWithIt() {
+        matchedEntities.add(Pair.of(oldM, newM));
+        matchedEntities.add(Pair.of(oldO, newO));
+        addedEntities.add(newK);
+        ChunkGrouping grouping = new ChunkGrouping(newMatchPair(), null);
+        assertSame(grouping.getGroup(oldM), grouping.getGroup(newM));
+        assertSame(grouping.getGroup(newM), grouping.getGroup(newK));
+        assertSame(grouping.getGroup(newM), grouping.getGroup(oldA));
+        assertSame(grouping.getGroup(oldO), grouping.getGroup(newO));
+        assertNotSame(grouping.getGroup(newM), grouping.getGroup(newO));
+        assertEquals(2, grouping.getGroupsCount());
+    }
+
+    @Test
+    public void introducedObjectsJoinTheGroupsOfTheirEntities() {
+        matchedEntities.add(Pair.of(oldM, newM));
+        matchedEntities.add(Pair.of(oldO, newO));
+        introducedObjects.put(newK, Collections.singleton(Pair.of(oldO, newO)));
+        ChunkGrouping grouping = new ChunkGrouping(newMatchPair(), null);
+        assertSame(grouping.getGroup(newM), grouping.getGroup(newO));
+        assertEquals(1, grouping.getGroupsCount());
+    }
+
+    @Test
+    public void anEntityOutsideTheCommitIsAGroupOfItsOwn() {
+        matchedEntities.add(Pair.of(oldM, newM));
+        ChunkGrouping grouping = new ChunkGrouping(newMatchPair(), null);
+        assertSame(newO, grouping.getGroup(newO));
+        assertEquals(1, grouping.getGroupsCount());
+    }
+
+    private MatchPair newMatchPair() {
+        return new MatchPair() {
+            @Override
+            public Set<Pair<DeclarationNodeTree, DeclarationNodeTree>> getMatchedEntities() {
+                return matchedEntities;
+            }
+
+            @Override
+            public Set<DeclarationNodeTree> getAddedEntities() {
+                return addedEntities;
+            }
+
+            @Override
+            public Set<DeclarationNodeTree> getDeletedEntities() {
+                return Collections.emptySet();
+            }
+
+            @Override
+            public Map<DeclarationNodeTree, Set<Pair<DeclarationNodeTree, DeclarationNodeTree>>> getIntroducedObjects() {
+                return introducedObjects;
+            }
+        };
+    }
+
+    private static CompilationUnit parse(String source) {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setSource(source.toCharArray());
+        return (CompilationUnit) parser.createAST(null);
+    }
+
+    private static DeclarationNodeTree type(CompilationUnit unit, int index) {
+        TypeDeclaration declaration = (TypeDeclaration) unit.types().get(index);
+        DeclarationNodeTree type = new InternalNode(unit, "src/p/A.java", declaration);
+        type.setDeclaration(declaration);
+        type.setType(EntityType.CLASS);
+        type.setNamespace("p");
+        type.setName(declaration.getName().getIdentifier());
+        return type;
+    }
+
+    private static DeclarationNodeTree method(DeclarationNodeTree type, int index) {
+        CompilationUnit unit = (CompilationUnit) type.getDeclaration().getRoot();
+        MethodDeclaration declaration = ((TypeDeclaration) type.getDeclaration()).getMethods()[index];
+        DeclarationNodeTree method = new LeafNode(unit, "src/p/A.java", declaration);
+        method.setDeclaration(declaration);
+        method.setType(EntityType.METHOD);
+        method.setNamespace("p." + type.getName());
+        method.setName(declaration.getName().getIdentifier());
+        method.setParent(type);
+        return method;
+    }
+}
@@ -0,0 +1,113 @@
+package org.reextractor.dto;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class MiningJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    @Before
+    public void setUp() {
+        path = folder.getRoot().toPath().resolve("results.json.checkpoint");
+    }
+
+    @Test
+    public void resumeReadsTheCheckpoints() throws IOException {
+        try (MiningJournal journal = MiningJournal.open(path, false)) {
+            journal.start(0);
+            journal.commit("a", 10, 2);
+            journal.error("b", 20);
+            journal.skip("c", 30);
+            journal.commit("d", 40, 3);
+        }
+        try (MiningJournal journal = MiningJournal.open(path, true)) {
+            assertTrue(journal.isCompleted("a"));
+            assertTrue(journal.isCompleted("b"));
+            assertTrue(journal.isCompleted("c"));
+            assertTrue(journal.isCompleted("d"));
+            assertFalse(journal.isCompleted("e"));
+            assertEquals(40, journal.getOffset());
+            assertEquals(3, journal.getCommitsCount());
+            assertEquals(1, journal.getErrorCommitsCount());
+            assertEquals(5, journal.getRefactoringsCount());
+        }
+    }
+
+    @Test
+    public void resumeDropsAPartialLine() throws IOException {
+        try (MiningJournal journal = MiningJournal.open(path, false)) {
+            journal.start(0);
+            journal.commit("a", 10, 1);
+        }
+        long length = Files.size(path);
+        Files.write(path, "commit b 2".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (MiningJournal journal = MiningJournal.open(path, true)) {
+            assertEquals(length, Files.size(path));
+            assertTrue(journal.isCompleted("a"));
+            assertFalse(journal.isCompleted("b"));
+            assertEquals(10, journal.getOffset());
+            journal.commit("b", 20, 1);
+        }
+        try (MiningJournal journal = MiningJournal.open(path, true)) {
+            assertTrue(journal.isCompleted("b"));
+            assertEquals(20, journal.getOffset());
+            assertEquals(2, journal.getCommitsCount());
+        }
+    }
+
+    @Test
+    public void openWithoutResumeDiscardsTheJournal() throws IOException {
+        try (MiningJournal journal = MiningJournal.open(path, false)) {
+            journal.start(0);
+            journal.commit("a", 10, 1);
+        }
+        try (MiningJournal journal = MiningJournal.open(path, false)) {
+            assertFalse(journal.isCompleted("a"));
+            assertEquals(-1, journal.getOffset());
+        }
+        try (MiningJournal journal = MiningJournal.open(path, true)) {
+            assertFalse(journal.isCompleted("a"));
+            assertEquals(-1, journal.getOffset());
+        }
+    }
+
+    @Test
+    public void resumeWithoutJournalStartsOver() throws IOException {
+        try (MiningJournal journal = MiningJournal.open(path, true)) {
+            assertEquals(-1, journal.getOffset());
+            assertEquals(0, journal.getCommitsCount());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void resumeRejectsALineWithMissingFields() throws IOException {
+        Files.write(path, "start 0\ncommit a 10\n".getBytes(StandardCharsets.UTF_8));
+        MiningJournal.open(path, true).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void resumeRejectsAnotherFile() throws IOException {
+        Files.write(path, "{\"commits\": []}\n".getBytes(StandardCharsets.UTF_8));
+        MiningJournal.open(path, true).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void resumeRejectsAnOffsetThatIsNotANumber() throws IOException {
+        Files.write(path, "start 0\nerror a ten\n".getBytes(StandardCharsets.UTF_8));
+        MiningJournal.open(path, true).close();
+    }
+}
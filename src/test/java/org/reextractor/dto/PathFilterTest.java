@@ -0,0 +1,87 @@
+package org.reextractor.dto;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathFilterTest {
+
+    @Test
+    public void everyPathIsAcceptedByDefault() {
+        PathFilter filter = new PathFilter();
+        assertTrue(filter.acceptsPath("src/main/java/a/A.java"));
+        assertFalse(filter.checksContent());
+        assertTrue(filter.acceptsContent(bytes("@Generated class A {}")));
+    }
+
+    @Test
+    public void includesAndExcludes() {
+        PathFilter filter = new PathFilter();
+        filter.addInclude("src/main/**");
+        filter.addExclude("src/main/java/gen/**");
+        filter.addExclude("**.pb.java");
+        assertTrue(filter.acceptsPath("src/main/java/a/A.java"));
+        assertFalse(filter.acceptsPath("src/test/java/a/ATest.java"));
+        assertFalse(filter.acceptsPath("src/main/java/gen/Parser.java"));
+        assertFalse(filter.acceptsPath("src/main/java/a/Message.pb.java"));
+    }
+
+    @Test
+    public void largeFilesAreLeftOut() {
+        PathFilter filter = new PathFilter();
+        filter.setMaxFileSize(10);
+        assertTrue(filter.acceptsSize(10));
+        assertFalse(filter.acceptsSize(11));
+        assertFalse(filter.acceptsContent(bytes("class A {}\n")));
+    }
+
+    @Test
+    public void generatedAnnotationOnTheFirstType() {
+        assertGenerated("package a;\nimport javax.annotation.Generated;\n@Generated(\"protoc\")\npublic class A {}");
+        assertGenerated("package a;\n@javax.annotation.processing.Generated(value = \"x\", date = \"2020\")\nclass A {}");
+        assertGenerated("@Deprecated @ Generated interface A {}");
+        assertGenerated("package a;\n@X('\\'') @Generated class A {}");
+    }
+
+    @Test
+    public void doNotEditCommentBeforeTheFirstType() {
+        assertGenerated("// Code generated by protoc. DO NOT EDIT.\npackage a;\nclass A {}");
+        assertGenerated("/* DO NOT EDIT */ package a; class A {}");
+    }
+
+    @Test
+    public void otherAnnotationsAndMentionsAreNotGenerated() {
+        assertNotGenerated("package a;\nimport javax.persistence.*;\n@Entity\npublic class A {\n @Id @GeneratedValue\n Long id;\n}");
+        assertNotGenerated("package a;\n@SuppressWarnings(\"@Generated\")\nclass A { String s = \"@Generated\"; }");
+        assertNotGenerated("package a;\n@X(\"\"\"\n@Generated\n\"\"\") class A {}");
+        assertNotGenerated("package a;\n@Retention(RUNTIME) public @interface Generated {}");
+        assertNotGenerated("package a.record.b;\nimport x.class1;\n/** see */ public record R(int a) {}");
+    }
+
+    @Test
+    public void onlyTheFirstTypeCounts() {
+        assertNotGenerated("package a;\nclass A {\n  @Generated void m() {}\n  // DO NOT EDIT\n}");
+        assertNotGenerated("class A {} @Generated class B {}");
+    }
+
+    private static void assertGenerated(String source) {
+        assertFalse(source, newSkipGeneratedFilter().acceptsContent(bytes(source)));
+    }
+
+    private static void assertNotGenerated(String source) {
+        assertTrue(source, newSkipGeneratedFilter().acceptsContent(bytes(source)));
+    }
+
+    private static PathFilter newSkipGeneratedFilter() {
+        PathFilter filter = new PathFilter();
+        filter.setSkipGenerated(true);
+        return filter;
+    }
+
+    private static byte[] bytes(String source) {
+        return source.getBytes(StandardCharsets.UTF_8);
+    }
+}
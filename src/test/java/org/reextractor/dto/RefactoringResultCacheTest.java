@@ -0,0 +1,107 @@
+package org.reextractor.dto;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+public class RefactoringResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() {
+        // the version comes from the resources filtered by the Maven build
+        assumeNotNull(RefactoringResultCache.getVersion());
+        directory = folder.getRoot().toPath().resolve("cache");
+    }
+
+    @Test
+    public void getReturnsWhatWasPut() throws IOException {
+        RefactoringResultCache cache = new RefactoringResultCache(directory, 1024, "repository");
+        cache.put("a", "{\"a\":1}");
+        assertEquals("{\"a\":1}", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void entriesAreKeyedOnTheConfiguration() throws IOException {
+        new RefactoringResultCache(directory, 1024, "repository -blobids").put("a", "{}");
+        assertNull(new RefactoringResultCache(directory, 1024, "repository").get("a"));
+        assertEquals("{}", new RefactoringResultCache(directory, 1024, "repository -blobids").get("a"));
+    }
+
+    @Test
+    public void entriesOutliveTheCache() throws IOException {
+        new RefactoringResultCache(directory, 1024, "repository").put("a", "{}");
+        assertEquals("{}", new RefactoringResultCache(directory, 1024, "repository").get("a"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        RefactoringResultCache cache = new RefactoringResultCache(directory, 1000, "repository");
+        cache.put("a", json(300));
+        cache.put("b", json(300));
+        cache.put("c", json(300));
+        for (Path entry : listEntries())
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(0));
+        cache.get("b");
+        cache.get("c");
+        cache.put("d", json(300));
+        assertNull(cache.get("a"));
+        assertEquals(json(300), cache.get("b"));
+        assertEquals(json(300), cache.get("c"));
+        assertEquals(json(300), cache.get("d"));
+    }
+
+    @Test
+    public void replacedEntriesAreCountedOnce() throws IOException {
+        RefactoringResultCache cache = new RefactoringResultCache(directory, 1000, "repository");
+        cache.put("a", json(400));
+        cache.put("a", json(400));
+        cache.put("b", json(400));
+        assertEquals(2, listEntries().size());
+    }
+
+    @Test
+    public void cachesSharingADirectoryEvictWhatTheyWroteTogether() throws IOException {
+        RefactoringResultCache cache = new RefactoringResultCache(directory, 1000, "repository");
+        RefactoringResultCache otherCache = new RefactoringResultCache(directory, 1000, "repository");
+        cache.put("a", json(300));
+        otherCache.put("b", json(300));
+        cache.put("c", json(300));
+        otherCache.put("d", json(300));
+        List<Path> entries = listEntries();
+        assertEquals(3, entries.size());
+        long size = 0;
+        for (Path entry : entries)
+            size += Files.size(entry);
+        assertTrue(size <= 1000);
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> file.toString().endsWith(".json")).collect(Collectors.toList());
+        }
+    }
+
+    private static String json(int length) {
+        return "\"" + "x".repeat(length - 2) + "\"";
+    }
+}
@@ -0,0 +1,67 @@
+package org.reextractor.service;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommitFilterTest {
+
+    @Test
+    public void whitespaceBetweenTokensIsCosmetic() {
+        assertSameTokens("class A { int a = b + c; }", "class A {\n\tint a=b+c;\n}\n");
+        assertSameTokens("class A {}", "class A {}\r\n");
+    }
+
+    @Test
+    public void commentsAreCosmetic() {
+        assertSameTokens("class A { int a; }", "/** A. */\nclass A { // the a\n int a; /* set later */ }");
+        assertSameTokens("int a;", "int a; // unterminated at the end");
+        assertSameTokens("int a;", "int a; /* unterminated at the end");
+        assertSameTokens("int a;", "int/* a comment separates */a;");
+    }
+
+    @Test
+    public void whitespaceThatSeparatesTokensIsNot() {
+        assertDifferentTokens("int a;", "inta;");
+        assertDifferentTokens("return a - -b;", "return a--b;");
+        assertDifferentTokens("return a + +b;", "return a++b;");
+    }
+
+    @Test
+    public void literalsAreHashedAsTheyAre() {
+        assertDifferentTokens("s = \"a b\";", "s = \"a  b\";");
+        assertDifferentTokens("s = \"// a\";", "s = \"\";");
+        assertDifferentTokens("c = ' ';", "c = '\t';");
+        assertDifferentTokens("s = \"\\\" /* a */\";", "s = \"\\\"\";");
+        assertDifferentTokens("s = \"\"\"\n  a\n  \"\"\";", "s = \"\"\"\n  a\n\"\"\";");
+        assertSameTokens("s = \"a\" ;", "s=\"a\";");
+    }
+
+    @Test
+    public void nonAsciiCharactersArePartsOfWords() {
+        assertDifferentTokens("int é;", "inté;");
+        assertSameTokens("int é = 1;", "int é=1;");
+    }
+
+    @Test
+    public void codeChangesAreNotCosmetic() {
+        assertDifferentTokens("int a = 1;", "int a = 2;");
+        assertDifferentTokens("a(b, c);", "a(c, b);");
+    }
+
+    private static void assertSameTokens(String source, String anotherSource) {
+        assertTrue(source + " / " + anotherSource, Arrays.equals(hash(source), hash(anotherSource)));
+    }
+
+    private static void assertDifferentTokens(String source, String anotherSource) {
+        assertFalse(source + " / " + anotherSource, Arrays.equals(hash(source), hash(anotherSource)));
+    }
+
+    private static byte[] hash(String source) {
+        return CommitFilter.hashTokens(source.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package org.reextractor.service;
+
+import org.junit.Test;
+import org.reextractor.detector.DetectionContext;
+import org.reextractor.detector.RefactoringDetector;
+import org.reextractor.refactoring.Refactoring;
+import org.reextractor.refactoring.RefactoringType;
+import org.remapper.dto.CodeRange;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionPlanTest {
+
+    private final RefactoringDetector classes = new TestDetector("classes",
+            EnumSet.of(RefactoringType.RENAME_CLASS, RefactoringType.MOVE_ATTRIBUTE), EnumSet.of(RefactoringDetector.Input.ENTITIES));
+    private final RefactoringDetector methods = new TestDetector("methods",
+            EnumSet.of(RefactoringType.RENAME_METHOD, RefactoringType.EXTRACT_OPERATION), EnumSet.of(RefactoringDetector.Input.ENTITIES,
+            RefactoringDetector.Input.METHOD_PAIRS));
+    private final RefactoringDetector variables = new TestDetector("variables",
+            EnumSet.of(RefactoringType.RENAME_VARIABLE), EnumSet.of(RefactoringDetector.Input.STATEMENTS));
+
+    @Test
+    public void allTypesRunEveryDetector() {
+        DetectionPlan plan = new DetectionPlan(Arrays.asList(classes, methods, variables), null);
+        assertEquals(Arrays.asList(classes, methods, variables), plan.getDetectors());
+        assertTrue(plan.needs(RefactoringDetector.Input.ENTITIES));
+        assertTrue(plan.needs(RefactoringDetector.Input.STATEMENTS));
+        assertTrue(plan.needs(RefactoringDetector.Input.METHOD_PAIRS));
+        assertFalse(plan.needs(RefactoringDetector.Input.REFACTORINGS));
+        List<Refactoring> refactorings = Arrays.asList(refactoring(RefactoringType.RENAME_CLASS), refactoring(RefactoringType.RENAME_VARIABLE));
+        assertSame(refactorings, plan.select(refactorings));
+    }
+
+    @Test
+    public void onlyTheDetectorsOfTheSelectedTypesRun() {
+        DetectionPlan plan = new DetectionPlan(Arrays.asList(classes, methods, variables), EnumSet.of(RefactoringType.RENAME_VARIABLE));
+        assertEquals(Collections.singletonList(variables), plan.getDetectors());
+        assertTrue(plan.needs(RefactoringDetector.Input.STATEMENTS));
+        assertFalse(plan.needs(RefactoringDetector.Input.METHOD_PAIRS));
+    }
+
+    @Test
+    public void theDetectorsKeepTheirOrder() {
+        DetectionPlan plan = new DetectionPlan(Arrays.asList(variables, methods, classes),
+                EnumSet.of(RefactoringType.RENAME_CLASS, RefactoringType.RENAME_VARIABLE));
+        assertEquals(Arrays.asList(variables, classes), plan.getDetectors());
+    }
+
+    @Test
+    public void theOtherTypesOfTheSelectedDetectorsAreDropped() {
+        DetectionPlan plan = new DetectionPlan(Arrays.asList(classes, methods, variables), EnumSet.of(RefactoringType.RENAME_CLASS));
+        Refactoring renameClass = refactoring(RefactoringType.RENAME_CLASS);
+        List<Refactoring> selected = plan.select(Arrays.asList(refactoring(RefactoringType.MOVE_ATTRIBUTE), renameClass,
+                refactoring(RefactoringType.MOVE_ATTRIBUTE)));
+        assertEquals(Collections.singletonList(renameClass), selected);
+    }
+
+    @Test
+    public void theTypesOfNoDetectorRunNothing() {
+        DetectionPlan plan = new DetectionPlan(Arrays.asList(classes, methods), EnumSet.of(RefactoringType.RENAME_VARIABLE));
+        assertTrue(plan.getDetectors().isEmpty());
+        assertFalse(plan.needs(RefactoringDetector.Input.ENTITIES));
+    }
+
+    private static Refactoring refactoring(RefactoringType type) {
+        return new Refactoring() {
+            @Override
+            public RefactoringType getRefactoringType() {
+                return type;
+            }
+
+            @Override
+            public List<CodeRange> leftSide() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<CodeRange> rightSide() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getName() {
+                return type.getDisplayName();
+            }
+        };
+    }
+
+    private static class TestDetector implements RefactoringDetector {
+
+        private final String name;
+        private final EnumSet<RefactoringType> refactoringTypes;
+        private final EnumSet<Input> inputs;
+
+        private TestDetector(String name, EnumSet<RefactoringType> refactoringTypes, EnumSet<Input> inputs) {
+            this.name = name;
+            this.refactoringTypes = refactoringTypes;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public EnumSet<RefactoringType> getRefactoringTypes() {
+            return refactoringTypes;
+        }
+
+        @Override
+        public EnumSet<Input> getInputs() {
+            return inputs;
+        }
+
+        @Override
+        public void detect(DetectionContext context, List<Refactoring> refactorings) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.reextractor.service;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class DetectionTasksTest {
+
+    @Test
+    public void invokeAllReturnsTheResultsInTheOrderOfTheTasks() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int result = i;
+            // the first tasks finish last
+            tasks.add(() -> {
+                Thread.sleep(5L * (8 - result));
+                return result;
+            });
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), DetectionTasks.invokeAll(tasks));
+    }
+
+    @Test
+    public void invokeAllRethrowsTheFailureOfATask() {
+        List<Callable<Integer>> tasks = Arrays.asList(() -> 0, () -> {
+            throw new IllegalStateException("failed");
+        }, () -> 2);
+        // the pool may rethrow a copy of the exception of a task that ran on another thread, caused by the original
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> DetectionTasks.invokeAll(tasks));
+        assertTrue(e.getMessage().endsWith("failed"));
+    }
+
+    @Test
+    public void invokeAllWrapsACheckedException() {
+        List<Callable<Integer>> tasks = Arrays.asList(() -> 0, () -> {
+            throw new Exception("failed");
+        });
+        RuntimeException e = assertThrows(RuntimeException.class, () -> DetectionTasks.invokeAll(tasks));
+        Throwable cause = e.getCause();
+        while (cause != null && cause.getClass() != Exception.class)
+            cause = cause.getCause();
+        assertNotNull(cause);
+        assertTrue(cause.getMessage().endsWith("failed"));
+    }
+
+    @Test(timeout = 30000)
+    public void interruptingTheCallerStopsTheTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(() -> {
+                running.incrementAndGet();
+                try {
+                    started.countDown();
+                    // like the detection, the task sees the cancellation only at its checkpoints
+                    while (true) {
+                        DetectionTasks.checkInterrupted();
+                        Thread.onSpinWait();
+                    }
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger runningAfterwards = new AtomicInteger(-1);
+        Thread caller = new Thread(() -> {
+            try {
+                DetectionTasks.invokeAll(tasks);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+            runningAfterwards.set(running.get());
+        });
+        caller.start();
+        started.await();
+        caller.interrupt();
+        caller.join();
+        assertTrue(String.valueOf(failure.get()), failure.get() instanceof CancellationException);
+        // the tasks must not outlive the detection that waits for them
+        assertEquals(0, runningAfterwards.get());
+    }
+
+    @Test
+    public void forEachAddsTheResultsInTheOrderOfTheItems() {
+        List<Integer> items = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(i);
+            // some items have no result, some several
+            for (int j = 0; j < i % 3; j++)
+                expected.add(i);
+        }
+        List<Integer> results = new ArrayList<>();
+        DetectionTasks.forEach(items, null, (Integer item, List<Integer> output) -> {
+            for (int j = 0; j < item % 3; j++)
+                output.add(item);
+        }, results);
+        assertEquals(expected, results);
+    }
+
+    @Test
+    public void forEachRunsTheLinkedItemsInOneChunkInTheirOrder() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            items.add(i);
+        Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<Integer, Set<Thread>> threads = new ConcurrentHashMap<>();
+        // an item is linked to the items of the same remainder, and the first ones also to those of the next remainder
+        DetectionTasks.forEach(items, item -> item < 7 ? Arrays.asList(item % 7, (item + 1) % 7 + 7) : Collections.singletonList(item % 7),
+                (Integer item, List<Integer> output) -> {
+                    seen.computeIfAbsent(item % 7, key -> Collections.synchronizedList(new ArrayList<>())).add(item);
+                    threads.computeIfAbsent(item % 7, key -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+                }, new ArrayList<>());
+        for (int remainder = 0; remainder < 7; remainder++) {
+            List<Integer> sorted = new ArrayList<>(seen.get(remainder));
+            Collections.sort(sorted);
+            assertEquals(sorted, seen.get(remainder));
+            assertEquals(1, threads.get(remainder).size());
+        }
+    }
+
+    @Test
+    public void forEachRethrowsTheFailureOfAnItem() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+            items.add(i);
+        assertThrows(IllegalStateException.class, () -> DetectionTasks.forEach(items, null, (Integer item, List<Integer> output) -> {
+            if (item == 400)
+                throw new IllegalStateException();
+        }, new ArrayList<>()));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void checkInterruptedStopsAnInterruptedThread() {
+        Thread.currentThread().interrupt();
+        try {
+            DetectionTasks.checkInterrupted();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.reextractor.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.refactoring.Refactoring;
+import org.remapper.dto.MatchPair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ParallelDetectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelDetectionFindsTheSameRefactoringsInTheSameOrder() throws Exception {
+        assertSameRefactorings(8);
+    }
+
+    @Test
+    public void chunkedDetectionFindsTheSameRefactoringsInTheSameOrder() throws Exception {
+        // enough matched entities and statements to be split into chunks
+        assertSameRefactorings(200);
+    }
+
+    // the detection runs again on the same MatchPair, so that the matcher cannot make the results differ
+    private void assertSameRefactorings(int methods) throws Exception {
+        try (TestRepository repository = new TestRepository(folder.newFolder())) {
+            List<String> commits = repository.commitRefactorings(methods);
+            RefactoringExtractorServiceImpl sequentialService = new RefactoringExtractorServiceImpl();
+            sequentialService.setTreeless(true);
+            RefactoringExtractorServiceImpl parallelService = new RefactoringExtractorServiceImpl();
+            parallelService.setParallelDetection(true);
+            for (int i = 1; i < commits.size(); i++) {
+                List<MatchPair> matchPairs = new ArrayList<>();
+                List<String> refactorings = new ArrayList<>();
+                sequentialService.detectBetweenCommits(repository.getRepository(), commits.get(i - 1), commits.get(i), new RefactoringHandler() {
+                    @Override
+                    public void handle(String startCommitId, String endCommitId, MatchPair matchPair, List<Refactoring> refactoringsAtRevision) {
+                        matchPairs.add(matchPair);
+                        refactorings.addAll(toStrings(refactoringsAtRevision));
+                    }
+
+                    @Override
+                    public void handleException(String startCommitId, String endCommitId, Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                assertFalse(refactorings.isEmpty());
+                // a race shows up in some runs only
+                for (int run = 0; run < 3; run++)
+                    assertEquals(refactorings, toStrings(parallelService.detectRefactorings(matchPairs.get(0))));
+                assertEquals(refactorings, toStrings(sequentialService.detectRefactorings(matchPairs.get(0))));
+            }
+        }
+    }
+
+    private static List<String> toStrings(List<Refactoring> refactorings) {
+        List<String> strings = new ArrayList<>();
+        for (Refactoring refactoring : refactorings)
+            strings.add(refactoring.toString());
+        return strings;
+    }
+}
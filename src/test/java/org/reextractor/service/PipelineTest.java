@@ -0,0 +1,135 @@
+package org.reextractor.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reextractor.handler.RefactoringHandler;
+import org.reextractor.metrics.MiningMetrics;
+import org.reextractor.refactoring.Refactoring;
+import org.remapper.dto.MatchPair;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 30000)
+    public void aCommitWhoseWorkFailedGoesOnToTheNextStage() throws Exception {
+        MiningMetrics metrics = new MiningMetrics();
+        PipelineStage<List<String>> stage = new PipelineStage<>("stage", 2, metrics, item -> {
+        }, (item, e) -> {
+            item.add("failed: " + e.getMessage());
+            return item;
+        });
+        PipelineStage<List<String>> next = new PipelineStage<>("next", 2, metrics, item -> {
+        }, (item, e) -> item);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            stage.start(executor, 1, item -> {
+                if (item.get(0).equals("a"))
+                    throw new IllegalStateException("no a");
+                item.add("done");
+                return item;
+            }, next);
+            assertTrue(stage.offer(new ArrayList<>(Collections.singletonList("a"))));
+            assertTrue(stage.offer(new ArrayList<>(Collections.singletonList("b"))));
+            assertEquals(Arrays.asList("a", "failed: no a"), next.take());
+            assertEquals(Arrays.asList("b", "done"), next.take());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void thePipelineFindsTheSameRefactoringsInCommitOrder() throws Exception {
+        try (TestRepository repository = new TestRepository(folder.newFolder())) {
+            repository.commitRefactorings(20);
+            assertSameResults(repository, 2, true);
+            assertSameResults(repository, 2, false);
+        }
+    }
+
+    @Test
+    public void theOrderedPipelineKeepsUpWithAHistoryLongerThanItsWindow() throws Exception {
+        try (TestRepository repository = new TestRepository(folder.newFolder())) {
+            repository.commitRefactorings(4);
+            // one commit per variable rename, well beyond the commits a single thread lets in flight
+            for (int i = 0; i < 30; i++) {
+                Map<String, String> files = new LinkedHashMap<>();
+                files.put("src/main/java/p/Counter.java", "package p;\n\nclass Counter {\n\n    int count() {\n        int count" + i +
+                        " = 0;\n        return count" + i + ";\n    }\n}\n");
+                repository.commit("Rename the count to count" + i, files);
+            }
+            assertSameResults(repository, 1, true);
+        }
+    }
+
+    private static void assertSameResults(TestRepository repository, int threads, boolean ordered) throws Exception {
+        RefactoringExtractorServiceImpl sequentialService = new RefactoringExtractorServiceImpl();
+        sequentialService.setTreeless(true);
+        ResultHandler sequentialResults = new ResultHandler();
+        sequentialService.detectAll(repository.getRepository(), sequentialResults);
+        RefactoringExtractorServiceImpl pipelineService = new RefactoringExtractorServiceImpl();
+        pipelineService.setTreeless(true);
+        pipelineService.setPipelined(true);
+        pipelineService.setThreads(threads);
+        pipelineService.setOrdered(ordered);
+        ResultHandler pipelineResults = new ResultHandler();
+        pipelineService.detectAll(repository.getRepository(), pipelineResults);
+        assertTrue(sequentialResults.failures.isEmpty());
+        assertTrue(pipelineResults.failures.isEmpty());
+        if (ordered)
+            assertEquals(sequentialResults.commits, pipelineResults.commits);
+        else
+            assertEquals(new HashSet<>(sequentialResults.commits), new HashSet<>(pipelineResults.commits));
+        assertEquals(sequentialResults.refactorings, pipelineResults.refactorings);
+        assertEquals(sequentialResults.counts, pipelineResults.counts);
+    }
+
+    // the refactorings of each commit are compared sorted, since they come from different runs of the matcher
+    private static class ResultHandler extends RefactoringHandler {
+
+        private final List<String> commits = new ArrayList<>();
+        private final Map<String, List<String>> refactorings = new HashMap<>();
+        private final List<Exception> failures = new ArrayList<>();
+        private List<Integer> counts;
+
+        @Override
+        public boolean skipCommit(String commitId) {
+            // about one commit in eight, so that skipped commits wait in the window of the ordered pipeline
+            return commitId.charAt(0) < '2';
+        }
+
+        @Override
+        public void handleSkipped(String commitId) {
+            commits.add("skipped " + commitId);
+        }
+
+        @Override
+        public void handle(String commitId, MatchPair matchPair, List<Refactoring> refactoringsAtRevision) {
+            commits.add(commitId);
+            List<String> strings = new ArrayList<>();
+            for (Refactoring refactoring : refactoringsAtRevision)
+                strings.add(refactoring.toString());
+            Collections.sort(strings);
+            refactorings.put(commitId, strings);
+        }
+
+        @Override
+        public void handleException(String commitId, Exception e) {
+            failures.add(e);
+        }
+
+        @Override
+        public void onFinish(int refactoringsCount, int commitsCount, int errorCommitsCount) {
+            counts = Arrays.asList(refactoringsCount, commitsCount, errorCommitsCount);
+        }
+    }
+}
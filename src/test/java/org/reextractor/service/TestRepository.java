@@ -0,0 +1,119 @@
+package org.reextractor.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A git repository in a folder of a test, with a short history of refactorings that touch many methods at once, so
+ * that the detection of a commit has enough entities and statements to be split into chunks.
+ */
+class TestRepository implements Closeable {
+
+    private static final PersonIdent AUTHOR = new PersonIdent("ReExtractor", "reextractor@example.com");
+
+    private final Git git;
+    private final Path directory;
+
+    TestRepository(File directory) throws GitAPIException {
+        this.git = Git.init().setDirectory(directory).call();
+        this.directory = directory.toPath();
+    }
+
+    Repository getRepository() {
+        return git.getRepository();
+    }
+
+    /**
+     * Commit the given files, relative to the root of the repository; a null content deletes the file.
+     *
+     * @return the ID of the commit.
+     */
+    String commit(String message, Map<String, String> files) throws IOException, GitAPIException {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path path = directory.resolve(file.getKey());
+            if (file.getValue() == null) {
+                git.rm().addFilepattern(file.getKey()).call();
+            } else {
+                Files.createDirectories(path.getParent());
+                Files.write(path, file.getValue().getBytes(StandardCharsets.UTF_8));
+                git.add().addFilepattern(file.getKey()).call();
+            }
+        }
+        return git.commit().setMessage(message).setAuthor(AUTHOR).setCommitter(AUTHOR).call().getName();
+    }
+
+    /**
+     * Commit a class of the given number of methods, then rename a quarter of them, the local variables of another
+     * quarter, the parameters of another quarter and change the return types of the rest, then rename the class.
+     *
+     * @return the IDs of the commits, oldest first.
+     */
+    List<String> commitRefactorings(int methods) throws IOException, GitAPIException {
+        List<String> commits = new ArrayList<>();
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("src/main/java/p/Shapes.java", shapes("Shapes", methods, false));
+        commits.add(commit("Add shapes", files));
+        files.put("src/main/java/p/Shapes.java", shapes("Shapes", methods, true));
+        commits.add(commit("Refactor shapes", files));
+        files.clear();
+        files.put("src/main/java/p/Shapes.java", null);
+        files.put("src/main/java/p/Figures.java", shapes("Figures", methods, true));
+        commits.add(commit("Rename shapes", files));
+        return commits;
+    }
+
+    @Override
+    public void close() {
+        git.close();
+    }
+
+    private static String shapes(String name, int methods, boolean refactored) {
+        StringBuilder source = new StringBuilder();
+        source.append("package p;\n\n");
+        source.append("import java.util.function.Supplier;\n\n");
+        source.append("public class ").append(name).append(" {\n\n");
+        source.append("    private int scale;\n\n");
+        source.append("    public Supplier<?> supplier() {\n");
+        source.append("        Supplier<?> supplier = new Supplier<").append(refactored ? "String" : "Object").append(">() {\n");
+        source.append("            /** The value. */\n");
+        source.append("            public ").append(refactored ? "String" : "Object").append(" get() {\n");
+        source.append("                return null;\n");
+        source.append("            }\n");
+        source.append("        };\n");
+        source.append("        return supplier;\n");
+        source.append("    }\n");
+        for (int i = 0; i < methods; i++) {
+            int kind = refactored ? i % 4 : -1;
+            String method = (kind == 0 ? "surface" : "area") + i;
+            String returnType = kind == 1 ? "long" : "int";
+            String parameter = kind == 2 ? "w" : "width";
+            String variable = kind == 3 ? "value" : "result";
+            source.append("\n");
+            source.append("    /**\n");
+            source.append("     * The area of the shape ").append(i).append(".\n");
+            source.append("     */\n");
+            source.append("    public ").append(returnType).append(" ").append(method).append("(int ").append(parameter).append(", int height) {\n");
+            source.append("        int ").append(variable).append(" = ").append(parameter).append(" * height * scale + ").append(i).append(";\n");
+            source.append("        if (").append(variable).append(" > ").append(i).append(") {\n");
+            source.append("            ").append(variable).append(" = ").append(variable).append(" - 1;\n");
+            source.append("        }\n");
+            source.append("        return ").append(variable).append(";\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}